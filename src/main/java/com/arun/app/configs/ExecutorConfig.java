@@ -0,0 +1,21 @@
+package com.arun.app.configs;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class ExecutorConfig {
+
+	// Runs blocking upstream calls that are fanned out from a single request
+	@Bean(destroyMethod = "shutdown")
+	ExecutorService upstreamExecutor(@Value("${UPSTREAM_PARALLELISM:16}") int parallelism,
+			@Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads) {
+		if(virtualThreads)
+			return Executors.newVirtualThreadPerTaskExecutor();
+		return Executors.newFixedThreadPool(parallelism);
+	}
+}
@@ -0,0 +1,38 @@
+package com.arun.app.configs;
+
+import java.time.Duration;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import com.arun.app.models.PincodeLocation;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+@Configuration
+public class LocalCacheConfig {
+
+	// W-TinyLFU bounded near-cache in front of the "pincode:" redis keys
+	@Bean
+	Cache<String, PincodeLocation> pincodeLocalCache(
+			@Value("${PINCODE_CACHE_MAX_SIZE:50000}") long maxSize,
+			@Value("${PINCODE_CACHE_TTL:6h}") Duration ttl) {
+		return Caffeine.newBuilder()
+				.maximumSize(maxSize)
+				.expireAfterWrite(ttl)
+				.recordStats()
+				.build();
+	}
+
+	// pincodes the geocoding API could not resolve, kept for less time than found ones
+	@Bean
+	Cache<String, Boolean> pincodeNegativeCache(
+			@Value("${PINCODE_NEGATIVE_CACHE_MAX_SIZE:100000}") long maxSize,
+			@Value("${PINCODE_NEGATIVE_TTL:1h}") Duration ttl) {
+		return Caffeine.newBuilder()
+				.maximumSize(maxSize)
+				.expireAfterWrite(ttl)
+				.build();
+	}
+}
@@ -0,0 +1,16 @@
+package com.arun.app.configs;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import com.arun.app.utils.LocationGrid;
+
+@Configuration
+public class LocationGridConfig {
+
+	@Bean
+	LocationGrid locationGrid(@Value("${LOCATION_GRID_DEGREES:0.05}") double cellDegrees) {
+		return new LocationGrid(cellDegrees);
+	}
+}
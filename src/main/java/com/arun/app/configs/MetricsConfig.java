@@ -0,0 +1,75 @@
+package com.arun.app.configs;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import com.arun.app.models.PincodeLocation;
+import com.arun.app.services.PincodeLocationService;
+import com.arun.app.services.WeatherDataService;
+import com.arun.app.utils.HotKeyTracker;
+import com.arun.app.utils.PincodeSpatialIndex;
+import com.arun.app.utils.RedisBatcher;
+import com.arun.app.utils.RequestCoalescer;
+import com.arun.app.utils.TierMetrics;
+import com.arun.app.utils.UpstreamGuard;
+import com.arun.app.utils.UpstreamGuards;
+import com.github.benmanes.caffeine.cache.Cache;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import io.micrometer.core.instrument.binder.httpcomponents.hc5.PoolingHttpClientConnectionManagerMetricsBinder;
+
+@Configuration
+public class MetricsConfig {
+
+	@Bean
+	TierMetrics tierMetrics(MeterRegistry registry, Cache<String, PincodeLocation> pincodeLocalCache,
+			HotKeyTracker<String, PincodeLocation> currentWeatherTracker, PincodeSpatialIndex pincodeSpatialIndex,
+			UpstreamGuards upstreamGuards, List<RedisBatcher<?>> redisBatchers,
+			PoolingHttpClientConnectionManager upstreamConnectionManager) {
+		// the near-cache records its own hit/miss/eviction stats, exposed as cache.*{cache=pincode-local}
+		CaffeineCacheMetrics.monitor(registry, pincodeLocalCache, "pincode-local");
+		Gauge.builder("weather.refresh.tracked.keys", currentWeatherTracker, HotKeyTracker::size).register(registry);
+		Gauge.builder("pincode.index.size", pincodeSpatialIndex, PincodeSpatialIndex::size).register(registry);
+		for(UpstreamGuard guard : upstreamGuards.all()) {
+			Gauge.builder("upstream.concurrency.limit", guard, UpstreamGuard::getLimit).tag("upstream", guard.getName()).register(registry);
+			Gauge.builder("upstream.in.flight", guard, UpstreamGuard::getInFlight).tag("upstream", guard.getName()).register(registry);
+			// 0 closed, 1 open, 2 half-open
+			Gauge.builder("upstream.circuit.state", guard, g -> g.getState().ordinal()).tag("upstream", guard.getName()).register(registry);
+			FunctionCounter.builder("upstream.rejected", guard, UpstreamGuard::getRejectedCount).tag("upstream", guard.getName()).register(registry);
+		}
+		// calls over round trips is the average batch size
+		for(RedisBatcher<?> batcher : redisBatchers) {
+			FunctionCounter.builder("redis.batcher.calls", batcher, RedisBatcher::getCallCount).tag("name", batcher.getName()).register(registry);
+			FunctionCounter.builder("redis.batcher.round.trips", batcher, RedisBatcher::getRoundTripCount).tag("name", batcher.getName()).register(registry);
+			Gauge.builder("redis.batcher.queued", batcher, RedisBatcher::getQueuedCount).tag("name", batcher.getName()).register(registry);
+		}
+		// leased, available and pending connections of the RestTemplate pool; the WebClient pool reports its own
+		new PoolingHttpClientConnectionManagerMetricsBinder(upstreamConnectionManager, "upstream").bindTo(registry);
+		return new TierMetrics(registry);
+	}
+	
+	// executed over executed+coalesced is the share of cache misses that made their own upstream call.
+	// A binder rather than part of tierMetrics, which the services holding the coalescers depend on.
+	@Bean
+	MeterBinder coalescerMetrics(WeatherDataService weatherDataService, PincodeLocationService pincodeLocationService) {
+		Map<String, RequestCoalescer<?, ?>> coalescers = new LinkedHashMap<>();
+		coalescers.put("current-weather", weatherDataService.getCurrentWeatherCoalescer());
+		coalescers.put("old-weather", weatherDataService.getOldWeatherCoalescer());
+		coalescers.put("weather-history", weatherDataService.getHistoryCoalescer());
+		coalescers.put("geocoding", pincodeLocationService.getGeoCodingCoalescer());
+		return registry -> coalescers.forEach((name, coalescer) -> {
+			FunctionCounter.builder("weather.coalescer.executed", coalescer, RequestCoalescer::getExecutedCount).tag("name", name).register(registry);
+			FunctionCounter.builder("weather.coalescer.coalesced", coalescer, RequestCoalescer::getCoalescedCount).tag("name", name).register(registry);
+			Gauge.builder("weather.coalescer.in.flight", coalescer, RequestCoalescer::getInFlightCount).tag("name", name).register(registry);
+		});
+	}
+}
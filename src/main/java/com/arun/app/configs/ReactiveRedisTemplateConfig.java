@@ -0,0 +1,47 @@
+package com.arun.app.configs;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.connection.ReactiveRedisConnectionFactory;
+import org.springframework.data.redis.core.ReactiveRedisTemplate;
+import org.springframework.data.redis.serializer.RedisSerializationContext;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.StringRedisSerializer;
+
+import com.arun.app.dtos.WeatherDataDto;
+import com.arun.app.models.PincodeLocation;
+import com.arun.app.models.WeatherData;
+import com.arun.app.serializers.PincodeLocationRedisSerializer;
+import com.arun.app.serializers.RedisValueCodec;
+import com.arun.app.serializers.WeatherDataDtoRedisSerializer;
+import com.arun.app.serializers.WeatherDataRedisSerializer;
+
+// Same key/value encoding as RedisTemplateConfig so both pipelines read each other's entries
+@Configuration
+public class ReactiveRedisTemplateConfig {
+	
+	@Bean
+	ReactiveRedisTemplate<String, PincodeLocation> reactivePinRedisTemplate(ReactiveRedisConnectionFactory connectionFactory,
+			@Value("${REDIS_VALUE_CODEC:binary}") RedisValueCodec codec) {
+		return new ReactiveRedisTemplate<>(connectionFactory, serializationContext(new PincodeLocationRedisSerializer(codec)));
+	}
+	
+	@Bean
+	ReactiveRedisTemplate<String, WeatherData> reactiveWeatherRedisTemplate2(ReactiveRedisConnectionFactory connectionFactory,
+			@Value("${REDIS_VALUE_CODEC:binary}") RedisValueCodec codec) {
+		return new ReactiveRedisTemplate<>(connectionFactory, serializationContext(new WeatherDataRedisSerializer(codec)));
+	}
+	
+	@Bean
+	ReactiveRedisTemplate<String, WeatherDataDto> reactiveWeatherRedisTemplate(ReactiveRedisConnectionFactory connectionFactory,
+			@Value("${REDIS_VALUE_CODEC:binary}") RedisValueCodec codec) {
+		return new ReactiveRedisTemplate<>(connectionFactory, serializationContext(new WeatherDataDtoRedisSerializer(codec)));
+	}
+	
+	private static <V> RedisSerializationContext<String, V> serializationContext(RedisSerializer<V> valueSerializer) {
+		return RedisSerializationContext.<String, V>newSerializationContext(new StringRedisSerializer())
+				.value(valueSerializer)
+				.build();
+	}
+}
@@ -0,0 +1,37 @@
+package com.arun.app.configs;
+
+import java.time.Duration;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.core.RedisTemplate;
+
+import com.arun.app.dtos.WeatherDataDto;
+import com.arun.app.models.PincodeLocation;
+import com.arun.app.models.WeatherData;
+import com.arun.app.utils.RedisBatcher;
+
+// Single-key reads and writes of the three value types, batched across concurrent requests
+@Configuration
+public class RedisBatcherConfig {
+	@Value("${REDIS_BATCH_WINDOW:0ms}")
+	private Duration window;
+	@Value("${REDIS_BATCH_MAX_SIZE:256}")
+	private int maxBatch;
+
+	@Bean
+	RedisBatcher<PincodeLocation> pincodeRedisBatcher(RedisTemplate<String, PincodeLocation> pinRedisTemplate) {
+		return new RedisBatcher<>("pincode", pinRedisTemplate, window, maxBatch);
+	}
+
+	@Bean
+	RedisBatcher<WeatherDataDto> currentWeatherRedisBatcher(RedisTemplate<String, WeatherDataDto> weatherRedisTemplate) {
+		return new RedisBatcher<>("current-weather", weatherRedisTemplate, window, maxBatch);
+	}
+
+	@Bean
+	RedisBatcher<WeatherData> oldWeatherRedisBatcher(RedisTemplate<String, WeatherData> weatherRedisTemplate2) {
+		return new RedisBatcher<>("old-weather", weatherRedisTemplate2, window, maxBatch);
+	}
+}
@@ -1,43 +1,49 @@
 package com.arun.app.configs;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
 import org.springframework.data.redis.core.RedisTemplate;
-import org.springframework.data.redis.serializer.Jackson2JsonRedisSerializer;
 import org.springframework.data.redis.serializer.StringRedisSerializer;
 
 import com.arun.app.dtos.WeatherDataDto;
 import com.arun.app.models.PincodeLocation;
 import com.arun.app.models.WeatherData;
-import com.arun.app.repositories.PincodeLocationRepo;
+import com.arun.app.serializers.PincodeLocationRedisSerializer;
+import com.arun.app.serializers.RedisValueCodec;
+import com.arun.app.serializers.WeatherDataDtoRedisSerializer;
+import com.arun.app.serializers.WeatherDataRedisSerializer;
 
 @Configuration
 public class RedisTemplateConfig {
 	@Bean
-	RedisTemplate<String, PincodeLocation> pinRedisTemplate(RedisConnectionFactory connectionFactory) {
+	RedisTemplate<String, PincodeLocation> pinRedisTemplate(RedisConnectionFactory connectionFactory,
+			@Value("${REDIS_VALUE_CODEC:binary}") RedisValueCodec codec) {
 	    RedisTemplate<String, PincodeLocation> template = new RedisTemplate<>();
 	    template.setConnectionFactory(connectionFactory);
 		template.setKeySerializer(new StringRedisSerializer());
-//	    template.setValueSerializer(new Jackson2JsonRedisSerializer<>(PincodeLocation.class));
+	    template.setValueSerializer(new PincodeLocationRedisSerializer(codec));
 	    return template;
 	}
 	
 	@Bean
-	RedisTemplate<String, WeatherData> weatherRedisTemplate2(RedisConnectionFactory connectionFactory) {
+	RedisTemplate<String, WeatherData> weatherRedisTemplate2(RedisConnectionFactory connectionFactory,
+			@Value("${REDIS_VALUE_CODEC:binary}") RedisValueCodec codec) {
 	    RedisTemplate<String, WeatherData> template = new RedisTemplate<>();
 	    template.setConnectionFactory(connectionFactory);
 		template.setKeySerializer(new StringRedisSerializer());
-//		template.setValueSerializer(new Jackson2JsonRedisSerializer<>(WeatherData.class));
+		template.setValueSerializer(new WeatherDataRedisSerializer(codec));
 	    return template;
 	}
 	
 	@Bean
-	RedisTemplate<String, WeatherDataDto> weatherRedisTemplate(RedisConnectionFactory connectionFactory) {
+	RedisTemplate<String, WeatherDataDto> weatherRedisTemplate(RedisConnectionFactory connectionFactory,
+			@Value("${REDIS_VALUE_CODEC:binary}") RedisValueCodec codec) {
 	    RedisTemplate<String, WeatherDataDto> template = new RedisTemplate<>();
 	    template.setConnectionFactory(connectionFactory);
 		template.setKeySerializer(new StringRedisSerializer());
-//		template.setValueSerializer(new Jackson2JsonRedisSerializer<>(WeatherDataDto.class));
+		template.setValueSerializer(new WeatherDataDtoRedisSerializer(codec));
 	    return template;
 	}
 }
@@ -0,0 +1,21 @@
+package com.arun.app.configs;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+import com.arun.app.models.PincodeLocation;
+import com.arun.app.utils.HotKeyTracker;
+
+@Configuration
+@EnableScheduling
+public class RefreshAheadConfig {
+
+	// access counts per location key of the "current-weather:" entries
+	@Bean
+	HotKeyTracker<String, PincodeLocation> currentWeatherTracker(
+			@Value("${REFRESH_AHEAD_TRACKED_KEYS:10000}") int capacity) {
+		return new HotKeyTracker<>(capacity);
+	}
+}
@@ -1,16 +1,68 @@
 package com.arun.app.configs;
 
+import java.time.Duration;
+
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.core5.pool.PoolConcurrencyPolicy;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.web.client.RestTemplateBuilder;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
 import org.springframework.web.client.RestTemplate;
 
 @Configuration
 public class RestTemplateConfig {
+	
+	// Shared by every call to the geocoding and Open-Meteo hosts; getTotalStats() shows pool saturation
+	@Bean(destroyMethod = "close")
+	PoolingHttpClientConnectionManager upstreamConnectionManager(
+			@Value("${HTTP_MAX_CONNECTIONS:200}") int maxConnections,
+			@Value("${HTTP_MAX_CONNECTIONS_PER_HOST:50}") int maxConnectionsPerHost,
+			@Value("${HTTP_CONNECT_TIMEOUT:2s}") Duration connectTimeout,
+			@Value("${HTTP_READ_TIMEOUT:5s}") Duration readTimeout,
+			@Value("${HTTP_CONNECTION_TTL:5m}") Duration connectionTtl) {
+		return PoolingHttpClientConnectionManagerBuilder.create()
+				.setMaxConnTotal(maxConnections)
+				.setMaxConnPerRoute(maxConnectionsPerHost)
+				.setPoolConcurrencyPolicy(PoolConcurrencyPolicy.STRICT)
+				.setDefaultConnectionConfig(ConnectionConfig.custom()
+						.setConnectTimeout(Timeout.of(connectTimeout))
+						.setSocketTimeout(Timeout.of(readTimeout))
+						.setTimeToLive(TimeValue.of(connectionTtl))
+						.setValidateAfterInactivity(TimeValue.ofSeconds(10))
+						.build())
+				.build();
+	}
+	
+	// Connections are kept alive and reused; gzip/deflate responses are requested and decoded by the client
+	@Bean(destroyMethod = "close")
+	CloseableHttpClient upstreamHttpClient(PoolingHttpClientConnectionManager upstreamConnectionManager,
+			@Value("${HTTP_POOL_TIMEOUT:2s}") Duration poolTimeout,
+			@Value("${HTTP_READ_TIMEOUT:5s}") Duration readTimeout,
+			@Value("${HTTP_IDLE_TIMEOUT:30s}") Duration idleTimeout) {
+		return HttpClients.custom()
+				.setConnectionManager(upstreamConnectionManager)
+				.setDefaultRequestConfig(RequestConfig.custom()
+						.setConnectionRequestTimeout(Timeout.of(poolTimeout))
+						.setResponseTimeout(Timeout.of(readTimeout))
+						.build())
+				.evictExpiredConnections()
+				.evictIdleConnections(TimeValue.of(idleTimeout))
+				.build();
+	}
 
     @Bean
-    RestTemplate restTemplate() {
+    RestTemplate restTemplate(CloseableHttpClient upstreamHttpClient) {
 		return new RestTemplateBuilder()
+				.requestFactory(() -> new HttpComponentsClientHttpRequestFactory(upstreamHttpClient))
 				.build();
 	}
 }
@@ -0,0 +1,18 @@
+package com.arun.app.configs;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import com.arun.app.utils.PincodeSpatialIndex;
+
+@Configuration
+public class SpatialIndexConfig {
+	// about 11 km, so a nearest lookup within 25 km scans at most a few rings
+	private static final double CELL_DEGREES = 0.1;
+
+	// every stored pincode by position, for coordinate lookups
+	@Bean
+	PincodeSpatialIndex pincodeSpatialIndex() {
+		return new PincodeSpatialIndex(CELL_DEGREES);
+	}
+}
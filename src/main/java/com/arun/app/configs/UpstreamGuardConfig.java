@@ -0,0 +1,28 @@
+package com.arun.app.configs;
+
+import java.time.Duration;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import com.arun.app.utils.UpstreamGuard;
+import com.arun.app.utils.UpstreamGuards;
+
+@Configuration
+public class UpstreamGuardConfig {
+
+	// the limit starts low and grows while the upstream stays fast, up to the per-host connection cap
+	@Bean
+	UpstreamGuards upstreamGuards(
+			@Value("${UPSTREAM_BREAKER_FAILURES:5}") int failureThreshold,
+			@Value("${UPSTREAM_BREAKER_OPEN:30s}") Duration openDuration,
+			@Value("${UPSTREAM_LIMIT_INITIAL:20}") int initialLimit,
+			@Value("${HTTP_MAX_CONNECTIONS_PER_HOST:50}") int maxLimit,
+			@Value("${UPSTREAM_LIMIT_LATENCY:2s}") Duration latencyThreshold) {
+		return new UpstreamGuards(
+				new UpstreamGuard("geocoding", failureThreshold, openDuration, initialLimit, maxLimit, latencyThreshold),
+				new UpstreamGuard("forecast", failureThreshold, openDuration, initialLimit, maxLimit, latencyThreshold),
+				new UpstreamGuard("archive", failureThreshold, openDuration, initialLimit, maxLimit, latencyThreshold));
+	}
+}
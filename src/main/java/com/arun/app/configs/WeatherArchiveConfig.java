@@ -0,0 +1,44 @@
+package com.arun.app.configs;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.unit.DataSize;
+
+import com.arun.app.utils.SegmentStore;
+import com.arun.app.utils.WeatherArchive;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+@Configuration
+public class WeatherArchiveConfig {
+	@Value("${WEATHER_ARCHIVE_ENABLED:false}")
+	private boolean enabled;
+	@Value("${WEATHER_ARCHIVE_DIR:data/weather-archive}")
+	private Path directory;
+	@Value("${WEATHER_ARCHIVE_SEGMENT_SIZE:64MB}")
+	private DataSize segmentSize;
+	@Value("${WEATHER_ARCHIVE_MAX_SEGMENTS:16}")
+	private int maxSegments;
+	@Value("${WEATHER_ARCHIVE_REPLAY:false}")
+	private boolean replay;
+	@Value("${WEATHER_ARCHIVE_REPLAY_MAX_AGE:1h}")
+	private Duration replayMaxAge;
+
+	Logger logger = LoggerFactory.getLogger(WeatherArchiveConfig.class);
+
+	@Bean
+	WeatherArchive weatherArchive(MeterRegistry registry) {
+		if(!enabled) return WeatherArchive.disabled();
+		WeatherArchive archive = new WeatherArchive(new SegmentStore(directory, Math.toIntExact(segmentSize.toBytes()), maxSegments), replay, replayMaxAge);
+		logger.info("Weather archive in {} opened with {} records", directory.toAbsolutePath(), archive.size());
+		Gauge.builder("weather.archive.records", archive, WeatherArchive::size).register(registry);
+		return archive;
+	}
+}
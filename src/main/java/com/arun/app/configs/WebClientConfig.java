@@ -0,0 +1,50 @@
+package com.arun.app.configs;
+
+import java.time.Duration;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import io.netty.channel.ChannelOption;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+@Configuration
+public class WebClientConfig {
+
+	// Same per-host limit and timeouts as the RestTemplate pool in RestTemplateConfig;
+	// reactor-netty keeps one pool per remote host. metrics(true) reports each pool's active, idle
+	// and pending connections as reactor.netty.connection.provider.*
+	@Bean(destroyMethod = "dispose")
+	ConnectionProvider upstreamConnectionProvider(
+			@Value("${HTTP_MAX_CONNECTIONS_PER_HOST:50}") int maxConnectionsPerHost,
+			@Value("${HTTP_POOL_TIMEOUT:2s}") Duration poolTimeout,
+			@Value("${HTTP_IDLE_TIMEOUT:30s}") Duration idleTimeout,
+			@Value("${HTTP_CONNECTION_TTL:5m}") Duration connectionTtl) {
+		return ConnectionProvider.builder("upstream")
+				.maxConnections(maxConnectionsPerHost)
+				.pendingAcquireTimeout(poolTimeout)
+				.maxIdleTime(idleTimeout)
+				.maxLifeTime(connectionTtl)
+				.evictInBackground(idleTimeout)
+				.metrics(true)
+				.build();
+	}
+
+	@Bean
+	WebClient webClient(WebClient.Builder builder, ConnectionProvider upstreamConnectionProvider,
+			@Value("${HTTP_CONNECT_TIMEOUT:2s}") Duration connectTimeout,
+			@Value("${HTTP_READ_TIMEOUT:5s}") Duration readTimeout) {
+		HttpClient httpClient = HttpClient.create(upstreamConnectionProvider)
+				.option(ChannelOption.CONNECT_TIMEOUT_MILLIS, (int) connectTimeout.toMillis())
+				.responseTimeout(readTimeout)
+				.compress(true)
+				.keepAlive(true);
+		return builder
+				.clientConnector(new ReactorClientHttpConnector(httpClient))
+				.build();
+	}
+}
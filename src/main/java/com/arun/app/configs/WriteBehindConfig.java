@@ -0,0 +1,92 @@
+package com.arun.app.configs;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.arun.app.models.BaseModel;
+import com.arun.app.models.PincodeLocation;
+import com.arun.app.models.WeatherData;
+import com.arun.app.repositories.PincodeLocationRepo;
+import com.arun.app.repositories.WeatherDataRepo;
+import com.arun.app.services.IWeatherPartitionService;
+import com.arun.app.services.IWeatherRollupService;
+import com.arun.app.utils.IdSequence;
+import com.arun.app.utils.TierMetrics;
+import com.arun.app.utils.WriteBehindQueue;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+@Configuration
+public class WriteBehindConfig {
+	@Value("${WRITE_BEHIND_CAPACITY:10000}")
+	private int capacity;
+	@Value("${WRITE_BEHIND_BATCH_SIZE:200}")
+	private int batchSize;
+	@Value("${WRITE_BEHIND_FLUSH_INTERVAL:200ms}")
+	private Duration flushInterval;
+	@Value("${WRITE_BEHIND_OFFER_TIMEOUT:100ms}")
+	private Duration offerTimeout;
+
+	Logger logger = LoggerFactory.getLogger(WriteBehindConfig.class);
+
+	// rows of months past retention are not stored, the partitions of the others are created first
+	@Bean
+	WriteBehindQueue<WeatherData> weatherDataWriteBehind(WeatherDataRepo weatherDataRepo, TierMetrics tierMetrics,
+			MeterRegistry registry, IWeatherPartitionService weatherPartitionService, IWeatherRollupService weatherRollupService) {
+		return monitor(registry, new WriteBehindQueue<>("weather-data", rows -> {
+			List<WeatherData> retained = rows.stream().filter(row -> weatherPartitionService.isRetained(row.getDate())).toList();
+			List<LocalDate> dates = retained.stream().map(WeatherData::getDate).distinct().toList();
+			weatherPartitionService.ensurePartitions(dates);
+			tierMetrics.time(TierMetrics.POSTGRES, "weather-data", "batch-save", () -> weatherDataRepo.saveAll(retained));
+			weatherRollupService.markChanged(dates);
+		}, WeatherData::copy, capacity, batchSize, flushInterval, offerTimeout));
+	}
+
+	@Bean
+	WriteBehindQueue<PincodeLocation> pincodeLocationWriteBehind(PincodeLocationRepo pincodeLocationRepo, TierMetrics tierMetrics,
+			MeterRegistry registry) {
+		return monitor(registry, new WriteBehindQueue<>("pincode", rows -> tierMetrics.time(TierMetrics.POSTGRES, "pincode",
+				"batch-save", () -> pincodeLocationRepo.saveAll(rows)), PincodeLocation::copy, capacity, batchSize, flushInterval, offerTimeout));
+	}
+
+	// rows written by callers mean the queue was full, failed rows are lost from postgres (redis still has them)
+	private static <T> WriteBehindQueue<T> monitor(MeterRegistry registry, WriteBehindQueue<T> queue) {
+		Gauge.builder("write.behind.queued", queue, WriteBehindQueue::getQueuedCount).tag("name", queue.getName()).register(registry);
+		FunctionCounter.builder("write.behind.written", queue, WriteBehindQueue::getWrittenCount).tag("name", queue.getName()).register(registry);
+		FunctionCounter.builder("write.behind.failed", queue, WriteBehindQueue::getFailedCount).tag("name", queue.getName()).register(registry);
+		FunctionCounter.builder("write.behind.caller.written", queue, WriteBehindQueue::getCallerWrittenCount).tag("name", queue.getName()).register(registry);
+		return queue;
+	}
+
+	@Bean
+	IdSequence idSequence(JdbcTemplate jdbcTemplate) {
+		return new IdSequence(jdbcTemplate);
+	}
+
+	/*
+	 * Ids come from a pooled sequence (see BaseModel) instead of identity columns, so inserts can be
+	 * sent as JDBC batches. Tables created while ids were identity values already hold rows: move
+	 * the sequence past their largest id before anything is inserted. This runs once all beans
+	 * exist (the schema update has created the sequence), before the server takes requests and
+	 * before the startup import. Never moves the sequence backwards.
+	 */
+	@Bean
+	SmartInitializingSingleton idSequenceAlignment(IdSequence idSequence,
+			@Value("${ID_SEQUENCE_ALIGN:true}") boolean align) {
+		return () -> {
+			if(!align) return;
+			logger.info("Id sequence {} set to {}", BaseModel.ID_SEQUENCE, idSequence.align());
+		};
+	}
+}
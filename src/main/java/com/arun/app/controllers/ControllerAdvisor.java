@@ -2,10 +2,14 @@ package com.arun.app.controllers;
 
 import java.text.ParseException;
 
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
+import org.springframework.web.client.ResourceAccessException;
+
+import com.arun.app.exceptions.UpstreamUnavailableException;
 
 @RestControllerAdvice
 public class ControllerAdvisor {
@@ -19,4 +23,16 @@ public class ControllerAdvisor {
 	public ResponseEntity<String> InvalidDateExceptionHandler(IllegalArgumentException e) {
 		return new ResponseEntity<>(e.getMessage(), HttpStatus.BAD_REQUEST);
 	}
+	
+	@ExceptionHandler
+	public ResponseEntity<String> upstreamTimeoutHandler(ResourceAccessException e) {
+		return new ResponseEntity<>("Upstream weather service did not respond in time", HttpStatus.GATEWAY_TIMEOUT);
+	}
+	
+	@ExceptionHandler
+	public ResponseEntity<String> upstreamUnavailableHandler(UpstreamUnavailableException e) {
+		return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+				.header(HttpHeaders.RETRY_AFTER, "5")
+				.body(e.getMessage());
+	}
 }
@@ -0,0 +1,50 @@
+package com.arun.app.controllers;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.arun.app.dtos.WeatherDataDto;
+import com.arun.app.models.WeatherData;
+import com.arun.app.services.ReactiveWeatherDataService;
+
+import reactor.core.publisher.Mono;
+
+// Request and response as in GET /weather; the request thread is released while redis and the upstream
+// APIs answer. Unlike GET /weather it has no UpstreamGuard, no last-known fallback when the forecast API
+// fails, does not write the last-weather key, and records no tier metrics.
+@RestController
+public class ReactiveWeatherController {
+	private final ReactiveWeatherDataService weatherDataService;
+	
+	public ReactiveWeatherController(ReactiveWeatherDataService weatherDataService) {
+		this.weatherDataService = weatherDataService;
+	}
+	
+	@GetMapping("/reactive/weather")
+	public Mono<ResponseEntity<WeatherDataDto>> getWeather(
+			@RequestParam String pincode,
+			@RequestParam(name = "for_date") String date) {
+		LocalDate givenDate;
+		try {
+			givenDate = LocalDate.parse(date);
+		}
+		catch (DateTimeParseException e) {
+			throw new DateTimeParseException("Invalid Date: "+date, date, 0);
+		}
+		LocalDate currDate = LocalDate.now();
+		if(givenDate.isAfter(currDate))
+			throw new IllegalArgumentException("Enter current date or previous date");
+		
+		Mono<WeatherData> weatherData = givenDate.isBefore(currDate) 
+				? weatherDataService.getOldWeather(pincode, givenDate)
+				: weatherDataService.getCurrentWeather(pincode);
+		return weatherData
+				.switchIfEmpty(Mono.error(() -> new IllegalArgumentException("Weather data cannot be null")))
+				.map(data -> WeatherController.respond(data, pincode));
+	}
+}
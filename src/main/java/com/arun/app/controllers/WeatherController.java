@@ -3,31 +3,54 @@ package com.arun.app.controllers;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.time.LocalDate;
+import java.time.YearMonth;
 import java.time.ZoneId;
 import java.time.format.DateTimeParseException;
 import java.util.Date;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
 import java.util.TimeZone;
+import java.util.stream.Stream;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import com.arun.app.dtos.BatchWeatherDto;
 import com.arun.app.dtos.WeatherDataDto;
+import com.arun.app.dtos.WeatherSummaryDto;
 import com.arun.app.models.PincodeLocation;
 import com.arun.app.models.WeatherData;
+import com.arun.app.services.BatchWeatherService;
+import com.arun.app.services.PincodeLocationService;
 import com.arun.app.services.WeatherDataService;
+import com.arun.app.services.WeatherRollupService;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
 
 @RestController
 public class WeatherController {
 	private final WeatherDataService weatherDataService;
+	private final BatchWeatherService batchWeatherService;
+	private final PincodeLocationService pincodeLocationService;
+	private final WeatherRollupService weatherRollupService;
+	private final ObjectMapper objectMapper;
 	
-	public WeatherController(WeatherDataService weatherDataService) {
+	public WeatherController(WeatherDataService weatherDataService, BatchWeatherService batchWeatherService,
+			PincodeLocationService pincodeLocationService, WeatherRollupService weatherRollupService, ObjectMapper objectMapper) {
 		this.weatherDataService = weatherDataService;
+		this.pincodeLocationService = pincodeLocationService;
+		this.batchWeatherService = batchWeatherService;
+		this.weatherRollupService = weatherRollupService;
+		this.objectMapper = objectMapper;
 	}
 
 	@GetMapping("/weather")
@@ -60,6 +83,124 @@ public class WeatherController {
 		if (weatherData == null) {
             throw new IllegalArgumentException("Weather data cannot be null");
         }
-		return ResponseEntity.ok(WeatherDataDto.get(weatherData, pincode));
+		return respond(weatherData, pincode);
+	}
+	
+	// Readings of one hour (0-23, GMT) of the given day, served from the stored hourly series.
+	// Later hours of the current day are the forecast.
+	@GetMapping(value = "/weather", params = "hour")
+	public ResponseEntity<WeatherDataDto> getWeatherAtHour(
+			@RequestParam String pincode,
+			@RequestParam(name = "for_date") String date,
+			@RequestParam int hour) throws Exception {
+		LocalDate givenDate = parseDate(date);
+		if(givenDate.isAfter(LocalDate.now()))
+			throw new IllegalArgumentException("Enter current date or previous date");
+		if(hour < 0 || hour > 23)
+			throw new IllegalArgumentException("hour must be between 0 and 23");
+
+		WeatherData weatherData = givenDate.isBefore(LocalDate.now())
+				? weatherDataService.getOldWeather(pincode, givenDate, hour)
+				: weatherDataService.getCurrentWeather(pincode, hour);
+		return respond(weatherData, pincode);
+	}
+	
+	// Current weather reports its age in seconds; values served while the upstream is unavailable
+	// also carry a stale flag and a Warning header.
+	static ResponseEntity<WeatherDataDto> respond(WeatherData weatherData, String pincode) {
+		WeatherDataDto dto = WeatherDataDto.get(weatherData, pincode);
+		ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+		if(dto.getFetchedAt() != null)
+			response.header(HttpHeaders.AGE, String.valueOf(Math.max(0, (System.currentTimeMillis()-dto.getFetchedAt())/1000)));
+		if(dto.isStale())
+			response.header(HttpHeaders.WARNING, "110 - \"Response is Stale\"");
+		return response.body(dto);
+	}
+
+	// Weather of the stored pincode nearest to the given GPS coordinates; the response names that pincode.
+	@GetMapping(value = "/weather", params = {"lat", "lon"})
+	public ResponseEntity<WeatherDataDto> getWeatherByCoordinates(
+			@RequestParam double lat,
+			@RequestParam double lon,
+			@RequestParam(name = "for_date") String date,
+			@RequestParam(required = false) Integer hour) throws Exception {
+		String pincode = pincodeLocationService.getNearestPincodeLocation(lat, lon).getPincode();
+		return hour == null ? getWeather(pincode, date) : getWeatherAtHour(pincode, date, hour);
+	}
+
+	@GetMapping("/weather/batch")
+	public ResponseEntity<List<BatchWeatherDto>> getWeatherBatch(
+			@RequestParam List<String> pincodes,
+			@RequestParam(name = "for_date") String date) {
+		LocalDate givenDate;
+		try {
+			givenDate = LocalDate.parse(date);
+		}
+		catch (DateTimeParseException e) {
+			throw new DateTimeParseException("Invalid Date: "+date, date, 0);
+		}
+		if(givenDate.isAfter(LocalDate.now()))
+			throw new IllegalArgumentException("Enter current date or previous date");
+		
+		return ResponseEntity.ok(batchWeatherService.getWeather(pincodes, givenDate));
+	}
+	
+	// Newline-delimited JSON, one WeatherDataDto per day. Stored days are written first, in date order,
+	// followed by the days fetched from the archive. A failure after the first row ends the stream
+	// with an {"error": ...} line, since the status has already been sent.
+	@GetMapping(value = "/weather/history", produces = MediaType.APPLICATION_NDJSON_VALUE)
+	public ResponseEntity<StreamingResponseBody> getWeatherHistory(
+			@RequestParam String pincode,
+			@RequestParam String from,
+			@RequestParam String to) throws Exception {
+		LocalDate fromDate = parseDate(from);
+		LocalDate toDate = parseDate(to);
+		if(!toDate.isBefore(LocalDate.now()))
+			throw new IllegalArgumentException("Enter dates before the current date");
+		
+		Stream<WeatherData> history = weatherDataService.getWeatherHistory(pincode, fromDate, toDate);
+		StreamingResponseBody body = out -> {
+			try(history) {
+				Iterator<WeatherData> rows = history.iterator();
+				while(rows.hasNext()) {
+					out.write(objectMapper.writeValueAsBytes(WeatherDataDto.get(rows.next(), pincode)));
+					out.write('\n');
+					out.flush();
+				}
+			}
+			catch(RuntimeException e) {
+				out.write(objectMapper.writeValueAsBytes(Map.of("error", String.valueOf(e.getMessage()))));
+				out.write('\n');
+			}
+		};
+		return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
+	}
+	
+	// Monthly min/max/average per month from..to (yyyy-MM), read from the rollups. Months without
+	// stored readings are left out; the current month is as of the last rollup run.
+	@GetMapping("/weather/summary")
+	public ResponseEntity<List<WeatherSummaryDto>> getWeatherSummary(
+			@RequestParam String pincode,
+			@RequestParam String from,
+			@RequestParam String to) throws Exception {
+		return ResponseEntity.ok(weatherRollupService.getSummary(pincode, parseMonth(from), parseMonth(to)));
+	}
+	
+	private static YearMonth parseMonth(String month) {
+		try {
+			return YearMonth.parse(month);
+		}
+		catch (DateTimeParseException e) {
+			throw new DateTimeParseException("Invalid Month: "+month, month, 0);
+		}
+	}
+	
+	private static LocalDate parseDate(String date) {
+		try {
+			return LocalDate.parse(date);
+		}
+		catch (DateTimeParseException e) {
+			throw new DateTimeParseException("Invalid Date: "+date, date, 0);
+		}
 	}
 }
@@ -0,0 +1,26 @@
+package com.arun.app.dtos;
+
+import lombok.Getter;
+import lombok.Setter;
+
+@Getter
+@Setter
+public class BatchWeatherDto {
+	private String pincode;
+	private WeatherDataDto weather;
+	private String error;
+	
+	public static BatchWeatherDto get(String pincode, WeatherDataDto weather) {
+		BatchWeatherDto dto = new BatchWeatherDto();
+		dto.setPincode(pincode);
+		dto.setWeather(weather);
+		return dto;
+	}
+	
+	public static BatchWeatherDto error(String pincode, String error) {
+		BatchWeatherDto dto = new BatchWeatherDto();
+		dto.setPincode(pincode);
+		dto.setError(error);
+		return dto;
+	}
+}
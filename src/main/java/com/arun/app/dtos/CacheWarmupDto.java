@@ -0,0 +1,14 @@
+package com.arun.app.dtos;
+
+import lombok.Getter;
+import lombok.Setter;
+
+@Getter
+@Setter
+public class CacheWarmupDto {
+	private long pincodes;
+	private long weatherRows;
+	private long elapsedMillis;
+	// false when stopped at the deadline or by an error; the rest is loaded on demand
+	private boolean complete;
+}
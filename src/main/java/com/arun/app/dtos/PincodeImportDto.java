@@ -0,0 +1,18 @@
+package com.arun.app.dtos;
+
+import lombok.Getter;
+import lombok.Setter;
+
+@Getter
+@Setter
+public class PincodeImportDto {
+	private long rowsRead;
+	private long rowsInserted;
+	private long rowsSkipped;
+	private long resumedFromRow;
+	private long elapsedMillis;
+	
+	public double getRowsPerSecond() {
+		return elapsedMillis == 0 ? rowsRead : rowsRead*1000.0/elapsedMillis;
+	}
+}
@@ -5,6 +5,8 @@ import java.time.LocalDate;
 import java.util.Date;
 
 import com.arun.app.models.WeatherData;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
 
 import lombok.Getter;
 import lombok.Setter;
@@ -12,6 +14,8 @@ import lombok.Setter;
 @Getter
 @Setter
 public class WeatherDataDto implements Serializable {
+	// pinned to the value before hourly, stale and fetchedAt, for JDK-serialized redis entries
+	private static final long serialVersionUID = 4620891113723294914L;
 	private static final String TEMPERATURE_UNIT = "°C";
     private static final String HUMIDITY_UNIT = "%";
     private static final String WINDSPEED_UNIT = "km/h";
@@ -22,6 +26,12 @@ public class WeatherDataDto implements Serializable {
 	private Double temperature;
 	private Integer humidity;
 	private Double windSpeed;
+	@JsonIgnore
+	private byte[] hourly;
+	@JsonInclude(JsonInclude.Include.NON_DEFAULT)
+	private boolean stale;
+	@JsonIgnore
+	private Long fetchedAt;
 	private transient String temperatureUnit;
 	private transient String humidityUnit;
 	private transient String windSpeedUnit;
@@ -45,6 +55,9 @@ public class WeatherDataDto implements Serializable {
     	dto.setTemperature(weatherData.getTemperature());
     	dto.setHumidity(weatherData.getHumidity());
     	dto.setWindSpeed(weatherData.getWindSpeed());
+    	dto.setHourly(weatherData.getHourly());
+    	dto.setStale(weatherData.isStale());
+    	dto.setFetchedAt(weatherData.getFetchedAt());
     	return dto;
     }
     public static WeatherData getWeatherData (WeatherDataDto dto) {
@@ -58,6 +71,8 @@ public class WeatherDataDto implements Serializable {
     	weatherData.setTemperature(dto.getTemperature());
     	weatherData.setHumidity(dto.getHumidity());
     	weatherData.setWindSpeed(dto.getWindSpeed());
+    	weatherData.setHourly(dto.getHourly());
+    	weatherData.setFetchedAt(dto.getFetchedAt());
     	return weatherData;
     }
     
@@ -0,0 +1,41 @@
+package com.arun.app.dtos;
+
+import java.time.YearMonth;
+
+import com.arun.app.models.WeatherMonthlyRollup;
+
+import lombok.Getter;
+import lombok.Setter;
+
+@Getter
+@Setter
+public class WeatherSummaryDto {
+	private static final String TEMPERATURE_UNIT = "°C";
+	private static final String HUMIDITY_UNIT = "%";
+	private String pincode;
+	private YearMonth month;
+	// days with a stored reading
+	private Integer days;
+	private Double minTemperature;
+	private Double maxTemperature;
+	private Double avgTemperature;
+	private Integer minHumidity;
+	private Integer maxHumidity;
+	private Double avgHumidity;
+	private String temperatureUnit = TEMPERATURE_UNIT;
+	private String humidityUnit = HUMIDITY_UNIT;
+
+	public static WeatherSummaryDto get(WeatherMonthlyRollup rollup, String pincode) {
+		WeatherSummaryDto dto = new WeatherSummaryDto();
+		dto.setPincode(pincode);
+		dto.setMonth(YearMonth.from(rollup.getMonth()));
+		dto.setDays(rollup.getDays());
+		dto.setMinTemperature(rollup.getMinTemperature());
+		dto.setMaxTemperature(rollup.getMaxTemperature());
+		dto.setAvgTemperature(rollup.getAvgTemperature());
+		dto.setMinHumidity(rollup.getMinHumidity());
+		dto.setMaxHumidity(rollup.getMaxHumidity());
+		dto.setAvgHumidity(rollup.getAvgHumidity());
+		return dto;
+	}
+}
@@ -0,0 +1,9 @@
+package com.arun.app.exceptions;
+
+// an upstream call was refused locally: its circuit is open or its concurrency limit is reached
+public class UpstreamUnavailableException extends RuntimeException {
+
+	public UpstreamUnavailableException(String message) {
+		super(message);
+	}
+}
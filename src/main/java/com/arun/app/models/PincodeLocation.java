@@ -18,9 +18,20 @@ import lombok.Setter;
 		}
 		)
 public class PincodeLocation extends BaseModel implements Serializable {
+	private static final long serialVersionUID = -7671116091359478967L;
 	private String pincode;
 	private String name;
 	private Double latitude;
 	private Double longitude;
 	private String country;
+
+	public PincodeLocation copy() {
+		PincodeLocation copy = copyTo(new PincodeLocation());
+		copy.setPincode(pincode);
+		copy.setName(name);
+		copy.setLatitude(latitude);
+		copy.setLongitude(longitude);
+		copy.setCountry(country);
+		return copy;
+	}
 }
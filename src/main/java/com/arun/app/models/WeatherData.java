@@ -20,10 +20,36 @@ import lombok.Setter;
 		}
 		)
 public class WeatherData extends BaseModel implements Serializable{
+	// computed value of the class before hourly and fetchedAt were added: redis entries written with
+	// JDK serialization by that version must stay readable
+	private static final long serialVersionUID = -6811090548591161894L;
 	private Double latitude;
 	private Double longitude;
 	private LocalDate date;
 	private Double temperature;
 	private Integer humidity;
 	private Double windSpeed;
+	// HourlySeries of the day, null for rows stored before it was kept
+	private byte[] hourly;
+	// served from the last known value because the upstream could not be used
+	@Transient
+	private boolean stale;
+	// epoch millis of the upstream call, kept for current weather only
+	@Transient
+	private Long fetchedAt;
+
+	// a detached copy, for the write-behind queue; the hourly bytes are never changed in place
+	public WeatherData copy() {
+		WeatherData copy = copyTo(new WeatherData());
+		copy.setLatitude(latitude);
+		copy.setLongitude(longitude);
+		copy.setDate(date);
+		copy.setTemperature(temperature);
+		copy.setHumidity(humidity);
+		copy.setWindSpeed(windSpeed);
+		copy.setHourly(hourly);
+		copy.setStale(stale);
+		copy.setFetchedAt(fetchedAt);
+		return copy;
+	}
 }
@@ -0,0 +1,48 @@
+package com.arun.app.models;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.IdClass;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+// Aggregates of the weather_data rows of one grid cell and month, written by WeatherRollupService
+@Entity
+@Getter
+@Setter
+@Table(name = "weather_monthly_rollup")
+@IdClass(WeatherMonthlyRollup.Key.class)
+public class WeatherMonthlyRollup implements Serializable {
+	@Id
+	private Double latitude;
+	@Id
+	private Double longitude;
+	// first day of the month
+	@Id
+	private LocalDate month;
+	private Integer days;
+	private Double minTemperature;
+	private Double maxTemperature;
+	private Double avgTemperature;
+	private Integer minHumidity;
+	private Integer maxHumidity;
+	private Double avgHumidity;
+
+	@Getter
+	@Setter
+	@NoArgsConstructor
+	@AllArgsConstructor
+	@EqualsAndHashCode
+	public static class Key implements Serializable {
+		private Double latitude;
+		private Double longitude;
+		private LocalDate month;
+	}
+}
@@ -1,5 +1,9 @@
 package com.arun.app.repositories;
 
+import java.util.Collection;
+import java.util.List;
+
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
@@ -8,4 +12,9 @@ import com.arun.app.models.PincodeLocation;
 @Repository
 public interface PincodeLocationRepo extends JpaRepository<PincodeLocation, Long>{
 	PincodeLocation findByPincode(String pincode);
+	List<PincodeLocation> findByPincodeIn(Collection<String> pincodes);
+	// keyset page, newest first: pass the smallest id of the previous page
+	List<PincodeLocation> findByIdLessThanOrderByIdDesc(long id, Limit limit);
+	// keyset page, oldest first: pass the largest id of the previous page
+	List<PincodePointView> findPointsByIdGreaterThanOrderById(long id, Limit limit);
 }
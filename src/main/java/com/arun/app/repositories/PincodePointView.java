@@ -0,0 +1,23 @@
+package com.arun.app.repositories;
+
+import com.arun.app.models.PincodeLocation;
+
+/*
+ * Id, pincode and coordinates of a pincode_locations row, all the spatial index needs. Read as
+ * plain tuples like WeatherDataView, so loading every pincode builds no managed entities.
+ */
+public interface PincodePointView {
+	Long getId();
+	String getPincode();
+	Double getLatitude();
+	Double getLongitude();
+
+	default PincodeLocation toPincodeLocation() {
+		PincodeLocation pincodeLocation = new PincodeLocation();
+		pincodeLocation.setId(getId());
+		pincodeLocation.setPincode(getPincode());
+		pincodeLocation.setLatitude(getLatitude());
+		pincodeLocation.setLongitude(getLongitude());
+		return pincodeLocation;
+	}
+}
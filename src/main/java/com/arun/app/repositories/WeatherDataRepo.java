@@ -1,14 +1,56 @@
 package com.arun.app.repositories;
 
 import java.time.LocalDate;
-import java.util.Date;
+import java.util.Collection;
+import java.util.List;
 
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import com.arun.app.models.WeatherData;
 
+/*
+ * Read paths use the WeatherDataView queries (only the reading columns, nothing managed).
+ * The entity lookup is kept for the one path that updates a stored row in place.
+ * Coordinates are compared with = : stored rows and lookups both use grid cell coordinates
+ * (LocationGrid), which are computed the same way and so are equal to the last bit.
+ */
 @Repository
 public interface WeatherDataRepo extends JpaRepository<WeatherData, Long>{
+	String VIEW_COLUMNS = "SELECT w.latitude AS latitude, w.longitude AS longitude, w.date AS date, "
+			+ "w.temperature AS temperature, w.humidity AS humidity, w.windSpeed AS windSpeed, w.hourly AS hourly "
+			+ "FROM WeatherData w ";
+	String KEYSET_ORDER = " ORDER BY w.latitude, w.longitude, w.date";
+
 	WeatherData findByLatitudeAndLongitudeAndDate(Double latitude, Double longitude, LocalDate date);
+
+	@Transactional(readOnly = true)
+	WeatherDataView findViewByLatitudeAndLongitudeAndDate(Double latitude, Double longitude, LocalDate date);
+
+	@Transactional(readOnly = true)
+	List<WeatherDataView> findViewsByDateAndLatitudeInAndLongitudeIn(LocalDate date, Collection<Double> latitudes,
+			Collection<Double> longitudes);
+
+	@Transactional(readOnly = true)
+	List<WeatherDataView> findViewsByLatitudeAndLongitudeAndDateBetweenOrderByDate(Double latitude, Double longitude,
+			LocalDate from, LocalDate to);
+
+	/*
+	 * Keyset pages over index_latitude_longitude_date of the rows dated from onwards: the first
+	 * page, then each next page after the (latitude, longitude, date) of the last row of the
+	 * previous one. Unlike OFFSET, a page costs the same however deep it is.
+	 */
+	@Transactional(readOnly = true)
+	@Query(VIEW_COLUMNS + "WHERE w.date >= :from" + KEYSET_ORDER)
+	List<WeatherDataView> findViewsFrom(@Param("from") LocalDate from, Limit limit);
+
+	@Transactional(readOnly = true)
+	@Query(VIEW_COLUMNS + "WHERE w.date >= :from AND (w.latitude > :latitude OR (w.latitude = :latitude "
+			+ "AND (w.longitude > :longitude OR (w.longitude = :longitude AND w.date > :date))))" + KEYSET_ORDER)
+	List<WeatherDataView> findViewsFromAfter(@Param("from") LocalDate from, @Param("latitude") Double latitude,
+			@Param("longitude") Double longitude, @Param("date") LocalDate date, Limit limit);
 }
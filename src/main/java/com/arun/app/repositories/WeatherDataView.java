@@ -0,0 +1,33 @@
+package com.arun.app.repositories;
+
+import java.time.LocalDate;
+
+import com.arun.app.models.WeatherData;
+
+/*
+ * The readings of a weather_data row without id, audit columns and status. Queries returning it
+ * select only these columns and Hibernate hands back plain tuples: nothing is added to the
+ * persistence context, so there is no snapshot copy and no dirty check at flush.
+ */
+public interface WeatherDataView {
+	Double getLatitude();
+	Double getLongitude();
+	LocalDate getDate();
+	Double getTemperature();
+	Integer getHumidity();
+	Double getWindSpeed();
+	byte[] getHourly();
+
+	// detached copy for the cache and the API; saving it inserts a new row
+	default WeatherData toWeatherData() {
+		WeatherData weatherData = new WeatherData();
+		weatherData.setLatitude(getLatitude());
+		weatherData.setLongitude(getLongitude());
+		weatherData.setDate(getDate());
+		weatherData.setTemperature(getTemperature());
+		weatherData.setHumidity(getHumidity());
+		weatherData.setWindSpeed(getWindSpeed());
+		weatherData.setHourly(getHourly());
+		return weatherData;
+	}
+}
@@ -0,0 +1,17 @@
+package com.arun.app.repositories;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.arun.app.models.WeatherMonthlyRollup;
+
+@Repository
+public interface WeatherMonthlyRollupRepo extends JpaRepository<WeatherMonthlyRollup, WeatherMonthlyRollup.Key>{
+	@Transactional(readOnly = true)
+	List<WeatherMonthlyRollup> findByLatitudeAndLongitudeAndMonthBetweenOrderByMonth(Double latitude, Double longitude,
+			LocalDate from, LocalDate to);
+}
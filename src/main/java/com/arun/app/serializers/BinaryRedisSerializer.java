@@ -0,0 +1,162 @@
+package com.arun.app.serializers;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+
+/*
+ * Fixed-layout value encoding: one version byte followed by the fields in declaration order.
+ * A layout change bumps version() and appends fields; read() gets the version it was written
+ * with, so every earlier version stays readable.
+ * Null Doubles are written as NaN, null Integers and dates as Integer.MIN_VALUE, null Longs as
+ * Long.MIN_VALUE, null Strings
+ * with length -1. Values written by the old JDK serializer start with the stream magic 0xACED
+ * and are still decoded, so existing keys keep working until they are rewritten or expire.
+ */
+public abstract class BinaryRedisSerializer<T> implements RedisSerializer<T> {
+	private static final byte JDK_MAGIC_0 = (byte) 0xAC;
+	private static final byte JDK_MAGIC_1 = (byte) 0xED;
+	private static final int NULL_INT = Integer.MIN_VALUE;
+	private static final long NULL_LONG = Long.MIN_VALUE;
+
+	private final RedisValueCodec codec;
+	private final RedisSerializer<Object> jdkSerializer = RedisSerializer.java();
+	private final AtomicLong legacyReadCount = new AtomicLong();
+
+	protected BinaryRedisSerializer(RedisValueCodec codec) {
+		this.codec = codec;
+	}
+
+	protected abstract Class<T> type();
+
+	// exact encoded size of the fields, excluding the version byte
+	protected abstract int size(T value);
+
+	protected abstract void write(ByteBuffer buffer, T value);
+
+	protected abstract T read(ByteBuffer buffer, byte version);
+
+	protected byte version() {
+		return 1;
+	}
+
+	public long getLegacyReadCount() {
+		return legacyReadCount.get();
+	}
+
+	@Override
+	public byte[] serialize(T value) throws SerializationException {
+		if(value == null) return null;
+		if(codec == RedisValueCodec.JDK) return jdkSerializer.serialize(value);
+
+		ByteBuffer buffer = ByteBuffer.allocate(1+size(value));
+		buffer.put(version());
+		write(buffer, value);
+		return buffer.array();
+	}
+
+	@Override
+	public T deserialize(byte[] bytes) throws SerializationException {
+		if(bytes == null || bytes.length == 0) return null;
+		if(bytes.length > 1 && bytes[0] == JDK_MAGIC_0 && bytes[1] == JDK_MAGIC_1) {
+			legacyReadCount.incrementAndGet();
+			return type().cast(jdkSerializer.deserialize(bytes));
+		}
+		byte version = bytes[0];
+		if(version < 1 || version > version())
+			throw new SerializationException("Unknown "+type().getSimpleName()+" encoding version: "+version);
+		try {
+			ByteBuffer buffer = ByteBuffer.wrap(bytes, 1, bytes.length-1);
+			return read(buffer, version);
+		} catch(BufferUnderflowException e) {
+			throw new SerializationException("Truncated "+type().getSimpleName()+" value", e);
+		}
+	}
+
+	@Override
+	public Class<?> getTargetType() {
+		return type();
+	}
+
+	protected static void putDouble(ByteBuffer buffer, Double value) {
+		buffer.putDouble(value == null ? Double.NaN : value);
+	}
+
+	protected static Double getDouble(ByteBuffer buffer) {
+		double value = buffer.getDouble();
+		return Double.isNaN(value) ? null : value;
+	}
+
+	protected static void putInt(ByteBuffer buffer, Integer value) {
+		buffer.putInt(value == null ? NULL_INT : value);
+	}
+
+	protected static Integer getInt(ByteBuffer buffer) {
+		int value = buffer.getInt();
+		return value == NULL_INT ? null : value;
+	}
+
+	protected static void putLong(ByteBuffer buffer, Long value) {
+		buffer.putLong(value == null ? NULL_LONG : value);
+	}
+
+	protected static Long getLong(ByteBuffer buffer) {
+		long value = buffer.getLong();
+		return value == NULL_LONG ? null : value;
+	}
+
+	protected static void putDate(ByteBuffer buffer, LocalDate value) {
+		buffer.putInt(value == null ? NULL_INT : (int) value.toEpochDay());
+	}
+
+	protected static LocalDate getDate(ByteBuffer buffer) {
+		int value = buffer.getInt();
+		return value == NULL_INT ? null : LocalDate.ofEpochDay(value);
+	}
+
+	protected static int sizeOf(String value) {
+		return Integer.BYTES+(value == null ? 0 : value.getBytes(StandardCharsets.UTF_8).length);
+	}
+
+	protected static void putString(ByteBuffer buffer, String value) {
+		if(value == null) {
+			buffer.putInt(-1);
+			return;
+		}
+		byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+		buffer.putInt(bytes.length);
+		buffer.put(bytes);
+	}
+
+	protected static String getString(ByteBuffer buffer) {
+		int length = buffer.getInt();
+		if(length < 0) return null;
+		if(length > buffer.remaining()) throw new BufferUnderflowException();
+		String value = new String(buffer.array(), buffer.arrayOffset()+buffer.position(), length, StandardCharsets.UTF_8);
+		buffer.position(buffer.position()+length);
+		return value;
+	}
+
+	protected static int sizeOf(byte[] value) {
+		return Integer.BYTES+(value == null ? 0 : value.length);
+	}
+
+	protected static void putBytes(ByteBuffer buffer, byte[] value) {
+		buffer.putInt(value == null ? -1 : value.length);
+		if(value != null) buffer.put(value);
+	}
+
+	protected static byte[] getBytes(ByteBuffer buffer) {
+		int length = buffer.getInt();
+		if(length < 0) return null;
+		if(length > buffer.remaining()) throw new BufferUnderflowException();
+		byte[] value = new byte[length];
+		buffer.get(value);
+		return value;
+	}
+}
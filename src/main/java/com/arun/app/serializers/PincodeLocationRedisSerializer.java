@@ -0,0 +1,42 @@
+package com.arun.app.serializers;
+
+import java.nio.ByteBuffer;
+
+import com.arun.app.models.PincodeLocation;
+
+public class PincodeLocationRedisSerializer extends BinaryRedisSerializer<PincodeLocation> {
+
+	public PincodeLocationRedisSerializer(RedisValueCodec codec) {
+		super(codec);
+	}
+
+	@Override
+	protected Class<PincodeLocation> type() {
+		return PincodeLocation.class;
+	}
+
+	@Override
+	protected int size(PincodeLocation value) {
+		return sizeOf(value.getPincode())+sizeOf(value.getName())+2*Double.BYTES+sizeOf(value.getCountry());
+	}
+
+	@Override
+	protected void write(ByteBuffer buffer, PincodeLocation value) {
+		putString(buffer, value.getPincode());
+		putString(buffer, value.getName());
+		putDouble(buffer, value.getLatitude());
+		putDouble(buffer, value.getLongitude());
+		putString(buffer, value.getCountry());
+	}
+
+	@Override
+	protected PincodeLocation read(ByteBuffer buffer, byte version) {
+		PincodeLocation pincodeLocation = new PincodeLocation();
+		pincodeLocation.setPincode(getString(buffer));
+		pincodeLocation.setName(getString(buffer));
+		pincodeLocation.setLatitude(getDouble(buffer));
+		pincodeLocation.setLongitude(getDouble(buffer));
+		pincodeLocation.setCountry(getString(buffer));
+		return pincodeLocation;
+	}
+}
@@ -0,0 +1,7 @@
+package com.arun.app.serializers;
+
+// Encoding used when writing redis values; both are always readable
+public enum RedisValueCodec {
+	BINARY,
+	JDK
+}
@@ -0,0 +1,57 @@
+package com.arun.app.serializers;
+
+import java.nio.ByteBuffer;
+
+import com.arun.app.dtos.WeatherDataDto;
+
+// same layout as WeatherDataRedisSerializer with the pincode in front and the fetch time at the end
+public class WeatherDataDtoRedisSerializer extends BinaryRedisSerializer<WeatherDataDto> {
+	private static final int SIZE = 4*Double.BYTES+2*Integer.BYTES+Long.BYTES;
+
+	public WeatherDataDtoRedisSerializer(RedisValueCodec codec) {
+		super(codec);
+	}
+
+	@Override
+	protected Class<WeatherDataDto> type() {
+		return WeatherDataDto.class;
+	}
+
+	@Override
+	protected byte version() {
+		return 3;
+	}
+
+	@Override
+	protected int size(WeatherDataDto value) {
+		return sizeOf(value.getPincode())+SIZE+sizeOf(value.getHourly());
+	}
+
+	@Override
+	protected void write(ByteBuffer buffer, WeatherDataDto value) {
+		putString(buffer, value.getPincode());
+		putDouble(buffer, value.getLatitude());
+		putDouble(buffer, value.getLongitude());
+		putDate(buffer, value.getDate());
+		putDouble(buffer, value.getTemperature());
+		putInt(buffer, value.getHumidity());
+		putDouble(buffer, value.getWindSpeed());
+		putBytes(buffer, value.getHourly());
+		putLong(buffer, value.getFetchedAt());
+	}
+
+	@Override
+	protected WeatherDataDto read(ByteBuffer buffer, byte version) {
+		WeatherDataDto dto = new WeatherDataDto();
+		dto.setPincode(getString(buffer));
+		dto.setLatitude(getDouble(buffer));
+		dto.setLongitude(getDouble(buffer));
+		dto.setDate(getDate(buffer));
+		dto.setTemperature(getDouble(buffer));
+		dto.setHumidity(getInt(buffer));
+		dto.setWindSpeed(getDouble(buffer));
+		if(version >= 2) dto.setHourly(getBytes(buffer));
+		if(version >= 3) dto.setFetchedAt(getLong(buffer));
+		return dto;
+	}
+}
@@ -0,0 +1,56 @@
+package com.arun.app.serializers;
+
+import java.nio.ByteBuffer;
+
+import com.arun.app.models.WeatherData;
+
+/*
+ * latitude, longitude, epoch day, temperature, humidity, wind speed: 41 bytes with the version
+ * byte. Version 2 appends the length-prefixed hourly series (120 bytes).
+ */
+public class WeatherDataRedisSerializer extends BinaryRedisSerializer<WeatherData> {
+	private static final int SIZE = 4*Double.BYTES+2*Integer.BYTES;
+
+	public WeatherDataRedisSerializer(RedisValueCodec codec) {
+		super(codec);
+	}
+
+	@Override
+	protected Class<WeatherData> type() {
+		return WeatherData.class;
+	}
+
+	@Override
+	protected byte version() {
+		return 2;
+	}
+
+	@Override
+	protected int size(WeatherData value) {
+		return SIZE+sizeOf(value.getHourly());
+	}
+
+	@Override
+	protected void write(ByteBuffer buffer, WeatherData value) {
+		putDouble(buffer, value.getLatitude());
+		putDouble(buffer, value.getLongitude());
+		putDate(buffer, value.getDate());
+		putDouble(buffer, value.getTemperature());
+		putInt(buffer, value.getHumidity());
+		putDouble(buffer, value.getWindSpeed());
+		putBytes(buffer, value.getHourly());
+	}
+
+	@Override
+	protected WeatherData read(ByteBuffer buffer, byte version) {
+		WeatherData weatherData = new WeatherData();
+		weatherData.setLatitude(getDouble(buffer));
+		weatherData.setLongitude(getDouble(buffer));
+		weatherData.setDate(getDate(buffer));
+		weatherData.setTemperature(getDouble(buffer));
+		weatherData.setHumidity(getInt(buffer));
+		weatherData.setWindSpeed(getDouble(buffer));
+		if(version >= 2) weatherData.setHourly(getBytes(buffer));
+		return weatherData;
+	}
+}
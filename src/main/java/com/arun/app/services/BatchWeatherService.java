@@ -0,0 +1,106 @@
+package com.arun.app.services;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.arun.app.dtos.BatchWeatherDto;
+import com.arun.app.dtos.WeatherDataDto;
+import com.arun.app.models.PincodeLocation;
+import com.arun.app.models.WeatherData;
+
+@Service
+public class BatchWeatherService implements IBatchWeatherService {
+	private final PincodeLocationService pincodeLocationService;
+	private final WeatherDataService weatherDataService;
+	private final ExecutorService upstreamExecutor;
+	
+	@Value("${BATCH_MAX_PINCODES:100}")
+	private int maxPincodes;
+	
+	public BatchWeatherService(PincodeLocationService pincodeLocationService, WeatherDataService weatherDataService,
+			ExecutorService upstreamExecutor) {
+		this.pincodeLocationService = pincodeLocationService;
+		this.weatherDataService = weatherDataService;
+		this.upstreamExecutor = upstreamExecutor;
+	}
+	
+	@Override
+	public List<BatchWeatherDto> getWeather(List<String> pincodes, LocalDate date) {
+		if(pincodes == null || pincodes.isEmpty())
+			throw new IllegalArgumentException("Enter at least one pincode");
+		if(pincodes.size() > maxPincodes)
+			throw new IllegalArgumentException("At most "+maxPincodes+" pincodes are allowed per request");
+		
+		List<String> distinctPincodes = pincodes.stream().distinct().toList();
+		Map<String, String> errors = new HashMap<>();
+		Map<String, PincodeLocation> locations = new LinkedHashMap<>(
+				pincodeLocationService.getPincodeLocations(distinctPincodes));
+		resolveMissingLocations(distinctPincodes, locations, errors);
+		
+		Map<String, WeatherData> weather = new HashMap<>(
+				weatherDataService.getCachedWeather(locations.values(), date));
+		List<PincodeLocation> misses = locations.values().stream()
+				.filter(location -> !weather.containsKey(WeatherDataService.locationKey(location)))
+				.toList();
+		String fetchError = null;
+		if(!misses.isEmpty()) {
+			try {
+				weather.putAll(weatherDataService.fetchWeather(misses, date));
+			} catch(Exception e) {
+				fetchError = e.getMessage();
+				// current weather falls back to the last known values, flagged stale
+				if(date.equals(LocalDate.now()))
+					weather.putAll(weatherDataService.getLastKnownWeather(misses));
+			}
+		}
+		
+		List<BatchWeatherDto> result = new ArrayList<>();
+		for(String pincode : pincodes) {
+			PincodeLocation location = locations.get(pincode);
+			WeatherData weatherData = location == null ? null : weather.get(WeatherDataService.locationKey(location));
+			if(weatherData != null)
+				result.add(BatchWeatherDto.get(pincode, WeatherDataDto.get(weatherData, pincode)));
+			else if(errors.containsKey(pincode))
+				result.add(BatchWeatherDto.error(pincode, errors.get(pincode)));
+			else
+				result.add(BatchWeatherDto.error(pincode, fetchError != null ? fetchError 
+						: "No weather data found for pincode: "+pincode+", date: "+date));
+		}
+		return result;
+	}
+	
+	// Geocoding has no multi-pincode lookup, so the remaining pincodes are resolved concurrently.
+	private void resolveMissingLocations(List<String> pincodes, Map<String, PincodeLocation> locations,
+			Map<String, String> errors) {
+		Map<String, CompletableFuture<PincodeLocation>> lookups = new LinkedHashMap<>();
+		for(String pincode : pincodes) {
+			if(locations.containsKey(pincode)) continue;
+			lookups.put(pincode, CompletableFuture.supplyAsync(() -> {
+				try {
+					return pincodeLocationService.getPincodeLocation(pincode);
+				} catch(Exception e) {
+					throw new CompletionException(e);
+				}
+			}, upstreamExecutor));
+		}
+		
+		lookups.forEach((pincode, lookup) -> {
+			try {
+				locations.put(pincode, lookup.join());
+			} catch(CompletionException e) {
+				Throwable cause = e.getCause() != null ? e.getCause() : e;
+				errors.put(pincode, cause.getMessage());
+			}
+		});
+	}
+}
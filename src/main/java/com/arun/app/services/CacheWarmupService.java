@@ -0,0 +1,146 @@
+package com.arun.app.services;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.stereotype.Service;
+
+import com.arun.app.dtos.CacheWarmupDto;
+import com.arun.app.models.PincodeLocation;
+import com.arun.app.models.WeatherData;
+import com.arun.app.repositories.PincodeLocationRepo;
+import com.arun.app.repositories.WeatherDataRepo;
+import com.arun.app.repositories.WeatherDataView;
+import com.arun.app.utils.TierMetrics;
+import com.github.benmanes.caffeine.cache.Cache;
+
+/*
+ * Fills redis and the local pincode cache from Postgres at startup, so the first requests after a
+ * deploy or a redis restart do not all miss. The newest pincodes (by id, no access times are kept)
+ * and the rows of the last WARMUP_WEATHER_DAYS (by location and date, as WeatherDataView) are read
+ * in keyset pages and each page is written with one MSET. Spring Boot reports readiness once all
+ * application runners have returned, so traffic is taken after the warm-up finished or
+ * WARMUP_TIMEOUT passed (checked between pages); whatever is not warm by then is loaded on demand
+ * as before.
+ */
+@Service
+public class CacheWarmupService implements ICacheWarmupService, ApplicationRunner {
+	private static final String PINCODE_KEY_PREFIX = "pincode:";
+
+	private final PincodeLocationRepo pincodeLocationRepo;
+	private final WeatherDataRepo weatherDataRepo;
+	private final RedisTemplate<String, PincodeLocation> pincodeRedis;
+	private final RedisTemplate<String, WeatherData> weatherRedis2;
+	private final Cache<String, PincodeLocation> pincodeLocalCache;
+	private final TierMetrics tierMetrics;
+	private final boolean enabled;
+	private final int maxPincodes;
+	private final int weatherDays;
+	private final int maxWeatherRows;
+	private final int pageSize;
+	private final Duration timeout;
+
+	Logger logger = LoggerFactory.getLogger(CacheWarmupService.class);
+
+	public CacheWarmupService(PincodeLocationRepo pincodeLocationRepo, WeatherDataRepo weatherDataRepo,
+			RedisTemplate<String, PincodeLocation> pincodeRedis, RedisTemplate<String, WeatherData> weatherRedis2,
+			Cache<String, PincodeLocation> pincodeLocalCache, TierMetrics tierMetrics,
+			@Value("${WARMUP_ENABLED:true}") boolean enabled,
+			@Value("${WARMUP_PINCODES:10000}") int maxPincodes,
+			@Value("${WARMUP_WEATHER_DAYS:7}") int weatherDays,
+			@Value("${WARMUP_WEATHER_ROWS:50000}") int maxWeatherRows,
+			@Value("${WARMUP_PAGE_SIZE:1000}") int pageSize,
+			@Value("${WARMUP_TIMEOUT:60s}") Duration timeout) {
+		this.pincodeLocationRepo = pincodeLocationRepo;
+		this.weatherDataRepo = weatherDataRepo;
+		this.pincodeRedis = pincodeRedis;
+		this.weatherRedis2 = weatherRedis2;
+		this.pincodeLocalCache = pincodeLocalCache;
+		this.tierMetrics = tierMetrics;
+		this.enabled = enabled;
+		this.maxPincodes = maxPincodes;
+		this.weatherDays = weatherDays;
+		this.maxWeatherRows = maxWeatherRows;
+		this.pageSize = pageSize;
+		this.timeout = timeout;
+	}
+
+	@Override
+	public void run(ApplicationArguments args) {
+		if(enabled) warmUp();
+	}
+
+	@Override
+	public CacheWarmupDto warmUp() {
+		CacheWarmupDto result = new CacheWarmupDto();
+		long start = System.currentTimeMillis();
+		long deadline = start+timeout.toMillis();
+		try {
+			result.setComplete(warmPincodes(result, deadline) && warmWeather(result, deadline));
+		} catch(RuntimeException e) {
+			logger.warn("Cache warm-up stopped: {}", e.getMessage());
+		}
+		result.setElapsedMillis(System.currentTimeMillis()-start);
+		logger.info("Cache warm-up {}: {} pincodes and {} weather rows in {} ms", result.isComplete() ? "finished" : "cut short",
+				result.getPincodes(), result.getWeatherRows(), result.getElapsedMillis());
+		return result;
+	}
+
+	// false when the deadline passed first
+	private boolean warmPincodes(CacheWarmupDto result, long deadline) {
+		long lastId = Long.MAX_VALUE;
+		while(result.getPincodes() < maxPincodes) {
+			if(System.currentTimeMillis() > deadline) return false;
+			int limit = (int) Math.min(pageSize, maxPincodes-result.getPincodes());
+			long before = lastId;
+			List<PincodeLocation> page = tierMetrics.time(TierMetrics.POSTGRES, "pincode", "warmup-page",
+					() -> pincodeLocationRepo.findByIdLessThanOrderByIdDesc(before, Limit.of(limit)));
+			if(page.isEmpty()) break;
+
+			Map<String, PincodeLocation> redisValues = new HashMap<>();
+			for(PincodeLocation pincodeLocation : page) {
+				redisValues.put(PINCODE_KEY_PREFIX+pincodeLocation.getPincode(), pincodeLocation);
+				pincodeLocalCache.put(pincodeLocation.getPincode(), pincodeLocation);
+			}
+			tierMetrics.time(TierMetrics.REDIS, "pincode", "warmup-multiset", () -> pincodeRedis.opsForValue().multiSet(redisValues));
+			result.setPincodes(result.getPincodes()+page.size());
+			lastId = page.get(page.size()-1).getId();
+			if(page.size() < limit) break;
+		}
+		return true;
+	}
+
+	private boolean warmWeather(CacheWarmupDto result, long deadline) {
+		LocalDate from = LocalDate.now().minusDays(weatherDays);
+		WeatherDataView last = null;
+		while(result.getWeatherRows() < maxWeatherRows) {
+			if(System.currentTimeMillis() > deadline) return false;
+			int limit = (int) Math.min(pageSize, maxWeatherRows-result.getWeatherRows());
+			WeatherDataView after = last;
+			List<WeatherDataView> page = tierMetrics.time(TierMetrics.POSTGRES, "weather-data", "warmup-page", () -> after == null
+					? weatherDataRepo.findViewsFrom(from, Limit.of(limit))
+					: weatherDataRepo.findViewsFromAfter(from, after.getLatitude(), after.getLongitude(), after.getDate(), Limit.of(limit)));
+			if(page.isEmpty()) break;
+
+			Map<String, WeatherData> redisValues = new HashMap<>();
+			for(WeatherDataView row : page)
+				redisValues.put(WeatherDataService.oldWeatherKey(
+						WeatherDataService.locationKey(row.getLatitude(), row.getLongitude()), row.getDate()), row.toWeatherData());
+			tierMetrics.time(TierMetrics.REDIS, "old-weather", "warmup-multiset", () -> weatherRedis2.opsForValue().multiSet(redisValues));
+			result.setWeatherRows(result.getWeatherRows()+page.size());
+			last = page.get(page.size()-1);
+			if(page.size() < limit) break;
+		}
+		return true;
+	}
+}
@@ -0,0 +1,10 @@
+package com.arun.app.services;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import com.arun.app.dtos.BatchWeatherDto;
+
+public interface IBatchWeatherService {
+	List<BatchWeatherDto> getWeather(List<String> pincodes, LocalDate date) throws Exception;
+}
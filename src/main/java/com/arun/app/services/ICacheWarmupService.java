@@ -0,0 +1,7 @@
+package com.arun.app.services;
+
+import com.arun.app.dtos.CacheWarmupDto;
+
+public interface ICacheWarmupService {
+	CacheWarmupDto warmUp();
+}
@@ -0,0 +1,9 @@
+package com.arun.app.services;
+
+import java.nio.file.Path;
+
+import com.arun.app.dtos.PincodeImportDto;
+
+public interface IPincodeImportService {
+	PincodeImportDto importCsv(Path csvFile) throws Exception;
+}
@@ -4,6 +4,7 @@ import com.arun.app.models.PincodeLocation;
 
 public interface IPincodeLocationService {
 		PincodeLocation getPincodeLocation(String pincode) throws Exception;
+		PincodeLocation getNearestPincodeLocation(double latitude, double longitude);
 		PincodeLocation createPincodeLocation(PincodeLocation pincodeLocation) throws Exception;
 		PincodeLocation updatePincodeLocation(PincodeLocation pincodeLocation) throws Exception;
 		PincodeLocation jsonToPincodeLocation(String jsonResponse) throws Exception;
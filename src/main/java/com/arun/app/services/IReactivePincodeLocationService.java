@@ -0,0 +1,10 @@
+package com.arun.app.services;
+
+import com.arun.app.models.PincodeLocation;
+
+import reactor.core.publisher.Mono;
+
+public interface IReactivePincodeLocationService {
+		Mono<PincodeLocation> getPincodeLocation(String pincode);
+		Mono<PincodeLocation> getPincodeLocationUsingAPI(String pincode);
+}
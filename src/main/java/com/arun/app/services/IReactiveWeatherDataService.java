@@ -0,0 +1,12 @@
+package com.arun.app.services;
+
+import java.time.LocalDate;
+
+import com.arun.app.models.WeatherData;
+
+import reactor.core.publisher.Mono;
+
+public interface IReactiveWeatherDataService {
+	Mono<WeatherData> getCurrentWeather(String pincode);
+	Mono<WeatherData> getOldWeather(String pincode, LocalDate date);
+}
@@ -2,13 +2,17 @@ package com.arun.app.services;
 
 import java.time.LocalDate;
 import java.util.Date;
+import java.util.stream.Stream;
 
 import com.arun.app.models.PincodeLocation;
 import com.arun.app.models.WeatherData;
 
 public interface IWeatherDataService {
 	WeatherData getCurrentWeather(String pincode) throws Exception;
+	WeatherData getCurrentWeather(String pincode, int hour) throws Exception;
 	WeatherData getOldWeather(String pincode, LocalDate date) throws Exception;
+	WeatherData getOldWeather(String pincode, LocalDate date, int hour) throws Exception;
+	Stream<WeatherData> getWeatherHistory(String pincode, LocalDate from, LocalDate to) throws Exception;
 	WeatherData createOldWeather(WeatherData weatherData);
 	WeatherData jsonToWeatherData(String jsonResponse) throws Exception;
 	
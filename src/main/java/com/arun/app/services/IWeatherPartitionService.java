@@ -0,0 +1,11 @@
+package com.arun.app.services;
+
+import java.time.LocalDate;
+import java.util.Collection;
+
+public interface IWeatherPartitionService {
+	void ensurePartitions(Collection<LocalDate> dates);
+	boolean isRetained(LocalDate date);
+	int dropExpired();
+	void maintain();
+}
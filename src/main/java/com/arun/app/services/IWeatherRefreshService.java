@@ -0,0 +1,6 @@
+package com.arun.app.services;
+
+public interface IWeatherRefreshService {
+	int refreshDue();
+	void decay();
+}
@@ -0,0 +1,15 @@
+package com.arun.app.services;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.Collection;
+import java.util.List;
+
+import com.arun.app.dtos.WeatherSummaryDto;
+
+public interface IWeatherRollupService {
+	void markChanged(Collection<LocalDate> dates);
+	int refreshChanged();
+	int refresh(YearMonth month);
+	List<WeatherSummaryDto> getSummary(String pincode, YearMonth from, YearMonth to) throws Exception;
+}
@@ -0,0 +1,250 @@
+package com.arun.app.services;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.arun.app.dtos.PincodeImportDto;
+import com.arun.app.models.ModelStatus;
+import com.arun.app.models.PincodeLocation;
+import com.arun.app.utils.IdSequence;
+import com.arun.app.utils.PincodeSpatialIndex;
+
+/*
+ * Streams a pincode CSV (the India Post directory or any file with pincode, name, latitude and
+ * longitude columns) into pincode_locations with one JDBC batch per transaction. Progress is
+ * checkpointed after each committed batch, so a rerun resumes where the last one stopped; rows
+ * whose pincode is already stored are skipped by the insert itself. Ids are taken from the pooled
+ * sequence of the entities, a block per batch.
+ */
+@Service
+public class PincodeImportService implements IPincodeImportService, ApplicationRunner {
+	private static final String STRING_KEY_PREFIX = "pincode:";
+	private static final String DEFAULT_COUNTRY = "IN";
+	private static final String INSERT_SQL = "INSERT INTO pincode_locations "
+			+ "(id, pincode, name, latitude, longitude, country, status, created_at, modified_at) "
+			+ "SELECT ?, ?, ?, ?, ?, ?, ?, ?, ? "
+			+ "WHERE NOT EXISTS (SELECT 1 FROM pincode_locations WHERE pincode = ?)";
+	private static final int REPORT_EVERY_BATCHES = 10;
+
+	private final JdbcTemplate jdbcTemplate;
+	private final TransactionTemplate transactionTemplate;
+	private final RedisTemplate<String, PincodeLocation> pincodeRedis;
+	private final PincodeSpatialIndex pincodeSpatialIndex;
+	private final IdSequence idSequence;
+	private final String importFile;
+	private final int batchSize;
+	private final boolean warmRedis;
+
+	Logger logger = LoggerFactory.getLogger(PincodeImportService.class);
+
+	public PincodeImportService(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+			RedisTemplate<String, PincodeLocation> pincodeRedis, PincodeSpatialIndex pincodeSpatialIndex, IdSequence idSequence,
+			@Value("${PINCODE_IMPORT_FILE:}") String importFile,
+			@Value("${PINCODE_IMPORT_BATCH_SIZE:1000}") int batchSize,
+			@Value("${PINCODE_IMPORT_WARM_REDIS:true}") boolean warmRedis) {
+		this.jdbcTemplate = jdbcTemplate;
+		this.transactionTemplate = new TransactionTemplate(transactionManager);
+		this.pincodeRedis = pincodeRedis;
+		this.pincodeSpatialIndex = pincodeSpatialIndex;
+		this.idSequence = idSequence;
+		this.importFile = importFile;
+		this.batchSize = batchSize;
+		this.warmRedis = warmRedis;
+	}
+
+	@Override
+	public void run(ApplicationArguments args) throws Exception {
+		if(importFile == null || importFile.isBlank()) return;
+		importCsv(Path.of(importFile));
+	}
+
+	@Override
+	public PincodeImportDto importCsv(Path csvFile) throws IOException {
+		Path checkpointFile = csvFile.resolveSibling(csvFile.getFileName()+".checkpoint");
+		long resumeFrom = readCheckpoint(checkpointFile);
+		PincodeImportDto result = new PincodeImportDto();
+		result.setResumedFromRow(resumeFrom);
+		long start = System.currentTimeMillis();
+
+		try(BufferedReader reader = Files.newBufferedReader(csvFile, StandardCharsets.UTF_8)) {
+			String header = reader.readLine();
+			if(header == null) return result;
+			Columns columns = Columns.of(parseCsvLine(header));
+
+			Set<String> seen = new HashSet<>();
+			List<PincodeLocation> batch = new ArrayList<>(batchSize);
+			long row = 0;
+			int batches = 0;
+			String line;
+			while((line = reader.readLine()) != null) {
+				if(++row <= resumeFrom) continue;
+				result.setRowsRead(result.getRowsRead()+1);
+				PincodeLocation pincodeLocation = columns.toPincodeLocation(parseCsvLine(line));
+				// the postal directory lists one row per post office, so most pincodes repeat
+				if(pincodeLocation == null || !seen.add(pincodeLocation.getPincode()))
+					result.setRowsSkipped(result.getRowsSkipped()+1);
+				else
+					batch.add(pincodeLocation);
+
+				if(batch.size() >= batchSize) {
+					flush(batch, result, checkpointFile, row);
+					if(++batches % REPORT_EVERY_BATCHES == 0) report(result, start, false);
+				}
+			}
+			flush(batch, result, checkpointFile, row);
+		}
+		// rows another writer inserted through an identity default meanwhile must not be handed out again
+		if(result.getRowsInserted() > 0) idSequence.align();
+		result.setElapsedMillis(System.currentTimeMillis()-start);
+		report(result, start, true);
+		return result;
+	}
+
+	private void flush(List<PincodeLocation> batch, PincodeImportDto result, Path checkpointFile, long row)
+			throws IOException {
+		if(!batch.isEmpty()) {
+			Timestamp now = new Timestamp(System.currentTimeMillis());
+			int[] counts = transactionTemplate.execute(status -> {
+				long[] ids = idSequence.allocate(batch.size());
+				List<Object[]> args = new ArrayList<>(batch.size());
+				for(int i = 0; i < batch.size(); i++) {
+					PincodeLocation p = batch.get(i);
+					args.add(new Object[] {ids[i], p.getPincode(), p.getName(), p.getLatitude(), p.getLongitude(),
+							p.getCountry(), ModelStatus.ACTIVE.ordinal(), now, now, p.getPincode()});
+				}
+				return jdbcTemplate.batchUpdate(INSERT_SQL, args);
+			});
+			long inserted = 0;
+			for(int count : counts == null ? new int[0] : counts)
+				if(count != 0) inserted++;
+			result.setRowsInserted(result.getRowsInserted()+inserted);
+			result.setRowsSkipped(result.getRowsSkipped()+batch.size()-inserted);
+			// rows skipped as already stored are indexed as well; the stored coordinates win on the next startup
+			pincodeSpatialIndex.putAll(batch);
+
+			if(warmRedis) {
+				Map<String, PincodeLocation> redisValues = new HashMap<>();
+				for(PincodeLocation pincodeLocation : batch)
+					redisValues.put(STRING_KEY_PREFIX+pincodeLocation.getPincode(), pincodeLocation);
+				try {
+					pincodeRedis.opsForValue().multiSet(redisValues);
+				} catch(RuntimeException e) {
+					logger.warn("Skipping redis warm-up for {} pincodes: {}", batch.size(), e.getMessage());
+				}
+			}
+			batch.clear();
+		}
+		Files.writeString(checkpointFile, Long.toString(row));
+	}
+
+	private void report(PincodeImportDto result, long start, boolean done) {
+		long elapsed = Math.max(1, System.currentTimeMillis()-start);
+		logger.info("Pincode import {}: {} rows read, {} inserted, {} skipped, {} rows/s",
+				done ? "finished" : "progress", result.getRowsRead(), result.getRowsInserted(),
+				result.getRowsSkipped(), result.getRowsRead()*1000/elapsed);
+	}
+
+	private static long readCheckpoint(Path checkpointFile) throws IOException {
+		if(!Files.exists(checkpointFile)) return 0;
+		String value = Files.readString(checkpointFile).trim();
+		return value.isEmpty() ? 0 : Long.parseLong(value);
+	}
+
+	// RFC 4180 fields: commas inside double quotes, "" for a literal quote
+	static List<String> parseCsvLine(String line) {
+		List<String> fields = new ArrayList<>();
+		StringBuilder field = new StringBuilder();
+		boolean quoted = false;
+		for(int i = 0; i < line.length(); i++) {
+			char c = line.charAt(i);
+			if(quoted) {
+				if(c == '"' && i+1 < line.length() && line.charAt(i+1) == '"') {
+					field.append('"');
+					i++;
+				}
+				else if(c == '"') quoted = false;
+				else field.append(c);
+			}
+			else if(c == '"') quoted = true;
+			else if(c == ',') {
+				fields.add(field.toString().trim());
+				field.setLength(0);
+			}
+			else field.append(c);
+		}
+		fields.add(field.toString().trim());
+		return fields;
+	}
+
+	private record Columns(int pincode, int name, int latitude, int longitude, int country) {
+
+		static Columns of(List<String> header) {
+			Map<String, Integer> index = new HashMap<>();
+			for(int i = 0; i < header.size(); i++)
+				index.putIfAbsent(header.get(i).toLowerCase(Locale.ROOT).replace("\uFEFF", ""), i);
+			Columns columns = new Columns(find(index, "pincode", "zip"), find(index, "name", "officename", "office_name"),
+					find(index, "latitude", "lat"), find(index, "longitude", "lon", "lng"), find(index, "country"));
+			if(columns.pincode < 0 || columns.latitude < 0 || columns.longitude < 0)
+				throw new IllegalArgumentException("CSV header needs pincode, latitude and longitude columns: "+header);
+			return columns;
+		}
+
+		private static int find(Map<String, Integer> index, String... names) {
+			for(String name : names)
+				if(index.containsKey(name)) return index.get(name);
+			return -1;
+		}
+
+		// null for rows without a usable pincode or coordinates (the directory uses "NA")
+		PincodeLocation toPincodeLocation(List<String> fields) {
+			String pincode = get(fields, this.pincode);
+			Double lat = coordinate(get(fields, latitude));
+			Double lon = coordinate(get(fields, longitude));
+			if(pincode == null || pincode.isEmpty() || lat == null || lon == null) return null;
+			
+			PincodeLocation pincodeLocation = new PincodeLocation();
+			pincodeLocation.setPincode(pincode);
+			pincodeLocation.setName(get(fields, name));
+			pincodeLocation.setLatitude(lat);
+			pincodeLocation.setLongitude(lon);
+			String country = get(fields, this.country);
+			pincodeLocation.setCountry(country == null || country.isEmpty() ? DEFAULT_COUNTRY : country);
+			return pincodeLocation;
+		}
+
+		private static Double coordinate(String value) {
+			try {
+				double coordinate = Double.parseDouble(value);
+				return Double.isFinite(coordinate) ? coordinate : null;
+			} catch(NumberFormatException | NullPointerException e) {
+				return null;
+			}
+		}
+
+		private static String get(List<String> fields, int index) {
+			return index < 0 || index >= fields.size() ? null : fields.get(index);
+		}
+	}
+}
@@ -1,8 +1,19 @@
 package com.arun.app.services;
 
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.data.redis.serializer.Jackson2JsonRedisSerializer;
 import org.springframework.data.redis.serializer.StringRedisSerializer;
@@ -12,46 +23,219 @@ import org.springframework.web.client.RestTemplate;
 
 import com.arun.app.models.PincodeLocation;
 import com.arun.app.repositories.PincodeLocationRepo;
+import com.arun.app.repositories.PincodePointView;
+import com.arun.app.utils.PincodeFormat;
+import com.arun.app.utils.PincodeSpatialIndex;
+import com.arun.app.utils.RedisBatcher;
+import com.arun.app.utils.RequestCoalescer;
+import com.arun.app.utils.TierMetrics;
+import com.arun.app.utils.UpstreamGuard;
+import com.arun.app.utils.UpstreamGuards;
+import com.arun.app.utils.WeatherJsonParser;
+import com.arun.app.utils.WriteBehindQueue;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.JsonMappingException;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+
+import lombok.Getter;
 
 @Service
-public class PincodeLocationService implements IPincodeLocationService{
+public class PincodeLocationService implements IPincodeLocationService, ApplicationRunner {
 	private static final String STRING_KEY_PREFIX = "pincode:";
+	private static final String METRIC_NAME = "pincode";
+	private static final String MISSING_METRIC_NAME = "pincode-missing";
+	private static final int INDEX_LOAD_PAGE_SIZE = 5000;
 	private final PincodeLocationRepo pincodeLocationRepo;
 	private final RestTemplate restTemplate;
 	private final RedisTemplate<String, PincodeLocation> pincodeRedis;
+	private final RedisBatcher<PincodeLocation> pincodeRedisBatcher;
+	private final Cache<String, PincodeLocation> pincodeLocalCache;
+	private final Cache<String, Boolean> pincodeNegativeCache;
+	private final PincodeSpatialIndex pincodeSpatialIndex;
+	private final TierMetrics tierMetrics;
+	private final UpstreamGuard geocodingGuard;
+	private final WriteBehindQueue<PincodeLocation> pincodeLocationWriteBehind;
+	@Value("${PINCODE_INDEX_LOAD:true}")
+	private boolean loadIndex;
+	@Value("${NEAREST_PINCODE_MAX_KM:25}")
+	private double nearestMaxKm;
+	@Value("${PINCODE_NEGATIVE_TTL:1h}")
+	private Duration negativeTtl;
+	@Getter
+	private final RequestCoalescer<String, PincodeLocation> geoCodingCoalescer = new RequestCoalescer<>(PincodeLocation::copy);
 	
 	public PincodeLocationService(PincodeLocationRepo pincodeLocationRepo, RestTemplate restTemplate,
-			RedisTemplate<String, PincodeLocation> pincodeRedis) {
+			RedisTemplate<String, PincodeLocation> pincodeRedis, RedisBatcher<PincodeLocation> pincodeRedisBatcher,
+			Cache<String, PincodeLocation> pincodeLocalCache,
+			Cache<String, Boolean> pincodeNegativeCache, PincodeSpatialIndex pincodeSpatialIndex, TierMetrics tierMetrics,
+			UpstreamGuards upstreamGuards, WriteBehindQueue<PincodeLocation> pincodeLocationWriteBehind) {
 		this.pincodeLocationRepo = pincodeLocationRepo;
 		this.restTemplate = restTemplate;
 		this.pincodeRedis = pincodeRedis;
+		this.pincodeRedisBatcher = pincodeRedisBatcher;
+		this.pincodeLocalCache = pincodeLocalCache;
+		this.pincodeNegativeCache = pincodeNegativeCache;
+		this.pincodeSpatialIndex = pincodeSpatialIndex;
+		this.tierMetrics = tierMetrics;
+		this.geocodingGuard = upstreamGuards.geocoding();
+		this.pincodeLocationWriteBehind = pincodeLocationWriteBehind;
+	}
+	
+	Logger logger = LoggerFactory.getLogger(PincodeLocationService.class);
+	
+	// builds the spatial index from every stored pincode, one keyset page of ids and coordinates at a time
+	@Override
+	public void run(ApplicationArguments args) {
+		if(!loadIndex) return;
+		long start = System.currentTimeMillis();
+		long after = 0;
+		List<PincodePointView> page;
+		do {
+			page = pincodeLocationRepo.findPointsByIdGreaterThanOrderById(after, Limit.of(INDEX_LOAD_PAGE_SIZE));
+			for(PincodePointView point : page)
+				pincodeSpatialIndex.put(point.toPincodeLocation());
+			if(!page.isEmpty()) after = page.get(page.size()-1).getId();
+		} while(page.size() == INDEX_LOAD_PAGE_SIZE);
+		logger.info("Spatial pincode index built with {} pincodes in {} ms", pincodeSpatialIndex.size(),
+				System.currentTimeMillis()-start);
+	}
+	
+	// Served from the in-memory index only; pincodes geocoded or imported later are added as they are stored.
+	@Override
+	public PincodeLocation getNearestPincodeLocation(double latitude, double longitude) {
+		if(latitude < -90 || latitude > 90 || longitude < -180 || longitude > 180)
+			throw new IllegalArgumentException("Invalid coordinates: "+latitude+", "+longitude);
+		PincodeLocation pincodeLocation = pincodeSpatialIndex.nearest(latitude, longitude, nearestMaxKm);
+		if(pincodeLocation == null)
+			throw new IllegalArgumentException("No pincode found within "+nearestMaxKm+" km of "+latitude+", "+longitude);
+		return pincodeLocation;
 	}
 	
 	@Override
 	public PincodeLocation getPincodeLocation(String pincode) throws JsonMappingException, JsonProcessingException {
+		PincodeFormat.check(pincode);
+		PincodeLocation localPincodeLocation = pincodeLocalCache.getIfPresent(pincode);
+		tierMetrics.count(TierMetrics.LOCAL, METRIC_NAME, localPincodeLocation != null ? 1 : 0, localPincodeLocation != null ? 0 : 1);
+		if(localPincodeLocation != null)
+			return localPincodeLocation;
+		if(pincodeNegativeCache.getIfPresent(pincode) != null) {
+			tierMetrics.count(TierMetrics.LOCAL, MISSING_METRIC_NAME, 1, 0);
+			throw notFound(pincode);
+		}
+		
 		String redisKey = STRING_KEY_PREFIX + pincode;
-		PincodeLocation redisPincodeLocation = pincodeRedis.opsForValue().get(redisKey);
-		if(redisPincodeLocation != null)
+		PincodeLocation redisPincodeLocation = tierMetrics.lookup(TierMetrics.REDIS, METRIC_NAME,
+				() -> pincodeRedisBatcher.get(redisKey));
+		if(redisPincodeLocation != null) {
+			if(isTombstone(redisPincodeLocation)) {
+				pincodeNegativeCache.put(pincode, true);
+				throw notFound(pincode);
+			}
+			pincodeLocalCache.put(pincode, redisPincodeLocation);
 			return redisPincodeLocation;
+		}
 		
 		PincodeLocation pincodeLocationRes =  getPincodeLocationFromDb(pincode);
 		if(pincodeLocationRes != null) {
-			pincodeRedis.opsForValue().set(redisKey, pincodeLocationRes);
+			setPincodeLocation(redisKey, pincodeLocationRes);
+			pincodeLocalCache.put(pincode, pincodeLocationRes);
 			return pincodeLocationRes;
 		}
 		
 		pincodeLocationRes = getPincodeLocationUsingAPI(pincode);
-		pincodeRedis.opsForValue().set(redisKey, pincodeLocationRes);
+		setPincodeLocation(redisKey, pincodeLocationRes);
+		pincodeLocalCache.put(pincode, pincodeLocationRes);
 		return pincodeLocationRes;
 		
 	}
 	
+	private void setPincodeLocation(String redisKey, PincodeLocation pincodeLocation) {
+		tierMetrics.time(TierMetrics.REDIS, METRIC_NAME, "set", () -> pincodeRedisBatcher.set(redisKey, pincodeLocation, null));
+	}
+	
+	/*
+	 * A pincode the geocoding API answered 404 for is remembered in-process and as a tombstone under
+	 * its "pincode:" redis key (a location without coordinates) for PINCODE_NEGATIVE_TTL, so repeated
+	 * lookups of it fail without reaching the database or the API. Storing the tombstone under the
+	 * same key costs no extra redis round trip on lookups.
+	 */
+	private void rememberMissing(String pincode) {
+		pincodeNegativeCache.put(pincode, true);
+		try {
+			tierMetrics.time(TierMetrics.REDIS, MISSING_METRIC_NAME, "set",
+					() -> pincodeRedisBatcher.set(STRING_KEY_PREFIX + pincode, tombstone(pincode), negativeTtl));
+		} catch(RuntimeException e) {
+			// the caller still gets the 404, only other instances keep asking the API
+			logger.warn("Could not store tombstone for pincode {}: {}", pincode, e.getMessage());
+		}
+	}
+	
+	public static PincodeLocation tombstone(String pincode) {
+		PincodeLocation tombstone = new PincodeLocation();
+		tombstone.setPincode(pincode);
+		return tombstone;
+	}
+	
+	public static boolean isTombstone(PincodeLocation pincodeLocation) {
+		return pincodeLocation.getLatitude() == null && pincodeLocation.getLongitude() == null;
+	}
+	
+	public static IllegalArgumentException notFound(String pincode) {
+		return new IllegalArgumentException("Pincode: "+pincode+" not found");
+	}
+	
+	// Resolves whatever it can from the local cache, one redis MGET and one db query. 
+	// Pincodes missing from the returned map still need a geocoding call; malformed and 
+	// known-missing pincodes are left out too, so that call fails for them without any I/O.
+	public Map<String, PincodeLocation> getPincodeLocations(Collection<String> pincodes) {
+		List<String> candidates = pincodes.stream()
+				.filter(pincode -> PincodeFormat.isValid(pincode) && pincodeNegativeCache.getIfPresent(pincode) == null)
+				.toList();
+		Map<String, PincodeLocation> result = new HashMap<>(pincodeLocalCache.getAllPresent(candidates));
+		List<String> misses = candidates.stream().filter(pincode -> !result.containsKey(pincode)).toList();
+		tierMetrics.count(TierMetrics.LOCAL, METRIC_NAME, result.size(), misses.size());
+		if(misses.isEmpty()) return result;
+		
+		List<String> redisKeys = misses.stream().map(pincode -> STRING_KEY_PREFIX + pincode).toList();
+		List<PincodeLocation> redisPincodeLocations = tierMetrics.time(TierMetrics.REDIS, METRIC_NAME, "multiget",
+				() -> pincodeRedis.opsForValue().multiGet(redisKeys));
+		List<String> dbMisses = new ArrayList<>();
+		for(int i = 0; i < misses.size(); i++) {
+			PincodeLocation redisPincodeLocation = redisPincodeLocations == null ? null : redisPincodeLocations.get(i);
+			if(redisPincodeLocation != null && isTombstone(redisPincodeLocation))
+				pincodeNegativeCache.put(misses.get(i), true);
+			else if(redisPincodeLocation != null) {
+				result.put(misses.get(i), redisPincodeLocation);
+				pincodeLocalCache.put(misses.get(i), redisPincodeLocation);
+			}
+			else dbMisses.add(misses.get(i));
+		}
+		tierMetrics.count(TierMetrics.REDIS, METRIC_NAME, misses.size()-dbMisses.size(), dbMisses.size());
+		if(dbMisses.isEmpty()) return result;
+		
+		Map<String, PincodeLocation> fromDb = new HashMap<>();
+		List<PincodeLocation> rows = tierMetrics.time(TierMetrics.POSTGRES, METRIC_NAME, "multiget",
+				() -> pincodeLocationRepo.findByPincodeIn(dbMisses));
+		tierMetrics.count(TierMetrics.POSTGRES, METRIC_NAME, rows.size(), dbMisses.size()-rows.size());
+		for(PincodeLocation pincodeLocation : rows) {
+			fromDb.put(STRING_KEY_PREFIX + pincodeLocation.getPincode(), pincodeLocation);
+			result.put(pincodeLocation.getPincode(), pincodeLocation);
+			pincodeLocalCache.put(pincodeLocation.getPincode(), pincodeLocation);
+		}
+		if(!fromDb.isEmpty())
+			tierMetrics.time(TierMetrics.REDIS, METRIC_NAME, "multiset", () -> pincodeRedis.opsForValue().multiSet(fromDb));
+		return result;
+	}
+	
+	public CacheStats getLocalCacheStats() {
+		return pincodeLocalCache.stats();
+	}
+	
 	public PincodeLocation getPincodeLocationFromDb(String pincode) {
-		return pincodeLocationRepo.findByPincode(pincode);
+		return tierMetrics.lookup(TierMetrics.POSTGRES, METRIC_NAME, () -> pincodeLocationRepo.findByPincode(pincode));
 	}
 	
 	@Value("${GEO_CODING_API_URL}")
@@ -59,18 +243,24 @@ public class PincodeLocationService implements IPincodeLocationService{
 	@Value("${GEO_CODING_API_KEY}")
 	private String apiKey;
 	public PincodeLocation getPincodeLocationUsingAPI(String pincode) throws JsonMappingException, JsonProcessingException {
+		return geoCodingCoalescer.execute(pincode, () -> fetchPincodeLocation(pincode));
+	}
+	
+	private PincodeLocation fetchPincodeLocation(String pincode) throws JsonMappingException, JsonProcessingException {
 		String jsonResponse = null;
 		try {
-		 jsonResponse = restTemplate.getForObject(
+		 jsonResponse = geocodingGuard.call(() -> tierMetrics.time(TierMetrics.UPSTREAM, "geocoding", "call", () -> restTemplate.getForObject(
 				geoCodingUrl+"?zip="+pincode+",IN&appid="+apiKey
-				,String.class);
+				,String.class)));
 		} catch(HttpClientErrorException  e) {
 			 ObjectMapper objectMapper = new ObjectMapper();
            JsonNode jsonNode = objectMapper.readTree(e.getResponseBodyAsString());
            Integer errorCode = jsonNode.path("cod").asInt();
            String errorMessage = jsonNode.path("message").asText();
-           if(errorCode == 404)
+           if(errorCode == 404) {
+        	   rememberMissing(pincode);
         	   throw new IllegalArgumentException("Pincode: "+pincode+" "+errorMessage);
+           }
            else if(errorCode == 401)
         	   throw new IllegalArgumentException("Invalid API key");
            else
@@ -85,39 +275,42 @@ public class PincodeLocationService implements IPincodeLocationService{
 	}
 	
 	@Override
+	// The row is inserted by the write-behind queue; lookups are answered by the caches meanwhile.
 	public PincodeLocation createPincodeLocation(PincodeLocation pincodeLocation) throws JsonMappingException, JsonProcessingException {
-		return pincodeLocationRepo.save(pincodeLocation);
+		pincodeLocationWriteBehind.add(pincodeLocation);
+		pincodeNegativeCache.invalidate(pincodeLocation.getPincode());
+		pincodeSpatialIndex.put(pincodeLocation);
+		return pincodeLocation;
 	}
 	
 	@Override
+	// A row created moments ago may still be queued: the queue is flushed first, so it is updated instead of
+	// inserted twice. The redis and local entries are replaced by the result.
 	public PincodeLocation updatePincodeLocation(PincodeLocation pincodeLocation) throws JsonMappingException, JsonProcessingException {
+		if(!pincodeLocationWriteBehind.flush())
+			logger.warn("Queued pincode rows not written before updating {}", pincodeLocation.getPincode());
+		pincodeLocalCache.invalidate(pincodeLocation.getPincode());
 		PincodeLocation pincodeLocation2 = getPincodeLocationFromDb(pincodeLocation.getPincode());
-		if(pincodeLocation2 == null) return createPincodeLocation(pincodeLocation);
-		
-		 Optional.ofNullable(pincodeLocation.getLatitude()).ifPresent(pincodeLocation2::setLatitude);
-		 Optional.ofNullable(pincodeLocation.getLongitude()).ifPresent(pincodeLocation2::setLatitude);
-		 Optional.ofNullable(pincodeLocation.getName()).ifPresent(pincodeLocation2::setName);
-		 Optional.ofNullable(pincodeLocation.getCountry()).ifPresent(pincodeLocation2::setCountry);
-		 
-		 return pincodeLocationRepo.save(pincodeLocation2);
-		 
+		PincodeLocation saved;
+		if(pincodeLocation2 == null)
+			saved = createPincodeLocation(pincodeLocation);
+		else {
+			 Optional.ofNullable(pincodeLocation.getLatitude()).ifPresent(pincodeLocation2::setLatitude);
+			 Optional.ofNullable(pincodeLocation.getLongitude()).ifPresent(pincodeLocation2::setLongitude);
+			 Optional.ofNullable(pincodeLocation.getName()).ifPresent(pincodeLocation2::setName);
+			 Optional.ofNullable(pincodeLocation.getCountry()).ifPresent(pincodeLocation2::setCountry);
+			 
+			 saved = pincodeLocationRepo.save(pincodeLocation2);
+			 pincodeSpatialIndex.put(saved);
+		}
+		setPincodeLocation(STRING_KEY_PREFIX + saved.getPincode(), saved);
+		pincodeLocalCache.put(saved.getPincode(), saved);
+		return saved;
 	}
 	
 	@Override
 	public PincodeLocation jsonToPincodeLocation(String jsonResponse) throws JsonMappingException, JsonProcessingException {
-		ObjectMapper objectMapper = new ObjectMapper();
-		JsonNode rootNode = objectMapper.readTree(jsonResponse);
-		
-		System.out.println(rootNode.get("lat").asText());
-		System.out.println(rootNode.get("lon").asText());
-		
-		PincodeLocation pincodeLocation = new PincodeLocation();
-		pincodeLocation.setPincode(rootNode.get("zip").asText());
-		pincodeLocation.setName(rootNode.get("name").asText());
-		pincodeLocation.setLatitude(Double.valueOf(rootNode.get("lat").asText()));
-		pincodeLocation.setLongitude(Double.valueOf(rootNode.get("lon").asText()));
-		pincodeLocation.setCountry(rootNode.get("country").asText());
-		
+		PincodeLocation pincodeLocation = WeatherJsonParser.parsePincodeLocation(jsonResponse);
 		return createPincodeLocation(pincodeLocation);
 	}
 }
@@ -0,0 +1,126 @@
+package com.arun.app.services;
+
+import java.time.Duration;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.ReactiveRedisTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+
+import com.arun.app.models.PincodeLocation;
+import com.arun.app.utils.PincodeFormat;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+/*
+ * Non-blocking counterpart of PincodeLocationService. Redis and the geocoding API are called
+ * without holding a thread; the JPA lookups and saves are still blocking and run on boundedElastic.
+ */
+@Service
+public class ReactivePincodeLocationService implements IReactivePincodeLocationService {
+	private static final String STRING_KEY_PREFIX = "pincode:";
+	private final PincodeLocationService pincodeLocationService;
+	private final WebClient webClient;
+	private final ReactiveRedisTemplate<String, PincodeLocation> pincodeRedis;
+	private final Cache<String, PincodeLocation> pincodeLocalCache;
+	private final Cache<String, Boolean> pincodeNegativeCache;
+	@Value("${PINCODE_NEGATIVE_TTL:1h}")
+	private Duration negativeTtl;
+	private final ConcurrentMap<String, Mono<PincodeLocation>> inFlight = new ConcurrentHashMap<>();
+	
+	public ReactivePincodeLocationService(PincodeLocationService pincodeLocationService, WebClient webClient,
+			ReactiveRedisTemplate<String, PincodeLocation> pincodeRedis, Cache<String, PincodeLocation> pincodeLocalCache,
+			Cache<String, Boolean> pincodeNegativeCache) {
+		this.pincodeLocationService = pincodeLocationService;
+		this.webClient = webClient;
+		this.pincodeRedis = pincodeRedis;
+		this.pincodeLocalCache = pincodeLocalCache;
+		this.pincodeNegativeCache = pincodeNegativeCache;
+	}
+	
+	@Override
+	public Mono<PincodeLocation> getPincodeLocation(String pincode) {
+		if(!PincodeFormat.isValid(pincode))
+			return Mono.error(new IllegalArgumentException("Invalid pincode: "+pincode));
+		PincodeLocation localPincodeLocation = pincodeLocalCache.getIfPresent(pincode);
+		if(localPincodeLocation != null)
+			return Mono.just(localPincodeLocation);
+		if(pincodeNegativeCache.getIfPresent(pincode) != null)
+			return Mono.error(PincodeLocationService.notFound(pincode));
+		
+		String redisKey = STRING_KEY_PREFIX + pincode;
+		return pincodeRedis.opsForValue().get(redisKey)
+				.flatMap(pincodeLocation -> {
+					if(!PincodeLocationService.isTombstone(pincodeLocation)) return Mono.just(pincodeLocation);
+					pincodeNegativeCache.put(pincode, true);
+					return Mono.error(PincodeLocationService.notFound(pincode));
+				})
+				.switchIfEmpty(Mono.defer(() -> getPincodeLocationFromDb(pincode)
+						.switchIfEmpty(Mono.defer(() -> getPincodeLocationUsingAPI(pincode)))
+						.flatMap(pincodeLocation -> pincodeRedis.opsForValue().set(redisKey, pincodeLocation)
+								.thenReturn(pincodeLocation))))
+				.doOnNext(pincodeLocation -> pincodeLocalCache.put(pincode, pincodeLocation));
+	}
+	
+	private Mono<PincodeLocation> getPincodeLocationFromDb(String pincode) {
+		return Mono.fromCallable(() -> pincodeLocationService.getPincodeLocationFromDb(pincode))
+				.subscribeOn(Schedulers.boundedElastic());
+	}
+	
+	@Value("${GEO_CODING_API_URL}")
+	private String geoCodingUrl;
+	@Value("${GEO_CODING_API_KEY}")
+	private String apiKey;
+	@Override
+	public Mono<PincodeLocation> getPincodeLocationUsingAPI(String pincode) {
+		return inFlight.computeIfAbsent(pincode, key -> webClient.get()
+				.uri(geoCodingUrl+"?zip="+pincode+",IN&appid="+apiKey)
+				.retrieve()
+				.bodyToMono(String.class)
+				.onErrorResume(WebClientResponseException.NotFound.class, e -> rememberMissing(pincode)
+						.then(Mono.error(toIllegalArgument(pincode, e))))
+				.onErrorMap(WebClientResponseException.class, e -> toIllegalArgument(pincode, e))
+				.switchIfEmpty(Mono.error(() -> new IllegalArgumentException("No response received for pincode: " + pincode)))
+				// parses and saves the new row, so it stays off the event loop
+				.publishOn(Schedulers.boundedElastic())
+				.map(jsonResponse -> {
+					try {
+						return pincodeLocationService.jsonToPincodeLocation(jsonResponse);
+					} catch(JsonProcessingException e) {
+						throw new IllegalArgumentException(e.getMessage());
+					}
+				})
+				.doFinally(signal -> inFlight.remove(key))
+				.cache());
+	}
+	
+	// same negative caching as the blocking path
+	private Mono<Boolean> rememberMissing(String pincode) {
+		pincodeNegativeCache.put(pincode, true);
+		return pincodeRedis.opsForValue().set(STRING_KEY_PREFIX + pincode, PincodeLocationService.tombstone(pincode), negativeTtl)
+				.onErrorReturn(false);
+	}
+	
+	private IllegalArgumentException toIllegalArgument(String pincode, WebClientResponseException e) {
+		try {
+			JsonNode jsonNode = new ObjectMapper().readTree(e.getResponseBodyAsString());
+			int errorCode = jsonNode.path("cod").asInt();
+			String errorMessage = jsonNode.path("message").asText();
+			if(errorCode == 404)
+				return new IllegalArgumentException("Pincode: "+pincode+" "+errorMessage);
+			else if(errorCode == 401)
+				return new IllegalArgumentException("Invalid API key");
+			return new IllegalArgumentException(errorMessage);
+		} catch(JsonProcessingException parseError) {
+			return new IllegalArgumentException(e.getMessage());
+		}
+	}
+}
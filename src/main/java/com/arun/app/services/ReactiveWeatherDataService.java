@@ -0,0 +1,155 @@
+package com.arun.app.services;
+
+import java.text.ParseException;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.ReactiveRedisTemplate;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+
+import com.arun.app.dtos.WeatherDataDto;
+import com.arun.app.exceptions.UpstreamUnavailableException;
+import com.arun.app.models.PincodeLocation;
+import com.arun.app.models.WeatherData;
+import com.arun.app.repositories.WeatherDataRepo;
+import com.arun.app.repositories.WeatherDataView;
+import com.arun.app.utils.LocationGrid;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+/*
+ * Non-blocking counterpart of WeatherDataService, sharing its grid cells, redis keys and payload parsing.
+ * Only the Postgres reads/writes for old weather are blocking; they run on boundedElastic.
+ */
+@Service
+public class ReactiveWeatherDataService implements IReactiveWeatherDataService {
+	private final WeatherDataRepo weatherDataRepo;
+	private final WebClient webClient;
+	private final ReactivePincodeLocationService pincodeLocationService;
+	private final WeatherDataService weatherDataService;
+	private final ReactiveRedisTemplate<String, WeatherDataDto> weatherRedis;
+	private final ReactiveRedisTemplate<String, WeatherData> weatherRedis2;
+	private final LocationGrid locationGrid;
+	private final ConcurrentMap<String, Mono<WeatherData>> inFlight = new ConcurrentHashMap<>();
+	
+	public ReactiveWeatherDataService(WeatherDataRepo weatherDataRepo, WebClient webClient,
+			ReactivePincodeLocationService pincodeLocationService, WeatherDataService weatherDataService,
+			ReactiveRedisTemplate<String, WeatherDataDto> weatherRedis, ReactiveRedisTemplate<String, WeatherData> weatherRedis2,
+			LocationGrid locationGrid) {
+		this.weatherDataRepo = weatherDataRepo;
+		this.webClient = webClient;
+		this.pincodeLocationService = pincodeLocationService;
+		this.weatherDataService = weatherDataService;
+		this.weatherRedis = weatherRedis;
+		this.weatherRedis2 = weatherRedis2;
+		this.locationGrid = locationGrid;
+	}
+	
+	@Value("${CURRENT_WEATHER_API_URL}")
+	private String currentWeatherUrl;
+	@Override
+	public Mono<WeatherData> getCurrentWeather(String pincode) {
+		return pincodeLocationService.getPincodeLocation(pincode).map(locationGrid::snap).flatMap(pincodeLocation -> {
+			LocalDate today = LocalDate.now();
+			String redisKey = WeatherDataService.currentWeatherKey(
+					WeatherDataService.locationKey(pincodeLocation), today);
+			
+			Mono<WeatherData> refresh = Mono.defer(() -> coalesce(redisKey, fetch(
+					currentWeatherUrl+"?latitude="+pincodeLocation.getLatitude()+
+					"&longitude="+pincodeLocation.getLongitude()+"&current=temperature_2m,wind_speed_10m&hourly=temperature_2m,relative_humidity_2m,wind_speed_10m&forecast_days=1",
+					pincodeLocation, "No response received for \"lat:"+pincodeLocation.getLatitude()+
+					", lon:"+pincodeLocation.getLongitude()+", date:"+ today+"\"")
+					.doOnNext(weatherData -> weatherData.setFetchedAt(System.currentTimeMillis()))
+					.flatMap(weatherData -> weatherRedis.opsForValue()
+							.set(redisKey, WeatherDataDto.get(weatherData, pincode), WeatherDataService.CURRENT_WEATHER_RETENTION)
+							.thenReturn(weatherData))));
+			
+			// a stale entry is returned at once; the coalesced refresh runs detached and replaces it
+			return weatherRedis.opsForValue().get(redisKey)
+					.doOnNext(dto -> {
+						if(!WeatherDataService.isFresh(dto)) refresh.subscribe(weatherData -> {}, error -> {});
+					})
+					.map(WeatherDataDto::getWeatherData)
+					.switchIfEmpty(refresh);
+		});
+	}
+	
+	@Value("${OLD_WEATHER_API_URL}")
+	private String oldWeatherUrl;
+	@Override
+	public Mono<WeatherData> getOldWeather(String pincode, LocalDate date) {
+		return pincodeLocationService.getPincodeLocation(pincode).map(locationGrid::snap).flatMap(pincodeLocation -> {
+			String redisKey = WeatherDataService.oldWeatherKey(
+					WeatherDataService.locationKey(pincodeLocation), date);
+			
+			Mono<WeatherData> fromDb = Mono.fromCallable(() -> weatherDataRepo.findViewByLatitudeAndLongitudeAndDate(
+					pincodeLocation.getLatitude(), pincodeLocation.getLongitude(), date))
+					.map(WeatherDataView::toWeatherData)
+					.subscribeOn(Schedulers.boundedElastic());
+			Mono<WeatherData> fromApi = fetch(
+					oldWeatherUrl+"?latitude="+pincodeLocation.getLatitude()+
+					"&longitude="+pincodeLocation.getLongitude()+
+					"&start_date="+date+"&end_date="+date+"&hourly=temperature_2m,relative_humidity_2m,wind_speed_10m",
+					pincodeLocation, "No response received for lat: "+pincodeLocation.getLatitude()+
+					" lon: "+pincodeLocation.getLongitude()+" date: "+ date)
+					.publishOn(Schedulers.boundedElastic())
+					.map(weatherDataService::createOldWeather);
+			
+			return weatherRedis2.opsForValue().get(redisKey)
+					.switchIfEmpty(Mono.defer(() -> coalesce(redisKey, fromDb.switchIfEmpty(fromApi)
+							.flatMap(weatherData -> weatherRedis2.opsForValue().set(redisKey, weatherData)
+									.thenReturn(weatherData)))));
+		});
+	}
+	
+	private Mono<WeatherData> fetch(String url, PincodeLocation pincodeLocation, String emptyMessage) {
+		return webClient.get()
+				.uri(url)
+				.retrieve()
+				.bodyToMono(String.class)
+				.onErrorMap(WebClientResponseException.class, ReactiveWeatherDataService::toRequestError)
+				.switchIfEmpty(Mono.error(() -> new IllegalArgumentException(emptyMessage)))
+				.map(jsonResponse -> {
+					try {
+						WeatherData weatherData = weatherDataService.jsonToWeatherData(jsonResponse);
+						weatherData.setLatitude(pincodeLocation.getLatitude());
+						weatherData.setLongitude(pincodeLocation.getLongitude());
+						return weatherData;
+					} catch(JsonProcessingException | ParseException e) {
+						throw new IllegalArgumentException(e.getMessage());
+					}
+				});
+	}
+	
+	// single-flight per redis key, same as the RequestCoalescer on the blocking path; each subscriber gets a copy
+	private Mono<WeatherData> coalesce(String redisKey, Mono<WeatherData> loader) {
+		return inFlight.computeIfAbsent(redisKey, key -> loader
+				.doFinally(signal -> inFlight.remove(key))
+				.cache())
+				.map(WeatherData::copy);
+	}
+	
+	// a 4xx other than 429 is the caller's fault and answered with 400; 5xx and 429 mean retry later
+	private static RuntimeException toRequestError(WebClientResponseException e) {
+		if(e.getStatusCode().is4xxClientError() && e.getStatusCode() != HttpStatus.TOO_MANY_REQUESTS)
+			return new IllegalArgumentException(reason(e));
+		return new UpstreamUnavailableException("Upstream weather service answered "+e.getStatusCode().value());
+	}
+	
+	private static String reason(WebClientResponseException e) {
+		try {
+			return new ObjectMapper().readTree(e.getResponseBodyAsString()).path("reason").asText(e.getMessage());
+		} catch(JsonProcessingException parseError) {
+			return e.getMessage();
+		}
+	}
+}
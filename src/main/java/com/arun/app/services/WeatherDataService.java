@@ -1,34 +1,64 @@
 package com.arun.app.services;
 
+import java.io.UncheckedIOException;
 import java.text.ParseException;
-import java.text.SimpleDateFormat;
+import java.time.Duration;
 import java.time.LocalDate;
-import java.time.ZoneId;
-import java.util.Calendar;
-import java.util.Date;
+import java.time.LocalTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.concurrent.TimeUnit;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.redis.core.RedisTemplate;
-import org.springframework.data.redis.core.ValueOperations;
 import org.springframework.data.redis.serializer.Jackson2JsonRedisSerializer;
 import org.springframework.data.redis.serializer.StringRedisSerializer;
 import org.springframework.stereotype.Service;
 import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResourceAccessException;
 import org.springframework.web.client.RestTemplate;
 
 import com.arun.app.dtos.WeatherDataDto;
+import com.arun.app.exceptions.UpstreamUnavailableException;
 import com.arun.app.models.PincodeLocation;
 import com.arun.app.models.WeatherData;
 import com.arun.app.repositories.WeatherDataRepo;
+import com.arun.app.repositories.WeatherDataView;
+import com.arun.app.utils.HotKeyTracker;
+import com.arun.app.utils.HourlySeries;
+import com.arun.app.utils.LocationGrid;
+import com.arun.app.utils.RedisBatcher;
+import com.arun.app.utils.RequestCoalescer;
+import com.arun.app.utils.TierMetrics;
+import com.arun.app.utils.UpstreamGuard;
+import com.arun.app.utils.UpstreamGuards;
+import com.arun.app.utils.WeatherArchive;
+import com.arun.app.utils.WeatherJsonParser;
+import com.arun.app.utils.WriteBehindQueue;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.JsonMappingException;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
+import lombok.Getter;
+
 @Service
 public class WeatherDataService implements IWeatherDataService{
 	private final WeatherDataRepo weatherDataRepo;
@@ -36,19 +66,62 @@ public class WeatherDataService implements IWeatherDataService{
 	private final PincodeLocationService pincodeLocationService;
 	private final RedisTemplate<String, WeatherDataDto> weatherRedis;
 	private final RedisTemplate<String, WeatherData> weatherRedis2;
+	private final RedisBatcher<WeatherDataDto> currentWeatherBatcher;
+	private final RedisBatcher<WeatherData> oldWeatherBatcher;
 	private static final String STRING_KEY_PREFIX_C = "current-weather:";
 	private static final String STRING_KEY_PREFIX_O = "old-weather:";
+	private static final String STRING_KEY_PREFIX_L = "last-weather:";
+	private static final String CURRENT_WEATHER = "current-weather";
+	private static final String OLD_WEATHER = "old-weather";
+	private static final String LAST_WEATHER = "last-weather";
+	private static final String WEATHER_DATA = "weather-data";
+	// current weather is fresh for CURRENT_WEATHER_TTL; after that the entry is still served, and
+	// revalidated in the background, until redis drops it after CURRENT_WEATHER_RETENTION
+	public static final Duration CURRENT_WEATHER_TTL = Duration.ofMinutes(5);
+	public static final Duration CURRENT_WEATHER_RETENTION = Duration.ofHours(1);
+	private final HotKeyTracker<String, PincodeLocation> currentWeatherTracker;
+	private final LocationGrid locationGrid;
+	private final TierMetrics tierMetrics;
+	private final UpstreamGuards upstreamGuards;
+	private final ExecutorService upstreamExecutor;
+	private final WriteBehindQueue<WeatherData> weatherDataWriteBehind;
+	private final WeatherArchive weatherArchive;
+	private final Set<String> revalidating = ConcurrentHashMap.newKeySet();
+	@Getter
+	private final RequestCoalescer<String, WeatherData> currentWeatherCoalescer = new RequestCoalescer<>(WeatherData::copy);
+	@Getter
+	private final RequestCoalescer<String, WeatherData> oldWeatherCoalescer = new RequestCoalescer<>(WeatherData::copy);
+	@Getter
+	private final RequestCoalescer<String, List<WeatherData>> historyCoalescer =
+			new RequestCoalescer<>(rows -> rows.stream().map(WeatherData::copy).toList());
+	@Value("${HISTORY_MAX_DAYS:366}")
+	private int historyMaxDays;
+	@Value("${LAST_KNOWN_WEATHER_TTL:24h}")
+	private Duration lastKnownTtl;
 	
 	Logger logger = LoggerFactory.getLogger(WeatherDataService.class);
 
 	public WeatherDataService(WeatherDataRepo weatherDataRepo, RestTemplate restTemplate,
 			PincodeLocationService pincodeLocationService, 
-			RedisTemplate<String, WeatherDataDto> weatherRedis, RedisTemplate<String, WeatherData> weatherRedis2) {
+			RedisTemplate<String, WeatherDataDto> weatherRedis, RedisTemplate<String, WeatherData> weatherRedis2,
+			RedisBatcher<WeatherDataDto> currentWeatherBatcher, RedisBatcher<WeatherData> oldWeatherBatcher,
+			HotKeyTracker<String, PincodeLocation> currentWeatherTracker, LocationGrid locationGrid,
+			TierMetrics tierMetrics, UpstreamGuards upstreamGuards, ExecutorService upstreamExecutor,
+			WriteBehindQueue<WeatherData> weatherDataWriteBehind, WeatherArchive weatherArchive) {
 		this.weatherDataRepo = weatherDataRepo;
 		this.restTemplate = restTemplate;
 		this.pincodeLocationService = pincodeLocationService;
 		this.weatherRedis = weatherRedis;
 		this.weatherRedis2 = weatherRedis2;
+		this.currentWeatherBatcher = currentWeatherBatcher;
+		this.oldWeatherBatcher = oldWeatherBatcher;
+		this.currentWeatherTracker = currentWeatherTracker;
+		this.locationGrid = locationGrid;
+		this.tierMetrics = tierMetrics;
+		this.upstreamGuards = upstreamGuards;
+		this.upstreamExecutor = upstreamExecutor;
+		this.weatherDataWriteBehind = weatherDataWriteBehind;
+		this.weatherArchive = weatherArchive;
 	}
 	
 	@Value("${CURRENT_WEATHER_API_URL}")
@@ -56,24 +129,143 @@ public class WeatherDataService implements IWeatherDataService{
 	@Override
 	public WeatherData getCurrentWeather(String pincode) throws JsonMappingException, JsonProcessingException, ParseException {
 		
-		PincodeLocation pincodeLocation = pincodeLocationService.getPincodeLocation(pincode);
-		String redisKey = STRING_KEY_PREFIX_C+pincodeLocation.getLatitude()+":"
-				+pincodeLocation.getLongitude()+":"+LocalDate.now();
+		PincodeLocation pincodeLocation = cell(pincodeLocationService.getPincodeLocation(pincode));
+		currentWeatherTracker.recordAccess(locationKey(pincodeLocation), pincodeLocation);
+		String redisKey = currentWeatherKey(locationKey(pincodeLocation), LocalDate.now());
 		
-		WeatherDataDto redisWeatherData = weatherRedis.opsForValue().get(redisKey);
-		if(redisWeatherData != null) return WeatherDataDto.getWeatherData(redisWeatherData);
+		WeatherDataDto redisWeatherData = tierMetrics.lookup(TierMetrics.REDIS, CURRENT_WEATHER,
+				() -> currentWeatherBatcher.get(redisKey));
+		if(redisWeatherData != null) {
+			if(!isFresh(redisWeatherData)) revalidate(List.of(pincodeLocation));
+			return WeatherDataDto.getWeatherData(redisWeatherData);
+		}
 		
+		// a fresh reading archived before redis lost it (or before a restart) is put back without an API call
+		WeatherData archived = tierMetrics.lookup(TierMetrics.ARCHIVE, LAST_WEATHER,
+				() -> weatherArchive.getWeather(lastWeatherKey(locationKey(pincodeLocation))));
+		if(archived != null && LocalDate.now().equals(archived.getDate()) && archived.getFetchedAt() != null
+				&& isFresh(WeatherDataDto.get(archived, null))) {
+			cacheCurrentWeather(redisKey, WeatherDataDto.get(archived, pincode));
+			return archived;
+		}
+		
+		try {
+			return currentWeatherCoalescer.execute(redisKey, 
+					() -> fetchCurrentWeather(pincodeLocation, pincode, redisKey));
+		} catch(UpstreamUnavailableException | ResourceAccessException | HttpServerErrorException e) {
+			WeatherData lastKnown = getLastKnownWeather(List.of(pincodeLocation)).get(locationKey(pincodeLocation));
+			if(lastKnown == null) throw e;
+			logger.debug("Serving last known weather for {}: {}", locationKey(pincodeLocation), e.getMessage());
+			return lastKnown;
+		}
+	}
+	
+	public static boolean isFresh(WeatherDataDto weatherData) {
+		// entries written before the fetch time was kept expire on the old TTL
+		return weatherData.getFetchedAt() == null 
+				|| System.currentTimeMillis()-weatherData.getFetchedAt() < CURRENT_WEATHER_TTL.toMillis();
+	}
+	
+	// remaining freshness of a current-weather entry from its redis TTL
+	public static long freshForMillis(long ttlMillis) {
+		return ttlMillis-CURRENT_WEATHER_RETENTION.minus(CURRENT_WEATHER_TTL).toMillis();
+	}
+	
+	// Stale entries are served as they are while one background call per cell replaces them.
+	private void revalidate(List<PincodeLocation> cells) {
+		List<PincodeLocation> claimed = claim(cells);
+		if(claimed.isEmpty()) return;
+		try {
+			upstreamExecutor.execute(() -> {
+				try {
+					fetchCells(claimed, LocalDate.now());
+				} catch(Exception e) {
+					logger.debug("Revalidating {} locations failed: {}", claimed.size(), e.getMessage());
+				} finally {
+					release(claimed);
+				}
+			});
+		} catch(RejectedExecutionException e) {
+			release(claimed);
+		}
+	}
+	
+	// Refresh-ahead of current weather, in one call for the cells that no request is fetching or
+	// revalidating at the moment. Returns how many cells were fetched.
+	public int refreshCurrentWeather(Collection<PincodeLocation> pincodeLocations) 
+			throws JsonMappingException, JsonProcessingException, ParseException {
+		List<PincodeLocation> claimed = claim(new ArrayList<>(distinctCells(pincodeLocations).values()));
+		if(claimed.isEmpty()) return 0;
+		try {
+			fetchCells(claimed, LocalDate.now());
+			return claimed.size();
+		} finally {
+			release(claimed);
+		}
+	}
+	
+	// a cell is claimed unless it is being revalidated or a coalesced fetch of its entry is in flight
+	private List<PincodeLocation> claim(List<PincodeLocation> cells) {
+		LocalDate today = LocalDate.now();
+		return cells.stream().filter(cell -> !currentWeatherCoalescer.isInFlight(currentWeatherKey(locationKey(cell), today))
+				&& revalidating.add(locationKey(cell))).toList();
+	}
+	
+	private void release(List<PincodeLocation> claimed) {
+		claimed.forEach(cell -> revalidating.remove(locationKey(cell)));
+	}
+	
+	// The newest current weather stored for each location's cell, flagged stale, for when the forecast
+	// API cannot be used. Keyed by the locationKey of each given location, like the batch lookups below.
+	public Map<String, WeatherData> getLastKnownWeather(Collection<PincodeLocation> pincodeLocations) {
+		Map<String, PincodeLocation> cells = distinctCells(pincodeLocations);
+		List<String> locationKeys = new ArrayList<>(cells.keySet());
+		List<WeatherDataDto> lastKnown = tierMetrics.time(TierMetrics.REDIS, LAST_WEATHER, "multiget",
+				() -> weatherRedis.opsForValue().multiGet(locationKeys.stream().map(WeatherDataService::lastWeatherKey).toList()));
+		Map<String, WeatherData> byCell = new HashMap<>();
+		for(int i = 0; lastKnown != null && i < locationKeys.size(); i++) {
+			if(lastKnown.get(i) == null) continue;
+			WeatherData weatherData = WeatherDataDto.getWeatherData(lastKnown.get(i));
+			weatherData.setStale(true);
+			byCell.put(locationKeys.get(i), weatherData);
+		}
+		int fromRedis = byCell.size();
+		tierMetrics.count(TierMetrics.REDIS, LAST_WEATHER, fromRedis, locationKeys.size()-fromRedis);
+		
+		// the archive outlives the redis entry, and redis itself
+		for(String locationKey : locationKeys) {
+			if(byCell.containsKey(locationKey)) continue;
+			WeatherData weatherData = weatherArchive.getWeather(lastWeatherKey(locationKey));
+			if(weatherData == null) continue;
+			weatherData.setStale(true);
+			byCell.put(locationKey, weatherData);
+		}
+		tierMetrics.count(TierMetrics.ARCHIVE, LAST_WEATHER, byCell.size()-fromRedis, locationKeys.size()-byCell.size());
+		return byLocation(pincodeLocations, byCell);
+	}
+	
+	// the cached entry carries the whole day; entries written before the series was kept are refetched
+	@Override
+	public WeatherData getCurrentWeather(String pincode, int hour) throws JsonMappingException, JsonProcessingException, ParseException {
+		WeatherData weatherData = getCurrentWeather(pincode);
+		if(weatherData.getHourly() == null) {
+			PincodeLocation pincodeLocation = cell(pincodeLocationService.getPincodeLocation(pincode));
+			String redisKey = currentWeatherKey(locationKey(pincodeLocation), LocalDate.now());
+			weatherData = currentWeatherCoalescer.execute(redisKey, 
+					() -> fetchCurrentWeather(pincodeLocation, pincode, redisKey));
+		}
+		return atHour(weatherData, hour);
+	}
+	
+	private WeatherData fetchCurrentWeather(PincodeLocation pincodeLocation, String pincode, String redisKey) 
+			throws JsonMappingException, JsonProcessingException, ParseException {
+		String url = currentWeatherUrl+"?latitude="+pincodeLocation.getLatitude()+
+				"&longitude="+pincodeLocation.getLongitude()+"&current=temperature_2m,wind_speed_10m&hourly=temperature_2m,relative_humidity_2m,wind_speed_10m&forecast_days=1";
 		String jsonResponse = null;
 		try {
-		jsonResponse = restTemplate.getForObject(
-				currentWeatherUrl+"?latitude="+pincodeLocation.getLatitude()+
-				"&longitude="+pincodeLocation.getLongitude()+"&current=temperature_2m,wind_speed_10m&hourly=temperature_2m,relative_humidity_2m,wind_speed_10m&forecast_days=1"
-				,String.class);
+		jsonResponse = getUpstream(upstreamGuards.forecast(), "call", url);
 		}catch(HttpClientErrorException  e) {
-			 ObjectMapper objectMapper = new ObjectMapper();
-            JsonNode jsonNode = objectMapper.readTree(e.getResponseBodyAsString());
-//            String errorMessage = jsonNode.path("reason").asText();
-//			System.out.println(jsonResponse.isEmpty());
+			logger.warn("Forecast call rejected for {}: {}", locationKey(pincodeLocation), e.getStatusCode());
 			throw new IllegalArgumentException(e.getResponseBodyAsString());
 		}
 		
@@ -85,14 +277,29 @@ public class WeatherDataService implements IWeatherDataService{
 		WeatherData weatherData =  jsonToWeatherData(jsonResponse);
 		weatherData.setLatitude(pincodeLocation.getLatitude());
 		weatherData.setLongitude(pincodeLocation.getLongitude());
+		weatherData.setFetchedAt(System.currentTimeMillis());
 		
-		setWithExpiration(redisKey, WeatherDataDto.get(weatherData, pincode), 5, TimeUnit.MINUTES);
+		setWithExpiration(redisKey, WeatherDataDto.get(weatherData, pincode));
+		currentWeatherTracker.recordWrite(locationKey(pincodeLocation), System.currentTimeMillis()+CURRENT_WEATHER_TTL.toMillis());
 		return weatherData;
 	}
 	
-	private void setWithExpiration(String key, WeatherDataDto value, long timeout, TimeUnit unit) {
-        ValueOperations<String, WeatherDataDto> ops = weatherRedis.opsForValue();
-        ops.set(key, value, timeout, unit);
+	private void setWithExpiration(String key, WeatherDataDto value) {
+		cacheCurrentWeather(key, value);
+		tierMetrics.time(TierMetrics.ARCHIVE, LAST_WEATHER, "put", () -> weatherArchive.putWeather(
+				lastWeatherKey(locationKey(value.getLatitude(), value.getLongitude())), WeatherDataDto.getWeatherData(value)));
+	}
+	
+	private void cacheCurrentWeather(String key, WeatherDataDto value) {
+		// both writes go out in one batch; the second outlives the first, as the fallback
+		// while the forecast API is unavailable
+		tierMetrics.time(TierMetrics.REDIS, CURRENT_WEATHER, "set", () -> {
+			CompletableFuture<WeatherDataDto> current = currentWeatherBatcher.store(key, value, CURRENT_WEATHER_RETENTION);
+			CompletableFuture<WeatherDataDto> lastKnown = currentWeatherBatcher.store(
+					lastWeatherKey(locationKey(value.getLatitude(), value.getLongitude())), value, lastKnownTtl);
+			RedisBatcher.await(current);
+			RedisBatcher.await(lastKnown);
+		});
     }
 	
 	@Value("${OLD_WEATHER_API_URL}")
@@ -100,83 +307,424 @@ public class WeatherDataService implements IWeatherDataService{
 	@Override
 	public WeatherData getOldWeather(String pincode, LocalDate date) throws JsonMappingException, JsonProcessingException, ParseException {
 		
-		PincodeLocation pincodeLocation = pincodeLocationService.getPincodeLocation(pincode);
-		String redisKey = STRING_KEY_PREFIX_O+pincodeLocation.getLatitude()+":"
-				+pincodeLocation.getLongitude()+":"+date;
+		PincodeLocation pincodeLocation = cell(pincodeLocationService.getPincodeLocation(pincode));
+		String redisKey = oldWeatherKey(locationKey(pincodeLocation), date);
 		
-		WeatherData redisWeatherData = weatherRedis2.opsForValue().get(redisKey);
+		WeatherData redisWeatherData = tierMetrics.lookup(TierMetrics.REDIS, OLD_WEATHER,
+				() -> oldWeatherBatcher.get(redisKey));
 		if(redisWeatherData != null) return redisWeatherData;
 		
-		WeatherData weatherDataFromDb = weatherDataRepo.findByLatitudeAndLongitudeAndDate(
-				pincodeLocation.getLatitude(), pincodeLocation.getLongitude(), date);
+		return oldWeatherCoalescer.execute(redisKey, 
+				() -> fetchOldWeather(pincodeLocation, date, redisKey));
+	}
+	
+	private WeatherData fetchOldWeather(PincodeLocation pincodeLocation, LocalDate date, String redisKey) 
+			throws JsonMappingException, JsonProcessingException, ParseException {
+		WeatherData archived = tierMetrics.lookup(TierMetrics.ARCHIVE, OLD_WEATHER, () -> weatherArchive.getWeather(redisKey));
+		if(archived != null) {
+			cacheOldWeather(redisKey, archived);
+			return archived;
+		}
+		
+		WeatherData weatherDataFromDb = findStoredWeather(pincodeLocation, date);
 		
 		if(weatherDataFromDb != null) {
-			weatherRedis2.opsForValue().set(redisKey, weatherDataFromDb);
+			setOldWeather(redisKey, weatherDataFromDb);
 			return weatherDataFromDb;
 		}
 		
-		String jsonResponse = null;
-		try {
-			jsonResponse= restTemplate.getForObject(
-				oldWeatherUrl+"?latitude="+pincodeLocation.getLatitude()+
-				"&longitude="+pincodeLocation.getLongitude()+
-				"&start_date="+date+"&end_date="+date+"&hourly=temperature_2m,relative_humidity_2m,wind_speed_10m"
-				,String.class);
-		}
-		catch(HttpClientErrorException  e) {
-			 ObjectMapper objectMapper = new ObjectMapper();
-             JsonNode jsonNode = objectMapper.readTree(e.getResponseBodyAsString());
-             String errorMessage = jsonNode.path("reason").asText();
-//			System.out.println(jsonResponse.isEmpty());
-			throw new IllegalArgumentException(errorMessage);
-		}
-		
-		if(jsonResponse == null) {
-			throw new IllegalArgumentException("No response received for lat: "+pincodeLocation.getLatitude()+
-					" lon: "+pincodeLocation.getLongitude()+" date: "+ date);
-		}
+		String jsonResponse = fetchArchive(pincodeLocation, date, date);
 		WeatherData weatherData =  jsonToWeatherData(jsonResponse);
 		weatherData.setLatitude(pincodeLocation.getLatitude());
 		weatherData.setLongitude(pincodeLocation.getLongitude());
 		weatherDataFromDb = createOldWeather(weatherData);
 		
-		weatherRedis2.opsForValue().set(redisKey, weatherDataFromDb);
+		setOldWeather(redisKey, weatherDataFromDb);
 		return weatherDataFromDb;
 		 
 	}
 	
-	@Override
-	public WeatherData createOldWeather(WeatherData weatherData) {
-		return weatherDataRepo.save(weatherData);
+	private WeatherData findStoredWeather(PincodeLocation pincodeLocation, LocalDate date) {
+		WeatherDataView stored = tierMetrics.lookup(TierMetrics.POSTGRES, WEATHER_DATA, () -> weatherDataRepo.findViewByLatitudeAndLongitudeAndDate(
+				pincodeLocation.getLatitude(), pincodeLocation.getLongitude(), date));
+		return stored == null ? null : stored.toWeatherData();
+	}
+	
+	private void setOldWeather(String redisKey, WeatherData weatherData) {
+		cacheOldWeather(redisKey, weatherData);
+		tierMetrics.time(TierMetrics.ARCHIVE, OLD_WEATHER, "put", () -> weatherArchive.putWeather(redisKey, weatherData));
+	}
+	
+	private void cacheOldWeather(String redisKey, WeatherData weatherData) {
+		tierMetrics.time(TierMetrics.REDIS, OLD_WEATHER, "set", () -> oldWeatherBatcher.set(redisKey, weatherData, null));
 	}
 	
 	@Override
-	public WeatherData jsonToWeatherData(String jsonResponse) throws JsonMappingException, JsonProcessingException, ParseException {
-		ObjectMapper objectMapper = new ObjectMapper();
-		JsonNode rootNode = objectMapper.readTree(jsonResponse);
-		
-		WeatherData weatherData = new WeatherData();
-		SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd");
-		JsonNode current = rootNode.get("current");
-		if(current != null) {
-			Date date = dateFormat.parse(current.get("time").asText());
-			weatherData.setDate(date.toInstant().atZone(ZoneId.systemDefault()).toLocalDate());
-			weatherData.setTemperature(Double.valueOf(current.get("temperature_2m").asText()));
-			weatherData.setHumidity(rootNode.get("hourly").get("relative_humidity_2m").get(Calendar.HOUR_OF_DAY-1).asInt());
-			weatherData.setWindSpeed(Double.valueOf(current.get("wind_speed_10m").asText()));
+	public WeatherData getOldWeather(String pincode, LocalDate date, int hour) throws JsonMappingException, JsonProcessingException, ParseException {
+		WeatherData weatherData = getOldWeather(pincode, date);
+		if(weatherData.getHourly() == null) {
+			PincodeLocation pincodeLocation = cell(pincodeLocationService.getPincodeLocation(pincode));
+			String redisKey = oldWeatherKey(locationKey(pincodeLocation), date);
+			weatherData = oldWeatherCoalescer.execute(redisKey, 
+					() -> fetchHourlySeries(pincodeLocation, date, redisKey));
+		}
+		return atHour(weatherData, hour);
+	}
+	
+	// Rows stored before the series was kept get it filled in place, keeping their id and readings.
+	private WeatherData fetchHourlySeries(PincodeLocation pincodeLocation, LocalDate date, String redisKey) 
+			throws JsonMappingException, JsonProcessingException, ParseException {
+		WeatherData weatherData = jsonToWeatherData(fetchArchive(pincodeLocation, date, date));
+		// the managed row, as it is updated
+		WeatherData weatherDataFromDb = tierMetrics.lookup(TierMetrics.POSTGRES, WEATHER_DATA, () -> weatherDataRepo.findByLatitudeAndLongitudeAndDate(
+				pincodeLocation.getLatitude(), pincodeLocation.getLongitude(), date));
+		if(weatherDataFromDb != null) {
+			weatherDataFromDb.setHourly(weatherData.getHourly());
+			weatherData = weatherDataFromDb;
 		}
 		else {
-			JsonNode hourly = rootNode.get("hourly");
-			int currentHour = Calendar.HOUR_OF_DAY-1;
-			Date date = dateFormat.parse(hourly.get("time").get(currentHour).asText());
-			weatherData.setDate(date.toInstant().atZone(ZoneId.systemDefault()).toLocalDate());
-			weatherData.setTemperature(Double.valueOf(hourly.get("temperature_2m").get(currentHour).asText()));
-			weatherData.setHumidity(hourly.get("relative_humidity_2m").get(currentHour).asInt());
-			weatherData.setWindSpeed(Double.valueOf(hourly.get("wind_speed_10m").get(currentHour).asText()));
-			
+			weatherData.setLatitude(pincodeLocation.getLatitude());
+			weatherData.setLongitude(pincodeLocation.getLongitude());
 		}
+		weatherData = createOldWeather(weatherData);
+		setOldWeather(redisKey, weatherData);
 		return weatherData;
+	}
+	
+	private String fetchArchive(PincodeLocation pincodeLocation, LocalDate start, LocalDate end) 
+			throws JsonMappingException, JsonProcessingException {
+		String url = oldWeatherUrl+"?latitude="+pincodeLocation.getLatitude()+
+				"&longitude="+pincodeLocation.getLongitude()+
+				"&start_date="+start+"&end_date="+end+"&hourly=temperature_2m,relative_humidity_2m,wind_speed_10m";
+		String jsonResponse = null;
+		try {
+			jsonResponse = getUpstream(upstreamGuards.archive(), "call", url);
+		}
+		catch(HttpClientErrorException  e) {
+			logger.warn("Archive call rejected for {} {}..{}: {}", locationKey(pincodeLocation), start, end, e.getStatusCode());
+			ObjectMapper objectMapper = new ObjectMapper();
+			JsonNode jsonNode = objectMapper.readTree(e.getResponseBodyAsString());
+			throw new IllegalArgumentException(jsonNode.path("reason").asText(e.getMessage()));
+		}
+		if(jsonResponse == null) {
+			throw new IllegalArgumentException("No response received for lat: "+pincodeLocation.getLatitude()+
+					" lon: "+pincodeLocation.getLongitude()+" date: "+(start.equals(end) ? start : start+" to "+end));
+		}
+		return jsonResponse;
+	}
+	
+	// Recorded responses answer first when replay is on; every body the API returns is recorded.
+	private String getUpstream(UpstreamGuard guard, String operation, String url) {
+		String replayed = weatherArchive.replay(url);
+		if(replayed != null) return replayed;
+		String jsonResponse = guard.call(() -> tierMetrics.time(TierMetrics.UPSTREAM, guard.getName(), operation,
+				() -> restTemplate.getForObject(url, String.class)));
+		if(jsonResponse != null)
+			tierMetrics.time(TierMetrics.ARCHIVE, "response", "put", () -> weatherArchive.recordResponse(url, jsonResponse));
+		return jsonResponse;
+	}
+	
+	// copy of the day's entry with the readings of one hour
+	static WeatherData atHour(WeatherData weatherData, int hour) {
+		byte[] series = weatherData.getHourly();
+		if(series == null)
+			throw new IllegalArgumentException("No hourly readings for date: "+weatherData.getDate());
+		WeatherData result = new WeatherData();
+		result.setLatitude(weatherData.getLatitude());
+		result.setLongitude(weatherData.getLongitude());
+		result.setDate(weatherData.getDate());
+		result.setTemperature(HourlySeries.temperatureAt(series, hour));
+		result.setHumidity(HourlySeries.humidityAt(series, hour));
+		result.setWindSpeed(HourlySeries.windSpeedAt(series, hour));
+		result.setStale(weatherData.isStale());
+		return result;
+	}
+	
+	// Open-Meteo reports in GMT unless a timezone is requested
+	static int currentHour() {
+		return LocalTime.now(ZoneOffset.UTC).getHour();
+	}
+	
+	// Days found in redis or Postgres are looked up before this returns. Days that are still missing
+	// come from one archive call made when the stream reaches them, after the stored days.
+	@Override
+	public Stream<WeatherData> getWeatherHistory(String pincode, LocalDate from, LocalDate to) 
+			throws JsonMappingException, JsonProcessingException {
+		if(from.isAfter(to))
+			throw new IllegalArgumentException("from date must not be after to date");
+		if(ChronoUnit.DAYS.between(from, to) >= historyMaxDays)
+			throw new IllegalArgumentException("At most "+historyMaxDays+" days can be requested at once");
+		
+		PincodeLocation pincodeLocation = cell(pincodeLocationService.getPincodeLocation(pincode));
+		String locationKey = locationKey(pincodeLocation);
+		List<LocalDate> days = from.datesUntil(to.plusDays(1)).toList();
+		Map<LocalDate, WeatherData> found = new TreeMap<>();
+		
+		List<WeatherData> redisWeatherData = tierMetrics.time(TierMetrics.REDIS, OLD_WEATHER, "multiget", () -> weatherRedis2.opsForValue()
+				.multiGet(days.stream().map(day -> oldWeatherKey(locationKey, day)).toList()));
+		for(int i = 0; redisWeatherData != null && i < days.size(); i++)
+			if(redisWeatherData.get(i) != null) found.put(days.get(i), redisWeatherData.get(i));
+		tierMetrics.count(TierMetrics.REDIS, OLD_WEATHER, found.size(), days.size()-found.size());
+		
+		if(found.size() < days.size()) {
+			int cached = found.size();
+			Map<String, WeatherData> fromDb = new HashMap<>();
+			for(WeatherDataView stored : tierMetrics.time(TierMetrics.POSTGRES, WEATHER_DATA, "range",
+					() -> weatherDataRepo.findViewsByLatitudeAndLongitudeAndDateBetweenOrderByDate(
+							pincodeLocation.getLatitude(), pincodeLocation.getLongitude(), from, to))) {
+				WeatherData weatherData = stored.toWeatherData();
+				if(found.putIfAbsent(weatherData.getDate(), weatherData) == null)
+					fromDb.put(oldWeatherKey(locationKey, weatherData.getDate()), weatherData);
+			}
+			tierMetrics.count(TierMetrics.POSTGRES, WEATHER_DATA, fromDb.size(), days.size()-cached-fromDb.size());
+			if(!fromDb.isEmpty())
+				setOldWeather(fromDb);
+		}
+		
+		List<LocalDate> missing = days.stream().filter(day -> !found.containsKey(day)).toList();
+		Stream<WeatherData> stored = new ArrayList<>(found.values()).stream();
+		if(missing.isEmpty()) return stored;
+		return Stream.concat(stored, Stream.of(missing)
+				.flatMap(missingDays -> fetchWeatherHistory(pincodeLocation, missingDays).stream()));
+	}
+	
+	// Runs while the stream is being written, so an unreadable archive response is thrown unchecked
+	// for the caller to end the stream with.
+	private List<WeatherData> fetchWeatherHistory(PincodeLocation pincodeLocation, List<LocalDate> missing) {
+		LocalDate start = missing.get(0);
+		LocalDate end = missing.get(missing.size()-1);
+		String locationKey = locationKey(pincodeLocation);
+		return historyCoalescer.execute(oldWeatherKey(locationKey, start)+".."+end, () -> {
+			List<WeatherData> archived;
+			try {
+				archived = WeatherJsonParser.parseDailyWeather(fetchArchive(pincodeLocation, start, end), currentHour());
+			} catch(JsonProcessingException e) {
+				throw new UncheckedIOException("Unreadable archive response for "+locationKey+" "+start+".."+end, e);
+			}
+			
+			// the archive call spans start..end, which may include days that were already stored
+			Set<LocalDate> wanted = new HashSet<>(missing);
+			List<WeatherData> weatherDataList = new ArrayList<>();
+			for(WeatherData weatherData : archived) {
+				if(!wanted.contains(weatherData.getDate())) continue;
+				weatherData.setLatitude(pincodeLocation.getLatitude());
+				weatherData.setLongitude(pincodeLocation.getLongitude());
+				weatherDataList.add(weatherData);
+			}
+			
+			List<WeatherData> saved = saveAll(weatherDataList);
+			Map<String, WeatherData> toRedis = new HashMap<>();
+			for(WeatherData weatherData : saved)
+				toRedis.put(oldWeatherKey(locationKey, weatherData.getDate()), weatherData);
+			if(!toRedis.isEmpty())
+				setOldWeather(toRedis);
+			return saved;
+		});
+	}
+	
+	public static String locationKey(PincodeLocation pincodeLocation) {
+		return locationKey(pincodeLocation.getLatitude(), pincodeLocation.getLongitude());
+	}
+	
+	public static String locationKey(Double latitude, Double longitude) {
+		return latitude+":"+longitude;
+	}
+	
+	public static String currentWeatherKey(String locationKey, LocalDate date) {
+		return STRING_KEY_PREFIX_C+locationKey+":"+date;
+	}
+	
+	public static String oldWeatherKey(String locationKey, LocalDate date) {
+		return STRING_KEY_PREFIX_O+locationKey+":"+date;
+	}
+	
+	public static String lastWeatherKey(String locationKey) {
+		return STRING_KEY_PREFIX_L+locationKey;
+	}
+	
+	// Weather is fetched, cached and stored for the grid cell of a location rather than its exact coordinates.
+	public PincodeLocation cell(PincodeLocation pincodeLocation) {
+		return locationGrid.snap(pincodeLocation);
+	}
+	
+	// Batch lookups below run once per grid cell and return results keyed by the locationKey of each
+	// given location, so pincodes sharing a cell share a result.
+	public Map<String, WeatherData> getCachedWeather(Collection<PincodeLocation> pincodeLocations, LocalDate date) {
+		return byLocation(pincodeLocations, getCachedCells(distinctCells(pincodeLocations), date));
+	}
+	
+	private Map<String, WeatherData> getCachedCells(Map<String, PincodeLocation> locations, LocalDate date) {
+		List<String> locationKeys = new ArrayList<>(locations.keySet());
+		Map<String, WeatherData> result = new HashMap<>();
+		if(locationKeys.isEmpty()) return result;
+		
+		if(date.equals(LocalDate.now())) {
+			locations.forEach(currentWeatherTracker::recordAccess);
+			List<String> redisKeys = locationKeys.stream().map(key -> currentWeatherKey(key, date)).toList();
+			List<WeatherDataDto> redisWeatherData = tierMetrics.time(TierMetrics.REDIS, CURRENT_WEATHER, "multiget",
+					() -> weatherRedis.opsForValue().multiGet(redisKeys));
+			List<PincodeLocation> stale = new ArrayList<>();
+			for(int i = 0; redisWeatherData != null && i < locationKeys.size(); i++) {
+				if(redisWeatherData.get(i) == null) continue;
+				result.put(locationKeys.get(i), WeatherDataDto.getWeatherData(redisWeatherData.get(i)));
+				if(!isFresh(redisWeatherData.get(i))) stale.add(locations.get(locationKeys.get(i)));
+			}
+			tierMetrics.count(TierMetrics.REDIS, CURRENT_WEATHER, result.size(), locationKeys.size()-result.size());
+			if(!stale.isEmpty()) revalidate(stale);
+			return result;
+		}
+		
+		List<String> redisKeys = locationKeys.stream().map(key -> oldWeatherKey(key, date)).toList();
+		List<WeatherData> redisWeatherData = tierMetrics.time(TierMetrics.REDIS, OLD_WEATHER, "multiget",
+				() -> weatherRedis2.opsForValue().multiGet(redisKeys));
+		List<PincodeLocation> dbMisses = new ArrayList<>();
+		for(int i = 0; i < locationKeys.size(); i++) {
+			WeatherData weatherData = redisWeatherData == null ? null : redisWeatherData.get(i);
+			if(weatherData != null) result.put(locationKeys.get(i), weatherData);
+			else dbMisses.add(locations.get(locationKeys.get(i)));
+		}
+		tierMetrics.count(TierMetrics.REDIS, OLD_WEATHER, result.size(), dbMisses.size());
+		
+		Map<String, WeatherData> fromArchive = new HashMap<>();
+		for(PincodeLocation location : List.copyOf(dbMisses)) {
+			String key = locationKey(location);
+			WeatherData weatherData = weatherArchive.getWeather(oldWeatherKey(key, date));
+			if(weatherData == null) continue;
+			result.put(key, weatherData);
+			fromArchive.put(oldWeatherKey(key, date), weatherData);
+			dbMisses.remove(location);
+		}
+		tierMetrics.count(TierMetrics.ARCHIVE, OLD_WEATHER, fromArchive.size(), dbMisses.size());
+		if(!fromArchive.isEmpty())
+			cacheOldWeather(fromArchive);
+		if(dbMisses.isEmpty()) return result;
+		
+		Map<String, WeatherData> fromDb = new HashMap<>();
+		List<WeatherDataView> rows = tierMetrics.time(TierMetrics.POSTGRES, WEATHER_DATA, "multiget",
+				() -> weatherDataRepo.findViewsByDateAndLatitudeInAndLongitudeIn(date,
+						dbMisses.stream().map(PincodeLocation::getLatitude).toList(),
+						dbMisses.stream().map(PincodeLocation::getLongitude).toList()));
+		for(WeatherDataView row : rows) {
+			WeatherData weatherData = row.toWeatherData();
+			String key = locationKey(weatherData.getLatitude(), weatherData.getLongitude());
+			// the IN/IN query can match lat/lon pairs that were never asked for
+			if(!locations.containsKey(key) || result.containsKey(key)) continue;
+			result.put(key, weatherData);
+			fromDb.put(oldWeatherKey(key, date), weatherData);
+		}
+		tierMetrics.count(TierMetrics.POSTGRES, WEATHER_DATA, fromDb.size(), dbMisses.size()-fromDb.size());
+		if(!fromDb.isEmpty())
+			setOldWeather(fromDb);
+		return result;
+	}
+	
+	// One upstream call for all locations, using Open-Meteo's comma-separated coordinate lists.
+	public Map<String, WeatherData> fetchWeather(Collection<PincodeLocation> pincodeLocations, LocalDate date) 
+			throws JsonMappingException, JsonProcessingException, ParseException {
+		return byLocation(pincodeLocations, fetchCells(new ArrayList<>(distinctCells(pincodeLocations).values()), date));
+	}
+	
+	private Map<String, WeatherData> fetchCells(List<PincodeLocation> locations, LocalDate date) 
+			throws JsonMappingException, JsonProcessingException, ParseException {
+		Map<String, WeatherData> result = new HashMap<>();
+		if(locations.isEmpty()) return result;
 		
+		boolean current = date.equals(LocalDate.now());
+		String latitudes = locations.stream().map(l -> String.valueOf(l.getLatitude())).collect(Collectors.joining(","));
+		String longitudes = locations.stream().map(l -> String.valueOf(l.getLongitude())).collect(Collectors.joining(","));
+		String url = current 
+				? currentWeatherUrl+"?latitude="+latitudes+"&longitude="+longitudes
+						+"&current=temperature_2m,wind_speed_10m&hourly=temperature_2m,relative_humidity_2m,wind_speed_10m&forecast_days=1"
+				: oldWeatherUrl+"?latitude="+latitudes+"&longitude="+longitudes
+						+"&start_date="+date+"&end_date="+date+"&hourly=temperature_2m,relative_humidity_2m,wind_speed_10m";
+		
+		String jsonResponse = null;
+		try {
+			jsonResponse = getUpstream(current ? upstreamGuards.forecast() : upstreamGuards.archive(), "batch-call", url);
+		}
+		catch(HttpClientErrorException  e) {
+			logger.warn("Batch call for {} locations rejected: {}", locations.size(), e.getStatusCode());
+			ObjectMapper objectMapper = new ObjectMapper();
+			JsonNode jsonNode = objectMapper.readTree(e.getResponseBodyAsString());
+			throw new IllegalArgumentException(jsonNode.path("reason").asText(e.getMessage()));
+		}
+		if(jsonResponse == null) {
+			throw new IllegalArgumentException("No response received for "+locations.size()+" locations, date: "+date);
+		}
+		
+		// results come back in request order
+		List<WeatherData> parsed = WeatherJsonParser.parseWeatherList(jsonResponse, currentHour());
+		List<WeatherData> weatherDataList = new ArrayList<>();
+		for(int i = 0; i < locations.size() && i < parsed.size(); i++) {
+			WeatherData weatherData = parsed.get(i);
+			weatherData.setLatitude(locations.get(i).getLatitude());
+			weatherData.setLongitude(locations.get(i).getLongitude());
+			weatherDataList.add(weatherData);
+		}
+		
+		if(current) {
+			for(WeatherData weatherData : weatherDataList) {
+				String key = locationKey(weatherData.getLatitude(), weatherData.getLongitude());
+				weatherData.setFetchedAt(System.currentTimeMillis());
+				setWithExpiration(currentWeatherKey(key, date), WeatherDataDto.get(weatherData, null));
+				currentWeatherTracker.recordWrite(key, System.currentTimeMillis()+CURRENT_WEATHER_TTL.toMillis());
+				result.put(key, weatherData);
+			}
+			return result;
+		}
+		
+		Map<String, WeatherData> toRedis = new HashMap<>();
+		for(WeatherData weatherData : saveAll(weatherDataList)) {
+			String key = locationKey(weatherData.getLatitude(), weatherData.getLongitude());
+			toRedis.put(oldWeatherKey(key, date), weatherData);
+			result.put(key, weatherData);
+		}
+		setOldWeather(toRedis);
+		return result;
+	}
+	
+	private List<WeatherData> saveAll(List<WeatherData> weatherDataList) {
+		weatherDataWriteBehind.addAll(weatherDataList);
+		return weatherDataList;
+	}
+	
+	private void setOldWeather(Map<String, WeatherData> weatherData) {
+		cacheOldWeather(weatherData);
+		tierMetrics.time(TierMetrics.ARCHIVE, OLD_WEATHER, "put", () -> weatherData.forEach(weatherArchive::putWeather));
+	}
+	
+	private void cacheOldWeather(Map<String, WeatherData> weatherData) {
+		tierMetrics.time(TierMetrics.REDIS, OLD_WEATHER, "multiset", () -> weatherRedis2.opsForValue().multiSet(weatherData));
+	}
+	
+	private Map<String, PincodeLocation> distinctCells(Collection<PincodeLocation> pincodeLocations) {
+		Map<String, PincodeLocation> cells = new LinkedHashMap<>();
+		for(PincodeLocation pincodeLocation : pincodeLocations) {
+			PincodeLocation cell = cell(pincodeLocation);
+			cells.putIfAbsent(locationKey(cell), cell);
+		}
+		return cells;
+	}
+	
+	private Map<String, WeatherData> byLocation(Collection<PincodeLocation> pincodeLocations, Map<String, WeatherData> byCell) {
+		Map<String, WeatherData> result = new HashMap<>();
+		for(PincodeLocation pincodeLocation : pincodeLocations) {
+			WeatherData weatherData = byCell.get(locationKey(cell(pincodeLocation)));
+			if(weatherData != null) result.put(locationKey(pincodeLocation), weatherData);
+		}
+		return result;
+	}
+	
+	@Override
+	// Stored by the write-behind queue; readers get the row from redis until it is flushed.
+	public WeatherData createOldWeather(WeatherData weatherData) {
+		weatherDataWriteBehind.add(weatherData);
+		return weatherData;
+	}
+	
+	@Override
+	public WeatherData jsonToWeatherData(String jsonResponse) throws JsonMappingException, JsonProcessingException, ParseException {
+		return WeatherJsonParser.parseWeather(jsonResponse, currentHour());
 	}
 
-}
+}
\ No newline at end of file
@@ -0,0 +1,204 @@
+package com.arun.app.services;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/*
+ * weather_data range-partitioned by month into weather_data_YYYY_MM tables, so reads of a date
+ * only touch one partition and retention is a DROP TABLE instead of a DELETE.
+ *
+ * Hibernate creates weather_data as a plain table. Converting it is a one-off migration, run by
+ * starting one instance with WEATHER_PARTITION_CONVERT=true: after the schema update, in a single
+ * transaction holding the partition advisory lock and an EXCLUSIVE lock on weather_data (reads go
+ * on, writes wait), the rows are copied into a partitioned table with primary key (id, date) that
+ * then replaces it. Rows without a date cannot be partitioned and are moved to weather_data_undated.
+ * A failure rolls everything back. Afterwards
+ * hibernate sees the table through hbm2ddl.extra_physical_table_types, so its updates only add
+ * columns, which reach every partition.
+ *
+ * On a partitioned table, partitions are created ahead of the write-behind inserts and by the
+ * maintenance job, which also drops months before WEATHER_RETENTION_MONTHS once their rollups are
+ * refreshed. Every create and drop holds the advisory lock, so instances do not race each other.
+ */
+@Service
+public class WeatherPartitionService implements IWeatherPartitionService, SmartInitializingSingleton {
+	private static final String TABLE = "weather_data";
+	private static final DateTimeFormatter SUFFIX = DateTimeFormatter.ofPattern("yyyy_MM");
+	// pg_advisory_xact_lock key of partition changes ("weather" in ASCII)
+	private static final long PARTITION_LOCK = 0x77656174686572L;
+
+	private final JdbcTemplate jdbcTemplate;
+	private final TransactionTemplate transactionTemplate;
+	private final IWeatherRollupService weatherRollupService;
+	private final boolean enabled;
+	private final boolean convert;
+	private final int retentionMonths;
+	private final Set<YearMonth> partitions = ConcurrentHashMap.newKeySet();
+	private volatile boolean partitioned;
+
+	Logger logger = LoggerFactory.getLogger(WeatherPartitionService.class);
+
+	public WeatherPartitionService(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+			IWeatherRollupService weatherRollupService,
+			@Value("${WEATHER_PARTITIONING:true}") boolean enabled,
+			@Value("${WEATHER_PARTITION_CONVERT:false}") boolean convert,
+			@Value("${WEATHER_RETENTION_MONTHS:0}") int retentionMonths) {
+		this.jdbcTemplate = jdbcTemplate;
+		this.transactionTemplate = new TransactionTemplate(transactionManager);
+		this.weatherRollupService = weatherRollupService;
+		this.enabled = enabled;
+		this.convert = convert;
+		this.retentionMonths = retentionMonths;
+	}
+
+	// runs once the schema update has created weather_data, before the server takes requests
+	@Override
+	public void afterSingletonsInstantiated() {
+		if(!enabled) return;
+		if(convert)
+			transactionTemplate.executeWithoutResult(status -> {
+				lock();
+				// another instance may have converted it while this one waited for the lock
+				if("r".equals(relkind())) convert();
+			});
+		partitioned = "p".equals(relkind());
+		if(!partitioned) {
+			logger.info("{} is not partitioned, retention is off until it is converted with WEATHER_PARTITION_CONVERT=true", TABLE);
+			return;
+		}
+		partitions.addAll(loadPartitions());
+		maintain();
+	}
+
+	private String relkind() {
+		return jdbcTemplate.queryForObject("SELECT CAST(relkind AS text) FROM pg_class WHERE oid = to_regclass(?)",
+				String.class, TABLE);
+	}
+
+	private void lock() {
+		jdbcTemplate.execute("SELECT pg_advisory_xact_lock(" + PARTITION_LOCK + ")");
+	}
+
+	private List<YearMonth> loadPartitions() {
+		return jdbcTemplate.queryForList("SELECT CAST(c.relname AS text) FROM pg_inherits i "
+				+ "JOIN pg_class c ON c.oid = i.inhrelid WHERE i.inhparent = to_regclass(?)", String.class, TABLE)
+				.stream().map(WeatherPartitionService::monthOf).toList();
+	}
+
+	private void convert() {
+		jdbcTemplate.execute("LOCK TABLE " + TABLE + " IN EXCLUSIVE MODE");
+		// rows without a date have no partition; they are kept aside rather than dropped with the table
+		Integer undated = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM " + TABLE + " WHERE date IS NULL", Integer.class);
+		if(undated != null && undated > 0) {
+			jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS " + TABLE + "_undated (LIKE " + TABLE + " INCLUDING DEFAULTS)");
+			jdbcTemplate.update("INSERT INTO " + TABLE + "_undated SELECT * FROM " + TABLE + " WHERE date IS NULL");
+			logger.warn("{} rows of {} have no date, moved to {}_undated", undated, TABLE, TABLE);
+		}
+		jdbcTemplate.execute("CREATE TABLE " + TABLE + "_partitioned (LIKE " + TABLE + " INCLUDING DEFAULTS, "
+				+ "PRIMARY KEY (id, date)) PARTITION BY RANGE (date)");
+		Set<YearMonth> months = new TreeSet<>(jdbcTemplate.queryForList("SELECT DISTINCT CAST(date_trunc('month', date) AS date) "
+				+ "FROM " + TABLE + " WHERE date IS NOT NULL", LocalDate.class).stream().map(YearMonth::from).toList());
+		months.add(YearMonth.now());
+		months.add(YearMonth.now().plusMonths(1));
+		for(YearMonth month : months)
+			jdbcTemplate.execute(createSql(TABLE + "_partitioned", month));
+		int rows = jdbcTemplate.update("INSERT INTO " + TABLE + "_partitioned SELECT * FROM " + TABLE + " WHERE date IS NOT NULL");
+		jdbcTemplate.execute("DROP TABLE " + TABLE);
+		jdbcTemplate.execute("ALTER TABLE " + TABLE + "_partitioned RENAME TO " + TABLE);
+		jdbcTemplate.execute("CREATE INDEX index_latitude_longitude_date ON " + TABLE + " (latitude, longitude, date)");
+		logger.info("{} converted to {} monthly partitions, {} rows copied", TABLE, months.size(), rows);
+	}
+
+	// the current and next month exist before their rows arrive, expired months are dropped
+	@Override
+	@Scheduled(cron = "${WEATHER_PARTITION_CRON:0 30 3 * * *}")
+	public void maintain() {
+		if(!partitioned) return;
+		LocalDate today = LocalDate.now();
+		ensurePartitions(List.of(today, today.plusMonths(1)));
+		dropExpired();
+	}
+
+	// called for every write-behind batch; known months return without a lock
+	@Override
+	public void ensurePartitions(Collection<LocalDate> dates) {
+		if(!partitioned) return;
+		List<YearMonth> missing = dates.stream().filter(Objects::nonNull).map(YearMonth::from).distinct()
+				.filter(month -> !partitions.contains(month)).toList();
+		if(missing.isEmpty()) return;
+		synchronized(this) {
+			transactionTemplate.executeWithoutResult(status -> {
+				lock();
+				for(YearMonth month : missing)
+					jdbcTemplate.execute(createSql(TABLE, month));
+			});
+			partitions.addAll(missing);
+		}
+		logger.info("Partitions created for {}", missing);
+	}
+
+	@Override
+	public boolean isRetained(LocalDate date) {
+		return retentionMonths <= 0 || date == null || !YearMonth.from(date).isBefore(cutoff());
+	}
+
+	/*
+	 * One transaction per month: its rollups are refreshed, then the partition is dropped. The
+	 * list is read again under the lock, so months created by other instances are dropped too.
+	 */
+	@Override
+	public synchronized int dropExpired() {
+		if(!partitioned || retentionMonths <= 0) return 0;
+		YearMonth cutoff = cutoff();
+		int dropped = 0;
+		for(YearMonth month : new TreeSet<>(loadPartitions())) {
+			if(!month.isBefore(cutoff)) continue;
+			boolean done = Boolean.TRUE.equals(transactionTemplate.execute(status -> {
+				lock();
+				if(!loadPartitions().contains(month)) return false;
+				weatherRollupService.refresh(month);
+				jdbcTemplate.execute("DROP TABLE " + partitionName(month));
+				return true;
+			}));
+			partitions.remove(month);
+			if(!done) continue;
+			dropped++;
+			logger.info("Partition {} dropped, older than {} months", partitionName(month), retentionMonths);
+		}
+		return dropped;
+	}
+
+	private YearMonth cutoff() {
+		return YearMonth.now().minusMonths(retentionMonths);
+	}
+
+	private static String createSql(String parent, YearMonth month) {
+		return "CREATE TABLE IF NOT EXISTS " + partitionName(month) + " PARTITION OF " + parent
+				+ " FOR VALUES FROM ('" + month.atDay(1) + "') TO ('" + month.plusMonths(1).atDay(1) + "')";
+	}
+
+	private static String partitionName(YearMonth month) {
+		return TABLE + "_" + month.format(SUFFIX);
+	}
+
+	private static YearMonth monthOf(String partition) {
+		return YearMonth.parse(partition.substring(TABLE.length() + 1), SUFFIX);
+	}
+}
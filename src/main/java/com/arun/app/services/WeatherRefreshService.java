@@ -0,0 +1,104 @@
+package com.arun.app.services;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.arun.app.dtos.WeatherDataDto;
+import com.arun.app.models.PincodeLocation;
+import com.arun.app.utils.HotKeyTracker;
+import com.arun.app.utils.HotKeyTracker.Hot;
+
+/*
+ * Refresh-ahead for "current-weather:" entries. Locations read often enough to be in the hot set
+ * are re-fetched within the lead time before their entry expires, so readers keep hitting redis.
+ * Refreshes share one upstream call per tick and are capped by a token bucket; locations a request
+ * is already fetching or revalidating are left to it.
+ */
+@Service
+public class WeatherRefreshService implements IWeatherRefreshService {
+	private final WeatherDataService weatherDataService;
+	private final RedisTemplate<String, WeatherDataDto> weatherRedis;
+	private final HotKeyTracker<String, PincodeLocation> currentWeatherTracker;
+	private final int hotSetSize;
+	private final long minHits;
+	private final Duration lead;
+	private final double maxPerSecond;
+	private double tokens;
+	private long lastRefill = System.nanoTime();
+
+	Logger logger = LoggerFactory.getLogger(WeatherRefreshService.class);
+
+	public WeatherRefreshService(WeatherDataService weatherDataService, RedisTemplate<String, WeatherDataDto> weatherRedis,
+			HotKeyTracker<String, PincodeLocation> currentWeatherTracker,
+			@Value("${REFRESH_AHEAD_HOT_KEYS:100}") int hotSetSize,
+			@Value("${REFRESH_AHEAD_MIN_HITS:2}") long minHits,
+			@Value("${REFRESH_AHEAD_LEAD:30s}") Duration lead,
+			@Value("${REFRESH_AHEAD_MAX_PER_SECOND:5}") double maxPerSecond) {
+		this.weatherDataService = weatherDataService;
+		this.weatherRedis = weatherRedis;
+		this.currentWeatherTracker = currentWeatherTracker;
+		this.hotSetSize = hotSetSize;
+		this.minHits = minHits;
+		this.lead = lead;
+		this.maxPerSecond = maxPerSecond;
+		this.tokens = maxPerSecond;
+	}
+
+	@Override
+	@Scheduled(fixedDelayString = "${REFRESH_AHEAD_INTERVAL:1s}")
+	public synchronized int refreshDue() {
+		if(hotSetSize <= 0) return 0;
+		int budget = refill();
+		if(budget == 0) return 0;
+
+		long now = System.currentTimeMillis();
+		LocalDate today = LocalDate.now();
+		List<PincodeLocation> due = new ArrayList<>();
+		try {
+			for(Hot<String, PincodeLocation> hot : currentWeatherTracker.hottest(hotSetSize, minHits)) {
+				if(due.size() >= budget) break;
+				if(hot.expiresAt() > now+lead.toMillis()) continue;
+				// the entry may have been written by another instance, or not seen written here at all
+				Long ttl = weatherRedis.getExpire(WeatherDataService.currentWeatherKey(hot.key(), today), TimeUnit.MILLISECONDS);
+				long freshFor = ttl == null ? -1 : WeatherDataService.freshForMillis(ttl);
+				if(freshFor > lead.toMillis()) {
+					currentWeatherTracker.recordWrite(hot.key(), now+freshFor);
+					continue;
+				}
+				due.add(hot.value());
+			}
+			if(due.isEmpty()) return 0;
+
+			int refreshed = weatherDataService.refreshCurrentWeather(due);
+			tokens -= refreshed;
+			logger.debug("Refreshed current weather for {} of {} hot locations", refreshed, due.size());
+			return refreshed;
+		} catch(Exception e) {
+			logger.warn("Refresh-ahead of {} locations failed: {}", due.size(), e.getMessage());
+			return 0;
+		}
+	}
+
+	@Override
+	@Scheduled(fixedRateString = "${REFRESH_AHEAD_DECAY_INTERVAL:5m}")
+	public void decay() {
+		currentWeatherTracker.decay();
+	}
+
+	private int refill() {
+		long now = System.nanoTime();
+		tokens = Math.min(maxPerSecond, tokens+maxPerSecond*(now-lastRefill)/1e9);
+		lastRefill = now;
+		return (int) tokens;
+	}
+}
@@ -0,0 +1,132 @@
+package com.arun.app.services;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.arun.app.dtos.WeatherSummaryDto;
+import com.arun.app.models.PincodeLocation;
+import com.arun.app.repositories.WeatherMonthlyRollupRepo;
+import com.arun.app.utils.HourlySeries;
+import com.arun.app.utils.LocationGrid;
+import com.arun.app.utils.TierMetrics;
+
+/*
+ * Monthly min/max/average of temperature and humidity per grid cell, kept in
+ * weather_monthly_rollup so summaries never scan weather_data. The values are those of the 24
+ * hourly readings of each stored day, unpacked from the HourlySeries bytes in SQL; days stored
+ * before the series was kept count with their one reading. A run recomputes the open (current)
+ * month and the months the write-behind sink recorded as changed, one partition each. The first
+ * run after startup also recomputes the WEATHER_ROLLUP_BACKFILL_MONTHS months before the current
+ * one, for rows written by another instance or before a crash. Rollups outlive the partitions
+ * dropped by retention.
+ */
+@Service
+public class WeatherRollupService implements IWeatherRollupService {
+	// raw is the unsigned big-endian short of an hourly temperature in tenths
+	private static final String HOURLY_READINGS = "SELECT CASE WHEN raw = " + (HourlySeries.MISSING & 0xFFFF) + " THEN NULL "
+			+ "ELSE (raw - CASE WHEN raw > 32767 THEN 65536 ELSE 0 END) / 10.0 END AS temperature, "
+			+ "NULLIF(get_byte(w.hourly, " + HourlySeries.HUMIDITY_OFFSET + " + hour), 255) AS humidity "
+			+ "FROM generate_series(0, " + (HourlySeries.HOURS-1) + ") hour, "
+			+ "LATERAL (SELECT get_byte(w.hourly, 2*hour)*256 + get_byte(w.hourly, 2*hour+1) AS raw) t "
+			+ "WHERE w.hourly IS NOT NULL "
+			+ "UNION ALL SELECT w.temperature, w.humidity WHERE w.hourly IS NULL";
+	private static final String UPSERT_SQL = "INSERT INTO weather_monthly_rollup "
+			+ "(latitude, longitude, month, days, min_temperature, max_temperature, avg_temperature, "
+			+ "min_humidity, max_humidity, avg_humidity) "
+			+ "SELECT w.latitude, w.longitude, CAST(date_trunc('month', w.date) AS date), COUNT(DISTINCT w.date), "
+			+ "MIN(h.temperature), MAX(h.temperature), AVG(h.temperature), MIN(h.humidity), MAX(h.humidity), AVG(h.humidity) "
+			+ "FROM weather_data w CROSS JOIN LATERAL (" + HOURLY_READINGS + ") h "
+			+ "WHERE w.date >= ? AND w.date < ? "
+			+ "GROUP BY w.latitude, w.longitude, date_trunc('month', w.date) "
+			+ "ON CONFLICT (latitude, longitude, month) DO UPDATE SET days = EXCLUDED.days, "
+			+ "min_temperature = EXCLUDED.min_temperature, max_temperature = EXCLUDED.max_temperature, "
+			+ "avg_temperature = EXCLUDED.avg_temperature, min_humidity = EXCLUDED.min_humidity, "
+			+ "max_humidity = EXCLUDED.max_humidity, avg_humidity = EXCLUDED.avg_humidity";
+	private static final String ROLLUPS = "weather-rollup";
+
+	private final JdbcTemplate jdbcTemplate;
+	private final WeatherMonthlyRollupRepo weatherMonthlyRollupRepo;
+	private final PincodeLocationService pincodeLocationService;
+	private final LocationGrid locationGrid;
+	private final TierMetrics tierMetrics;
+	private final boolean enabled;
+	private final int backfillMonths;
+	private final Set<YearMonth> changed = ConcurrentHashMap.newKeySet();
+	private volatile boolean backfilled;
+
+	Logger logger = LoggerFactory.getLogger(WeatherRollupService.class);
+
+	public WeatherRollupService(JdbcTemplate jdbcTemplate, WeatherMonthlyRollupRepo weatherMonthlyRollupRepo,
+			PincodeLocationService pincodeLocationService, LocationGrid locationGrid, TierMetrics tierMetrics,
+			@Value("${WEATHER_ROLLUP_ENABLED:true}") boolean enabled,
+			@Value("${WEATHER_ROLLUP_BACKFILL_MONTHS:3}") int backfillMonths) {
+		this.jdbcTemplate = jdbcTemplate;
+		this.weatherMonthlyRollupRepo = weatherMonthlyRollupRepo;
+		this.pincodeLocationService = pincodeLocationService;
+		this.locationGrid = locationGrid;
+		this.tierMetrics = tierMetrics;
+		this.enabled = enabled;
+		this.backfillMonths = backfillMonths;
+	}
+
+	@Override
+	public void markChanged(Collection<LocalDate> dates) {
+		for(LocalDate date : dates)
+			if(date != null) changed.add(YearMonth.from(date));
+	}
+
+	@Override
+	@Scheduled(fixedDelayString = "${WEATHER_ROLLUP_INTERVAL:1h}", initialDelayString = "${WEATHER_ROLLUP_INTERVAL:1h}")
+	public synchronized int refreshChanged() {
+		if(!enabled) return 0;
+		YearMonth open = YearMonth.now();
+		Set<YearMonth> months = new TreeSet<>(changed);
+		months.add(open);
+		if(!backfilled)
+			for(int i = 1; i <= backfillMonths; i++) months.add(open.minusMonths(i));
+		int rows = 0;
+		for(YearMonth month : months) {
+			changed.remove(month);
+			try {
+				rows += refresh(month);
+			} catch(RuntimeException e) {
+				changed.add(month);
+				throw e;
+			}
+		}
+		if(!backfilled) logger.info("Weather rollups of {} months recomputed: {} location-months", months.size(), rows);
+		backfilled = true;
+		return rows;
+	}
+
+	// recomputes the rollups of one month from its rows, before retention drops them or after they changed
+	@Override
+	public int refresh(YearMonth month) {
+		return tierMetrics.time(TierMetrics.POSTGRES, ROLLUPS, "refresh", () -> jdbcTemplate.update(
+				UPSERT_SQL, Date.valueOf(month.atDay(1)), Date.valueOf(month.plusMonths(1).atDay(1))));
+	}
+
+	@Override
+	public List<WeatherSummaryDto> getSummary(String pincode, YearMonth from, YearMonth to) throws Exception {
+		if(from.isAfter(to))
+			throw new IllegalArgumentException("from month must not be after to month");
+		PincodeLocation cell = locationGrid.snap(pincodeLocationService.getPincodeLocation(pincode));
+		return tierMetrics.time(TierMetrics.POSTGRES, ROLLUPS, "range", () -> weatherMonthlyRollupRepo
+				.findByLatitudeAndLongitudeAndMonthBetweenOrderByMonth(cell.getLatitude(), cell.getLongitude(),
+						from.atDay(1), to.atDay(1)))
+				.stream().map(rollup -> WeatherSummaryDto.get(rollup, pincode)).toList();
+	}
+}
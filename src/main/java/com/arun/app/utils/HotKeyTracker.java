@@ -0,0 +1,76 @@
+package com.arun.app.utils;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/*
+ * Approximate access frequency per key. Counts are halved on every decay() so keys that stop
+ * being read fall out of the hot set, and the tracked set is trimmed back to capacity there too.
+ * Between decays a full tracker ignores new keys, so it holds about capacity keys at most.
+ * Each key also remembers when its cached value expires, as far as this instance knows.
+ */
+public class HotKeyTracker<K, V> {
+	private final ConcurrentHashMap<K, Entry<V>> entries = new ConcurrentHashMap<>();
+	private final int capacity;
+
+	public HotKeyTracker(int capacity) {
+		this.capacity = capacity;
+	}
+
+	public void recordAccess(K key, V value) {
+		Entry<V> entry = entries.get(key);
+		if(entry == null) {
+			if(entries.size() >= capacity) return;
+			entry = entries.computeIfAbsent(key, k -> new Entry<>(value));
+		}
+		entry.hits.incrementAndGet();
+	}
+
+	// expiresAt is epoch millis of the cached value's expiry; ignored for keys that are not tracked
+	public void recordWrite(K key, long expiresAt) {
+		Entry<V> entry = entries.get(key);
+		if(entry != null) entry.expiresAt = expiresAt;
+	}
+
+	// tracked keys with at least minHits, hottest first
+	public List<Hot<K, V>> hottest(int limit, long minHits) {
+		List<Hot<K, V>> hot = new ArrayList<>();
+		for(Map.Entry<K, Entry<V>> entry : entries.entrySet()) {
+			long hits = entry.getValue().hits.get();
+			if(hits >= minHits)
+				hot.add(new Hot<>(entry.getKey(), entry.getValue().value, hits, entry.getValue().expiresAt));
+		}
+		hot.sort(Comparator.comparingLong(Hot<K, V>::hits).reversed());
+		return hot.size() > limit ? new ArrayList<>(hot.subList(0, limit)) : hot;
+	}
+
+	public void decay() {
+		entries.values().removeIf(entry -> entry.hits.updateAndGet(hits -> hits >> 1) == 0);
+		if(entries.size() <= capacity) return;
+
+		List<Hot<K, V>> keep = hottest(capacity, 0);
+		entries.keySet().retainAll(keep.stream().map(Hot::key).collect(Collectors.toSet()));
+	}
+
+	public int size() {
+		return entries.size();
+	}
+
+	public record Hot<K, V>(K key, V value, long hits, long expiresAt) {
+	}
+
+	private static class Entry<V> {
+		private final V value;
+		private final AtomicLong hits = new AtomicLong();
+		private volatile long expiresAt;
+
+		private Entry(V value) {
+			this.value = value;
+		}
+	}
+}
@@ -0,0 +1,59 @@
+package com.arun.app.utils;
+
+import java.nio.ByteBuffer;
+
+/*
+ * The 24 hourly readings of one location-day packed column-wise into 120 bytes: temperature and
+ * wind speed as tenths in shorts, then humidity as one byte per hour. Open-Meteo reports one
+ * decimal, so nothing is lost. Missing readings are stored as Short.MIN_VALUE and -1.
+ */
+public final class HourlySeries {
+	public static final int HOURS = 24;
+	public static final int BYTES = HOURS*(Short.BYTES+Short.BYTES+Byte.BYTES);
+	private static final int WIND_SPEED_OFFSET = HOURS*Short.BYTES;
+	// also decoded in SQL by WeatherRollupService
+	public static final int HUMIDITY_OFFSET = 2*HOURS*Short.BYTES;
+	public static final short MISSING = Short.MIN_VALUE;
+
+	private HourlySeries() {
+	}
+
+	// reads hours from..from+23 of the given arrays; NaN and negative humidity mean missing
+	public static byte[] pack(double[] temperature, double[] windSpeed, int[] humidity, int from) {
+		ByteBuffer buffer = ByteBuffer.allocate(BYTES);
+		for(int hour = 0; hour < HOURS; hour++) {
+			int i = from+hour;
+			buffer.putShort(hour*Short.BYTES, tenths(i < temperature.length ? temperature[i] : Double.NaN));
+			buffer.putShort(WIND_SPEED_OFFSET+hour*Short.BYTES, tenths(i < windSpeed.length ? windSpeed[i] : Double.NaN));
+			buffer.put(HUMIDITY_OFFSET+hour, (byte) (i < humidity.length && humidity[i] >= 0 ? humidity[i] : -1));
+		}
+		return buffer.array();
+	}
+
+	public static Double temperatureAt(byte[] series, int hour) {
+		return fromTenths(ByteBuffer.wrap(series).getShort(checkHour(hour)*Short.BYTES));
+	}
+
+	public static Double windSpeedAt(byte[] series, int hour) {
+		return fromTenths(ByteBuffer.wrap(series).getShort(WIND_SPEED_OFFSET+checkHour(hour)*Short.BYTES));
+	}
+
+	public static Integer humidityAt(byte[] series, int hour) {
+		byte humidity = series[HUMIDITY_OFFSET+checkHour(hour)];
+		return humidity < 0 ? null : (int) humidity;
+	}
+
+	private static int checkHour(int hour) {
+		if(hour < 0 || hour >= HOURS)
+			throw new IllegalArgumentException("hour must be between 0 and 23");
+		return hour;
+	}
+
+	private static short tenths(double value) {
+		return Double.isNaN(value) ? MISSING : (short) Math.round(value*10);
+	}
+
+	private static Double fromTenths(short value) {
+		return value == MISSING ? null : value/10.0;
+	}
+}
@@ -0,0 +1,41 @@
+package com.arun.app.utils;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.arun.app.models.BaseModel;
+
+/*
+ * The pooled id sequence shared by all entities (see BaseModel), for code that inserts through
+ * plain JDBC. Ids are handed out the way hibernate's pooled optimizer does it: a nextval of hi
+ * reserves hi-ID_ALLOCATION+1..hi, so rows inserted here never collide with ids of the entity path.
+ */
+public class IdSequence {
+	private static final String NEXTVAL_SQL = "SELECT nextval('" + BaseModel.ID_SEQUENCE + "') FROM generate_series(1, ?)";
+
+	private final JdbcTemplate jdbcTemplate;
+
+	public IdSequence(JdbcTemplate jdbcTemplate) {
+		this.jdbcTemplate = jdbcTemplate;
+	}
+
+	public long[] allocate(int count) {
+		long[] ids = new long[count];
+		int filled = 0;
+		while(filled < count) {
+			int blocks = (count-filled+BaseModel.ID_ALLOCATION-1)/BaseModel.ID_ALLOCATION;
+			// the first value of a new sequence is 1, whose block holds that id only
+			for(long hi : jdbcTemplate.queryForList(NEXTVAL_SQL, Long.class, blocks))
+				for(long id = Math.max(1, hi-BaseModel.ID_ALLOCATION+1); id <= hi && filled < count; id++)
+					ids[filled++] = id;
+		}
+		return ids;
+	}
+
+	// moves the sequence past the largest id of every table, never backwards; returns the new value
+	public Long align() {
+		return jdbcTemplate.queryForObject("SELECT setval('" + BaseModel.ID_SEQUENCE + "', GREATEST("
+				+ "(SELECT COALESCE(MAX(id), 0) FROM weather_data), "
+				+ "(SELECT COALESCE(MAX(id), 0) FROM pincode_locations), "
+				+ "(SELECT last_value FROM " + BaseModel.ID_SEQUENCE + ")))", Long.class);
+	}
+}
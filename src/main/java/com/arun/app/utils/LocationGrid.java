@@ -0,0 +1,40 @@
+package com.arun.app.utils;
+
+import com.arun.app.models.PincodeLocation;
+
+/*
+ * Snaps coordinates to the centre of a square grid cell of cellDegrees on each side. Weather is
+ * fetched, cached and stored per cell, so pincodes a few hundred metres apart share one upstream
+ * call, one redis entry and one row per day. The default 0.05 degrees (about 5.5 km) stays below
+ * the resolution of the Open-Meteo models. A cell size of 0 keeps the raw coordinates.
+ */
+public class LocationGrid {
+	private static final double ROUNDING = 1e6;
+
+	private final double cellDegrees;
+
+	public LocationGrid(double cellDegrees) {
+		if(cellDegrees < 0 || cellDegrees > 1)
+			throw new IllegalArgumentException("Grid cell size must be between 0 and 1 degree: "+cellDegrees);
+		this.cellDegrees = cellDegrees;
+	}
+
+	// copy of the location moved to its cell centre; the pincode and name are kept
+	public PincodeLocation snap(PincodeLocation pincodeLocation) {
+		if(cellDegrees == 0 || pincodeLocation == null) return pincodeLocation;
+		PincodeLocation cell = new PincodeLocation();
+		cell.setPincode(pincodeLocation.getPincode());
+		cell.setName(pincodeLocation.getName());
+		cell.setCountry(pincodeLocation.getCountry());
+		cell.setLatitude(snap(pincodeLocation.getLatitude()));
+		cell.setLongitude(snap(pincodeLocation.getLongitude()));
+		return cell;
+	}
+
+	public Double snap(Double coordinate) {
+		if(cellDegrees == 0 || coordinate == null) return coordinate;
+		// the centre maps back to the same cell, so snapping twice is harmless
+		double centre = (Math.floor(coordinate/cellDegrees)+0.5)*cellDegrees;
+		return Math.round(centre*ROUNDING)/ROUNDING;
+	}
+}
@@ -0,0 +1,39 @@
+package com.arun.app.utils;
+
+import java.util.BitSet;
+
+/*
+ * Up-front check of the 6-digit Indian pincode format, so malformed input is rejected before it
+ * reaches the caches, the database or the geocoding API. The first digit is the region and the
+ * first two the postal circle; prefixes outside the circles in use (10, 29, 35, 54-55, 65-66, 86-89)
+ * are never assigned. Allowed 3-digit prefixes are kept in a 1000-bit set.
+ */
+public final class PincodeFormat {
+	// first two digits of the postal circles; 90-99 is the Army Postal Service
+	private static final int[][] CIRCLES = {{11, 28}, {30, 34}, {36, 53}, {56, 64}, {67, 85}, {90, 99}};
+	private static final BitSet PREFIXES = new BitSet(1000);
+
+	static {
+		for(int[] circle : CIRCLES)
+			PREFIXES.set(circle[0]*10, circle[1]*10+10);
+	}
+
+	private PincodeFormat() {
+	}
+
+	public static boolean isValid(String pincode) {
+		if(pincode == null || pincode.length() != 6) return false;
+		int prefix = 0;
+		for(int i = 0; i < 6; i++) {
+			char c = pincode.charAt(i);
+			if(c < '0' || c > '9') return false;
+			if(i < 3) prefix = prefix*10+(c-'0');
+		}
+		return PREFIXES.get(prefix);
+	}
+
+	public static void check(String pincode) {
+		if(!isValid(pincode))
+			throw new IllegalArgumentException("Invalid pincode: "+pincode);
+	}
+}
@@ -0,0 +1,112 @@
+package com.arun.app.utils;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import com.arun.app.models.PincodeLocation;
+
+/*
+ * Nearest-pincode lookup over square buckets of cellDegrees. A query scans rings of buckets
+ * around the point and stops once no unscanned bucket can be closer than the best match, so a
+ * lookup touches a few dozen buckets. Buckets are immutable arrays replaced on write: readers
+ * never lock, writers (startup load, create/update, import) are serialised.
+ */
+public class PincodeSpatialIndex {
+	private static final double EARTH_RADIUS_KM = 6371.0;
+	private static final double KM_PER_DEGREE = Math.toRadians(1)*EARTH_RADIUS_KM;
+	private static final PincodeLocation[] EMPTY = new PincodeLocation[0];
+
+	private final double cellDegrees;
+	private final ConcurrentMap<Long, PincodeLocation[]> buckets = new ConcurrentHashMap<>();
+	private final ConcurrentMap<String, PincodeLocation> byPincode = new ConcurrentHashMap<>();
+
+	public PincodeSpatialIndex(double cellDegrees) {
+		if(cellDegrees <= 0 || cellDegrees > 1)
+			throw new IllegalArgumentException("Index cell size must be above 0 and at most 1 degree: "+cellDegrees);
+		this.cellDegrees = cellDegrees;
+	}
+
+	// adds or moves a pincode; locations without coordinates are ignored
+	public synchronized void put(PincodeLocation pincodeLocation) {
+		if(pincodeLocation == null || pincodeLocation.getPincode() == null
+				|| pincodeLocation.getLatitude() == null || pincodeLocation.getLongitude() == null) return;
+		PincodeLocation previous = byPincode.put(pincodeLocation.getPincode(), pincodeLocation);
+		if(previous != null)
+			buckets.computeIfPresent(bucket(previous.getLatitude(), previous.getLongitude()),
+					(key, entries) -> without(entries, previous));
+		buckets.merge(bucket(pincodeLocation.getLatitude(), pincodeLocation.getLongitude()),
+				new PincodeLocation[] {pincodeLocation}, PincodeSpatialIndex::concat);
+	}
+
+	public void putAll(Collection<PincodeLocation> pincodeLocations) {
+		pincodeLocations.forEach(this::put);
+	}
+
+	public int size() {
+		return byPincode.size();
+	}
+
+	// closest pincode within maxKm (great-circle distance), or null
+	public PincodeLocation nearest(double latitude, double longitude, double maxKm) {
+		int row = index(latitude);
+		int column = index(longitude);
+		double cellKm = cellDegrees*KM_PER_DEGREE;
+		PincodeLocation best = null;
+		double bestKm = maxKm;
+		for(int ring = 0; ; ring++) {
+			// a bucket in this ring is at least ring-1 whole cells away; longitude cells shrink towards the poles
+			double farthestLatitude = Math.min(89.0, Math.abs(latitude)+ring*cellDegrees);
+			double ringKm = Math.max(0, ring-1)*cellKm*Math.cos(Math.toRadians(farthestLatitude));
+			if(ringKm > bestKm) return best;
+
+			for(int dr = -ring; dr <= ring; dr++) {
+				boolean edgeRow = Math.abs(dr) == ring;
+				for(int dc = -ring; dc <= ring; dc += edgeRow || ring == 0 ? 1 : 2*ring) {
+					for(PincodeLocation candidate : buckets.getOrDefault(key(row+dr, column+dc), EMPTY)) {
+						double km = distanceKm(latitude, longitude, candidate.getLatitude(), candidate.getLongitude());
+						if(km <= bestKm) {
+							best = candidate;
+							bestKm = km;
+						}
+					}
+				}
+			}
+		}
+	}
+
+	public static double distanceKm(double lat1, double lon1, double lat2, double lon2) {
+		double dLat = Math.toRadians(lat2-lat1);
+		double dLon = Math.toRadians(lon2-lon1);
+		double a = Math.sin(dLat/2)*Math.sin(dLat/2)
+				+ Math.cos(Math.toRadians(lat1))*Math.cos(Math.toRadians(lat2))*Math.sin(dLon/2)*Math.sin(dLon/2);
+		return 2*EARTH_RADIUS_KM*Math.asin(Math.min(1, Math.sqrt(a)));
+	}
+
+	private int index(double coordinate) {
+		return (int) Math.floor(coordinate/cellDegrees);
+	}
+
+	private long bucket(double latitude, double longitude) {
+		return key(index(latitude), index(longitude));
+	}
+
+	private static long key(int row, int column) {
+		return ((long) row << 32) | (column & 0xffffffffL);
+	}
+
+	private static PincodeLocation[] concat(PincodeLocation[] entries, PincodeLocation[] added) {
+		PincodeLocation[] result = Arrays.copyOf(entries, entries.length+added.length);
+		System.arraycopy(added, 0, result, entries.length, added.length);
+		return result;
+	}
+
+	// null removes the bucket once it is empty
+	private static PincodeLocation[] without(PincodeLocation[] entries, PincodeLocation removed) {
+		PincodeLocation[] result = Arrays.stream(entries)
+				.filter(entry -> !entry.getPincode().equals(removed.getPincode()))
+				.toArray(PincodeLocation[]::new);
+		return result.length == 0 ? null : result;
+	}
+}
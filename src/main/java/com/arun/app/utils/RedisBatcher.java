@@ -0,0 +1,199 @@
+package com.arun.app.utils;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.core.RedisOperations;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.data.redis.core.ValueOperations;
+
+
+/*
+ * DataLoader-style batching of single-key GET and SET calls. Calls made by concurrent requests
+ * are queued and sent together by one flusher thread: the writes of a batch as one MSET (or one
+ * pipeline of SET .. PX when entries carry a TTL), then the reads as one MGET. A batch is sent
+ * after the window, or at once when maxBatch calls are queued; with a window of 0 calls are sent
+ * as soon as the previous round trip returns, so an idle batcher adds no wait. A lone call uses
+ * the plain GET/SET command. Writes of a batch land before its reads, so a caller reads its own
+ * writes; of several writes to one key in a batch the last wins.
+ */
+public class RedisBatcher<V> implements AutoCloseable {
+	private final String name;
+	private final RedisTemplate<String, V> redis;
+	private final long windowNanos;
+	private final int maxBatch;
+	private final ScheduledExecutorService flusher;
+	private final Queue<Call<V>> queue = new ConcurrentLinkedQueue<>();
+	private final AtomicInteger queued = new AtomicInteger();
+	private final AtomicBoolean scheduled = new AtomicBoolean();
+	private final AtomicLong callCount = new AtomicLong();
+	private final AtomicLong roundTripCount = new AtomicLong();
+
+	public RedisBatcher(String name, RedisTemplate<String, V> redis, Duration window, int maxBatch) {
+		if(window.isNegative() || maxBatch < 1)
+			throw new IllegalArgumentException("Redis batch window must not be negative and the batch size must be at least 1");
+		this.name = name;
+		this.redis = redis;
+		this.windowNanos = window.toNanos();
+		this.maxBatch = maxBatch;
+		this.flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "redis-batcher-"+name);
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	public CompletableFuture<V> load(String key) {
+		return enqueue(new Call<>(key, null, null, false, new CompletableFuture<>()));
+	}
+
+	// ttl null keeps the entry until it is overwritten or evicted
+	public CompletableFuture<V> store(String key, V value, Duration ttl) {
+		return enqueue(new Call<>(key, value, ttl, true, new CompletableFuture<>()));
+	}
+
+	public V get(String key) {
+		return await(load(key));
+	}
+
+	public void set(String key, V value, Duration ttl) {
+		await(store(key, value, ttl));
+	}
+
+	// calls fail with the RuntimeException redis threw, which is rethrown as it is
+	public static <T> T await(CompletableFuture<T> future) {
+		try {
+			return future.join();
+		} catch(CompletionException e) {
+			if(e.getCause() instanceof RuntimeException cause) throw cause;
+			throw e;
+		}
+	}
+
+	private CompletableFuture<V> enqueue(Call<V> call) {
+		queue.add(call);
+		if(queued.incrementAndGet() == maxBatch)
+			flusher.execute(this::flush);
+		else if(scheduled.compareAndSet(false, true))
+			flusher.schedule(this::flush, windowNanos, TimeUnit.NANOSECONDS);
+		return call.result();
+	}
+
+	private void flush() {
+		scheduled.set(false);
+		List<Call<V>> batch = new ArrayList<>();
+		for(Call<V> call; batch.size() < maxBatch && (call = queue.poll()) != null; )
+			batch.add(call);
+		queued.addAndGet(-batch.size());
+		if(batch.isEmpty()) return;
+		// whatever is left over goes out right after this batch
+		if(!queue.isEmpty() && scheduled.compareAndSet(false, true))
+			flusher.execute(this::flush);
+
+		Map<String, Call<V>> writes = new LinkedHashMap<>();
+		Map<String, List<Call<V>>> reads = new LinkedHashMap<>();
+		for(Call<V> call : batch) {
+			if(call.write()) writes.put(call.key(), call);
+			else reads.computeIfAbsent(call.key(), key -> new ArrayList<>()).add(call);
+		}
+		callCount.addAndGet(batch.size());
+
+		List<Call<V>> writeCalls = batch.stream().filter(Call::write).toList();
+		try {
+			if(!writes.isEmpty()) write(new ArrayList<>(writes.values()));
+			writeCalls.forEach(call -> call.result().complete(null));
+		} catch(RuntimeException e) {
+			writeCalls.forEach(call -> call.result().completeExceptionally(e));
+		}
+		try {
+			if(!reads.isEmpty()) read(reads);
+		} catch(RuntimeException e) {
+			reads.values().forEach(calls -> calls.forEach(call -> call.result().completeExceptionally(e)));
+		}
+	}
+
+	private void write(List<Call<V>> writes) {
+		roundTripCount.incrementAndGet();
+		ValueOperations<String, V> ops = redis.opsForValue();
+		if(writes.size() == 1) {
+			Call<V> call = writes.get(0);
+			if(call.ttl() == null) ops.set(call.key(), call.value());
+			else ops.set(call.key(), call.value(), call.ttl().toMillis(), TimeUnit.MILLISECONDS);
+		}
+		else if(writes.stream().allMatch(call -> call.ttl() == null)) {
+			Map<String, V> values = new LinkedHashMap<>();
+			writes.forEach(call -> values.put(call.key(), call.value()));
+			ops.multiSet(values);
+		}
+		else {
+			// MSET takes no expiry, so entries with a TTL go out as pipelined SET .. PX
+			redis.executePipelined(new SessionCallback<Object>() {
+				@Override
+				@SuppressWarnings("unchecked")
+				public <K, T> Object execute(RedisOperations<K, T> operations) throws DataAccessException {
+					ValueOperations<String, V> pipelined = ((RedisOperations<String, V>) operations).opsForValue();
+					for(Call<V> call : writes) {
+						if(call.ttl() == null) pipelined.set(call.key(), call.value());
+						else pipelined.set(call.key(), call.value(), call.ttl().toMillis(), TimeUnit.MILLISECONDS);
+					}
+					return null;
+				}
+			});
+		}
+	}
+
+	private void read(Map<String, List<Call<V>>> reads) {
+		roundTripCount.incrementAndGet();
+		ValueOperations<String, V> ops = redis.opsForValue();
+		List<String> keys = new ArrayList<>(reads.keySet());
+		if(keys.size() == 1) {
+			V value = ops.get(keys.get(0));
+			reads.get(keys.get(0)).forEach(call -> call.result().complete(value));
+			return;
+		}
+		List<V> values = ops.multiGet(keys);
+		// keys without a value in the reply, or no reply at all, are misses
+		for(int i = 0; i < keys.size(); i++) {
+			V value = values == null || i >= values.size() ? null : values.get(i);
+			reads.get(keys.get(i)).forEach(call -> call.result().complete(value));
+		}
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public long getCallCount() {
+		return callCount.get();
+	}
+
+	public long getRoundTripCount() {
+		return roundTripCount.get();
+	}
+
+	public int getQueuedCount() {
+		return queued.get();
+	}
+
+	@Override
+	public void close() {
+		flusher.shutdown();
+	}
+
+	private record Call<V>(String key, V value, Duration ttl, boolean write, CompletableFuture<V> result) {}
+}
@@ -0,0 +1,79 @@
+package com.arun.app.utils;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.UnaryOperator;
+
+import lombok.SneakyThrows;
+
+/*
+ * Single-flight: only one loader runs per key at a time in this JVM, every
+ * other caller for the same key waits for that result (or its exception).
+ * Waiters get their own copy of a mutable result, so no two callers share it.
+ */
+public class RequestCoalescer<K, V> {
+	private final ConcurrentMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+	private final UnaryOperator<V> copier;
+	private final AtomicLong executedCount = new AtomicLong();
+	private final AtomicLong coalescedCount = new AtomicLong();
+
+	// for immutable results, handed to every waiter as they are
+	public RequestCoalescer() {
+		this(UnaryOperator.identity());
+	}
+
+	public RequestCoalescer(UnaryOperator<V> copier) {
+		this.copier = copier;
+	}
+
+	@SneakyThrows
+	public V execute(K key, Callable<V> loader) {
+		CompletableFuture<V> future = new CompletableFuture<>();
+		CompletableFuture<V> existing = inFlight.putIfAbsent(key, future);
+		if(existing != null) {
+			coalescedCount.incrementAndGet();
+			V value;
+			try {
+				value = existing.get();
+			} catch(ExecutionException e) {
+				throw e.getCause();
+			} catch(InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw e;
+			}
+			return value == null ? null : copier.apply(value);
+		}
+
+		executedCount.incrementAndGet();
+		try {
+			V value = loader.call();
+			future.complete(value);
+			return value;
+		} catch(Throwable e) {
+			future.completeExceptionally(e);
+			throw e;
+		} finally {
+			inFlight.remove(key, future);
+		}
+	}
+
+	public long getExecutedCount() {
+		return executedCount.get();
+	}
+
+	public long getCoalescedCount() {
+		return coalescedCount.get();
+	}
+
+	public boolean isInFlight(K key) {
+		return inFlight.containsKey(key);
+	}
+
+	public int getInFlightCount() {
+		return inFlight.size();
+	}
+}
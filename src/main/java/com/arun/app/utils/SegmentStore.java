@@ -0,0 +1,178 @@
+package com.arun.app.utils;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.BiConsumer;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/*
+ * Append-only key-value log in fixed-size, memory-mapped segment files. Every put appends a
+ * record and points the in-memory index (key -> segment and offset) at it, so the newest record
+ * of a key wins and reads are a map lookup plus a copy out of the mapped file. Opening the store
+ * scans the segments to rebuild the index; a torn record at the end of the last segment (a crash
+ * during a put) fails its checksum and is overwritten by the next put.
+ *
+ * Record: key length (int), value length (int), CRC32C of key and value (int), key, value. The
+ * key length is written last, and a zero key length marks the unwritten rest of a segment.
+ *
+ * Once maxSegments are full the oldest segment is deleted with every key still pointing into it.
+ * Pages are written back by the OS: records survive a restart of the process, while an OS crash
+ * can lose the newest ones.
+ */
+public class SegmentStore implements AutoCloseable {
+	private static final int HEADER = 3*Integer.BYTES;
+	private static final String SUFFIX = ".segment";
+
+	private final Path directory;
+	private final int segmentBytes;
+	private final int maxSegments;
+	private final ConcurrentSkipListMap<Integer, MappedByteBuffer> segments = new ConcurrentSkipListMap<>();
+	private final ConcurrentMap<String, Long> index = new ConcurrentHashMap<>();
+	private int activeId;
+	private int writePosition;
+
+	public SegmentStore(Path directory, int segmentBytes, int maxSegments) {
+		if(segmentBytes <= HEADER || maxSegments < 1)
+			throw new IllegalArgumentException("Segments must hold at least one record and at least one segment must be kept");
+		this.directory = directory;
+		this.segmentBytes = segmentBytes;
+		this.maxSegments = maxSegments;
+		try {
+			Files.createDirectories(directory);
+			try(Stream<Path> files = Files.list(directory)) {
+				files.map(file -> file.getFileName().toString())
+						.filter(name -> name.endsWith(SUFFIX))
+						.map(name -> Integer.parseInt(name.substring(0, name.length()-SUFFIX.length())))
+						.sorted()
+						.forEach(id -> segments.put(id, map(id)));
+			}
+		} catch(IOException e) {
+			throw new UncheckedIOException("Cannot open segment store in "+directory, e);
+		}
+		for(Map.Entry<Integer, MappedByteBuffer> segment : segments.entrySet()) {
+			activeId = segment.getKey();
+			writePosition = scan(segment.getKey(), segment.getValue());
+		}
+		if(segments.isEmpty()) roll();
+	}
+
+	public synchronized void put(String key, byte[] value) {
+		byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+		int size = HEADER+keyBytes.length+value.length;
+		if(keyBytes.length == 0 || size > segmentBytes)
+			throw new IllegalArgumentException("Record does not fit a segment: "+key);
+		if(writePosition+size > segmentBytes) roll();
+
+		MappedByteBuffer segment = segments.get(activeId);
+		CRC32C crc = new CRC32C();
+		crc.update(keyBytes);
+		crc.update(value);
+		segment.putInt(writePosition+Integer.BYTES, value.length);
+		segment.putInt(writePosition+2*Integer.BYTES, (int) crc.getValue());
+		segment.put(writePosition+HEADER, keyBytes);
+		segment.put(writePosition+HEADER+keyBytes.length, value);
+		// a record only counts once its key length is set
+		segment.putInt(writePosition, keyBytes.length);
+		index.put(key, address(activeId, writePosition));
+		writePosition += size;
+	}
+
+	// the newest value of the key, or null when it was never put or its segment has been dropped
+	public byte[] get(String key) {
+		Long address = index.get(key);
+		if(address == null) return null;
+		MappedByteBuffer segment = segments.get((int) (address >>> 32));
+		if(segment == null) return null;
+		int offset = (int) (long) address;
+		byte[] value = new byte[segment.getInt(offset+Integer.BYTES)];
+		segment.get(offset+HEADER+segment.getInt(offset), value);
+		return value;
+	}
+
+	// newest value of every key with the prefix, in no particular order
+	public void forEach(String prefix, BiConsumer<String, byte[]> consumer) {
+		for(String key : index.keySet()) {
+			if(!key.startsWith(prefix)) continue;
+			byte[] value = get(key);
+			if(value != null) consumer.accept(key, value);
+		}
+	}
+
+	public int size() {
+		return index.size();
+	}
+
+	public int getSegmentCount() {
+		return segments.size();
+	}
+
+	@Override
+	public synchronized void close() {
+		segments.values().forEach(MappedByteBuffer::force);
+	}
+
+	private int scan(int id, MappedByteBuffer segment) {
+		int position = 0;
+		while(position+HEADER <= segment.limit()) {
+			int keyLength = segment.getInt(position);
+			int valueLength = segment.getInt(position+Integer.BYTES);
+			if(keyLength <= 0 || valueLength < 0 || position+HEADER+keyLength+valueLength > segment.limit()) break;
+			byte[] key = new byte[keyLength];
+			byte[] value = new byte[valueLength];
+			segment.get(position+HEADER, key);
+			segment.get(position+HEADER+keyLength, value);
+			CRC32C crc = new CRC32C();
+			crc.update(key);
+			crc.update(value);
+			if((int) crc.getValue() != segment.getInt(position+2*Integer.BYTES)) break;
+			index.put(new String(key, StandardCharsets.UTF_8), address(id, position));
+			position += HEADER+keyLength+valueLength;
+		}
+		return position;
+	}
+
+	private void roll() {
+		if(!segments.isEmpty()) segments.get(activeId).force();
+		activeId = segments.isEmpty() ? 1 : segments.lastKey()+1;
+		segments.put(activeId, map(activeId));
+		writePosition = 0;
+		while(segments.size() > maxSegments) {
+			int oldest = segments.pollFirstEntry().getKey();
+			index.values().removeIf(address -> (int) (address >>> 32) == oldest);
+			try {
+				Files.deleteIfExists(path(oldest));
+			} catch(IOException e) {
+				throw new UncheckedIOException("Cannot delete segment "+path(oldest), e);
+			}
+		}
+	}
+
+	private MappedByteBuffer map(int id) {
+		try(FileChannel channel = FileChannel.open(path(id), StandardOpenOption.CREATE,
+				StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+			// the mapping stays valid after the channel is closed
+			return channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentBytes);
+		} catch(IOException e) {
+			throw new UncheckedIOException("Cannot map segment "+path(id), e);
+		}
+	}
+
+	private Path path(int id) {
+		return directory.resolve(String.format("%08d", id)+SUFFIX);
+	}
+
+	private static long address(int segment, int offset) {
+		return ((long) segment << 32) | (offset & 0xffffffffL);
+	}
+}
@@ -0,0 +1,82 @@
+package com.arun.app.utils;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/*
+ * Latency and hit/miss counts per lookup tier (local cache, redis, local archive, postgres, upstream).
+ * Calls are timed as weather.tier.latency{tier, name, operation} with a percentile histogram;
+ * lookups are counted as weather.tier.lookups{tier, name, result}, so the hit ratio of a tier
+ * is hit / (hit + miss). name is the redis key prefix, the looked-up entity or the upstream API.
+ * The checked exception a timed call throws, if any, is declared by time() and lookup() in turn.
+ */
+public class TierMetrics {
+	public static final String LOCAL = "local";
+	public static final String REDIS = "redis";
+	public static final String ARCHIVE = "archive";
+	public static final String POSTGRES = "postgres";
+	public static final String UPSTREAM = "upstream";
+
+	private final MeterRegistry registry;
+	private final ConcurrentMap<String, Timer> timers = new ConcurrentHashMap<>();
+	private final ConcurrentMap<String, Counter> counters = new ConcurrentHashMap<>();
+
+	public TierMetrics(MeterRegistry registry) {
+		this.registry = registry;
+	}
+
+	@FunctionalInterface
+	public interface Call<T, E extends Exception> {
+		T call() throws E;
+	}
+
+	public <T, E extends Exception> T time(String tier, String name, String operation, Call<T, E> call) throws E {
+		Timer.Sample sample = Timer.start(registry);
+		try {
+			return call.call();
+		} finally {
+			sample.stop(timer(tier, name, operation));
+		}
+	}
+
+	public void time(String tier, String name, String operation, Runnable call) {
+		time(tier, name, operation, () -> {
+			call.run();
+			return null;
+		});
+	}
+
+	// a timed single-key read; a null result counts as a miss
+	public <T, E extends Exception> T lookup(String tier, String name, Call<T, E> call) throws E {
+		T value = time(tier, name, "get", call);
+		count(tier, name, value != null ? 1 : 0, value != null ? 0 : 1);
+		return value;
+	}
+
+	public void count(String tier, String name, long hits, long misses) {
+		if(hits > 0) counter(tier, name, "hit").increment(hits);
+		if(misses > 0) counter(tier, name, "miss").increment(misses);
+	}
+
+	private Timer timer(String tier, String name, String operation) {
+		return timers.computeIfAbsent(tier+'|'+name+'|'+operation, key -> Timer.builder("weather.tier.latency")
+				.tag("tier", tier)
+				.tag("name", name)
+				.tag("operation", operation)
+				.publishPercentiles(0.5, 0.95, 0.99)
+				.publishPercentileHistogram()
+				.register(registry));
+	}
+
+	private Counter counter(String tier, String name, String result) {
+		return counters.computeIfAbsent(tier+'|'+name+'|'+result, key -> Counter.builder("weather.tier.lookups")
+				.tag("tier", tier)
+				.tag("name", name)
+				.tag("result", result)
+				.register(registry));
+	}
+}
@@ -0,0 +1,131 @@
+package com.arun.app.utils;
+
+import java.time.Duration;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.client.HttpClientErrorException;
+
+import com.arun.app.exceptions.UpstreamUnavailableException;
+
+import lombok.SneakyThrows;
+
+/*
+ * Circuit breaker plus AIMD concurrency limit for one upstream API. Calls over the limit, or made
+ * while the circuit is open, fail at once with UpstreamUnavailableException instead of holding a
+ * request thread on a slow upstream.
+ * The circuit opens after failureThreshold consecutive failures (timeouts, 5xx, 429; other 4xx are
+ * the caller's fault) and lets a single probe through once openDuration has passed. The limit grows
+ * by about one per limit-many fast calls while it is in use, and shrinks by BACKOFF on every failure
+ * or call slower than latencyThreshold.
+ */
+public class UpstreamGuard {
+	private static final double BACKOFF = 0.9;
+	private static final int MIN_LIMIT = 1;
+
+	public enum State { CLOSED, OPEN, HALF_OPEN }
+
+	private final String name;
+	private final int failureThreshold;
+	private final long openNanos;
+	private final int maxLimit;
+	private final long latencyThresholdNanos;
+	private final AtomicLong rejectedCount = new AtomicLong();
+
+	// guarded by this
+	private State state = State.CLOSED;
+	private int consecutiveFailures;
+	private long openedAt;
+	private boolean probing;
+	private double limit;
+	private int inFlight;
+
+	public UpstreamGuard(String name, int failureThreshold, Duration openDuration, int initialLimit, int maxLimit,
+			Duration latencyThreshold) {
+		if(failureThreshold < 1 || initialLimit < MIN_LIMIT || maxLimit < initialLimit)
+			throw new IllegalArgumentException("Invalid upstream guard settings for "+name);
+		this.name = name;
+		this.failureThreshold = failureThreshold;
+		this.openNanos = openDuration.toNanos();
+		this.limit = initialLimit;
+		this.maxLimit = maxLimit;
+		this.latencyThresholdNanos = latencyThreshold.toNanos();
+	}
+
+	@SneakyThrows
+	public <T> T call(Callable<T> call) {
+		boolean probe = acquire();
+		long start = System.nanoTime();
+		boolean failed = false;
+		try {
+			return call.call();
+		} catch(Throwable e) {
+			failed = isFailure(e);
+			throw e;
+		} finally {
+			release(probe, failed, System.nanoTime()-start);
+		}
+	}
+
+	private synchronized boolean acquire() {
+		if(state == State.OPEN && System.nanoTime()-openedAt >= openNanos)
+			state = State.HALF_OPEN;
+		if(state == State.OPEN || (state == State.HALF_OPEN && probing))
+			throw reject(name+" is unavailable, retry later");
+		if(inFlight >= (int) limit)
+			throw reject(name+" is at its concurrency limit of "+(int) limit);
+		inFlight++;
+		if(state == State.HALF_OPEN) probing = true;
+		return state == State.HALF_OPEN;
+	}
+
+	private synchronized void release(boolean probe, boolean failed, long nanos) {
+		boolean saturated = inFlight*2 >= (int) limit;
+		inFlight--;
+		if(probe) probing = false;
+
+		if(failed || nanos > latencyThresholdNanos) limit = Math.max(MIN_LIMIT, limit*BACKOFF);
+		else if(saturated) limit = Math.min(maxLimit, limit+1/limit);
+
+		// calls started before the circuit opened do not decide its state
+		if(!failed) {
+			consecutiveFailures = 0;
+			if(probe) state = State.CLOSED;
+		}
+		else if(probe || (state == State.CLOSED && ++consecutiveFailures >= failureThreshold)) {
+			state = State.OPEN;
+			openedAt = System.nanoTime();
+		}
+	}
+
+	private UpstreamUnavailableException reject(String message) {
+		rejectedCount.incrementAndGet();
+		return new UpstreamUnavailableException(message);
+	}
+
+	private static boolean isFailure(Throwable e) {
+		return !(e instanceof HttpClientErrorException clientError)
+				|| HttpStatus.TOO_MANY_REQUESTS.equals(clientError.getStatusCode());
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public synchronized State getState() {
+		return state;
+	}
+
+	public synchronized int getLimit() {
+		return (int) limit;
+	}
+
+	public synchronized int getInFlight() {
+		return inFlight;
+	}
+
+	public long getRejectedCount() {
+		return rejectedCount.get();
+	}
+}
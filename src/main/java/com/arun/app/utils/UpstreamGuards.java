@@ -0,0 +1,11 @@
+package com.arun.app.utils;
+
+import java.util.List;
+
+// one guard per upstream API
+public record UpstreamGuards(UpstreamGuard geocoding, UpstreamGuard forecast, UpstreamGuard archive) {
+
+	public List<UpstreamGuard> all() {
+		return List.of(geocoding, forecast, archive);
+	}
+}
@@ -0,0 +1,111 @@
+package com.arun.app.utils;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.function.BiConsumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.arun.app.dtos.WeatherDataDto;
+import com.arun.app.models.WeatherData;
+import com.arun.app.serializers.RedisValueCodec;
+import com.arun.app.serializers.WeatherDataDtoRedisSerializer;
+
+/*
+ * Local copy of what came from the weather APIs, kept in a SegmentStore across restarts: parsed
+ * WeatherData under the redis key it is cached with, and raw response bodies under "response:"
+ * plus the request URL (which carries the coordinates and dates). Records use the binary redis
+ * encoding, so the fetch time is kept. The archive is a best-effort tier: a failing disk is logged
+ * and reads as a miss, never as a failed request. With replay on, recorded responses answer
+ * requests for the same URL without calling the API, as long as they are younger than replayMaxAge
+ * (zero replays them at any age).
+ */
+public class WeatherArchive implements AutoCloseable {
+	// the value is the fetch time in epoch millis followed by the body
+	private static final String RESPONSE_PREFIX = "timed-response:";
+
+	private final SegmentStore store;
+	private final boolean replay;
+	private final Duration replayMaxAge;
+	private final WeatherDataDtoRedisSerializer serializer = new WeatherDataDtoRedisSerializer(RedisValueCodec.BINARY);
+
+	Logger logger = LoggerFactory.getLogger(WeatherArchive.class);
+
+	public WeatherArchive(SegmentStore store, boolean replay, Duration replayMaxAge) {
+		this.store = store;
+		this.replay = replay;
+		this.replayMaxAge = replayMaxAge;
+	}
+
+	// an archive that stores nothing
+	public static WeatherArchive disabled() {
+		return new WeatherArchive(null, false, Duration.ZERO);
+	}
+
+	public boolean isEnabled() {
+		return store != null;
+	}
+
+	public void putWeather(String key, WeatherData weatherData) {
+		put(key, serializer.serialize(WeatherDataDto.get(weatherData, null)));
+	}
+
+	public WeatherData getWeather(String key) {
+		byte[] value = get(key);
+		return value == null ? null : WeatherDataDto.getWeatherData(serializer.deserialize(value));
+	}
+
+	public void forEachWeather(String prefix, BiConsumer<String, WeatherData> consumer) {
+		if(store == null) return;
+		store.forEach(prefix, (key, value) -> consumer.accept(key, WeatherDataDto.getWeatherData(serializer.deserialize(value))));
+	}
+
+	public void recordResponse(String url, String body) {
+		recordResponse(url, body, System.currentTimeMillis());
+	}
+
+	void recordResponse(String url, String body, long fetchedAt) {
+		byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+		put(RESPONSE_PREFIX+url, ByteBuffer.allocate(Long.BYTES+bytes.length).putLong(fetchedAt).put(bytes).array());
+	}
+
+	// the recorded response for the URL when replay is on and it is recent enough, otherwise null
+	public String replay(String url) {
+		if(!replay) return null;
+		byte[] value = get(RESPONSE_PREFIX+url);
+		if(value == null || value.length < Long.BYTES) return null;
+		long age = System.currentTimeMillis()-ByteBuffer.wrap(value).getLong();
+		if(!replayMaxAge.isZero() && age > replayMaxAge.toMillis()) return null;
+		return new String(value, Long.BYTES, value.length-Long.BYTES, StandardCharsets.UTF_8);
+	}
+
+	public int size() {
+		return store == null ? 0 : store.size();
+	}
+
+	private void put(String key, byte[] value) {
+		if(store == null) return;
+		try {
+			store.put(key, value);
+		} catch(RuntimeException e) {
+			logger.warn("Could not archive {}: {}", key, e.getMessage());
+		}
+	}
+
+	private byte[] get(String key) {
+		if(store == null) return null;
+		try {
+			return store.get(key);
+		} catch(RuntimeException e) {
+			logger.warn("Could not read {} from the archive: {}", key, e.getMessage());
+			return null;
+		}
+	}
+
+	@Override
+	public void close() {
+		if(store != null) store.close();
+	}
+}
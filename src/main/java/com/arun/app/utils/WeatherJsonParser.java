@@ -0,0 +1,233 @@
+package com.arun.app.utils;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import com.arun.app.models.PincodeLocation;
+import com.arun.app.models.WeatherData;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+
+/*
+ * Pull parser for the upstream payloads. Only the fields we keep are read and every other value
+ * is skipped without being materialised. Hourly arrays are read into primitive arrays and kept
+ * per day as an HourlySeries; the scalar fields of WeatherData are the reading at hourIndex, or
+ * the "current" block when there is one.
+ */
+public final class WeatherJsonParser {
+	private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+	private WeatherJsonParser() {
+	}
+
+	public static WeatherData parseWeather(String json, int hourIndex) throws JsonProcessingException {
+		try(JsonParser parser = JSON_FACTORY.createParser(json)) {
+			return parseWeather(parser, hourIndex);
+		} catch(JsonProcessingException e) {
+			throw e;
+		} catch(IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	// Open-Meteo answers a single coordinate pair with an object and several with an array
+	public static List<WeatherData> parseWeatherList(String json, int hourIndex) throws JsonProcessingException {
+		try(JsonParser parser = JSON_FACTORY.createParser(json)) {
+			List<WeatherData> result = new ArrayList<>();
+			JsonToken token = parser.nextToken();
+			if(token == JsonToken.START_ARRAY) {
+				while(parser.nextToken() == JsonToken.START_OBJECT)
+					result.add(readWeatherObject(parser, hourIndex));
+			}
+			else if(token == JsonToken.START_OBJECT)
+				result.add(readWeatherObject(parser, hourIndex));
+			return result;
+		} catch(JsonProcessingException e) {
+			throw e;
+		} catch(IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	// one WeatherData per day of an archive response, each with its own hourly series
+	public static List<WeatherData> parseDailyWeather(String json, int hourIndex) throws JsonProcessingException {
+		try(JsonParser parser = JSON_FACTORY.createParser(json)) {
+			expect(parser, parser.nextToken(), JsonToken.START_OBJECT);
+			HourlyArrays hourly = new HourlyArrays();
+			while(parser.nextToken() == JsonToken.FIELD_NAME) {
+				String field = parser.currentName();
+				JsonToken token = parser.nextToken();
+				if("hourly".equals(field) && token == JsonToken.START_OBJECT)
+					readHourly(parser, hourly);
+				else
+					parser.skipChildren();
+			}
+			
+			List<WeatherData> result = new ArrayList<>();
+			for(int day = 0; day*HourlySeries.HOURS < hourly.length; day++) {
+				WeatherData weatherData = hourly.day(day, hourIndex);
+				if(weatherData.getDate() != null) result.add(weatherData);
+			}
+			return result;
+		} catch(JsonProcessingException e) {
+			throw e;
+		} catch(IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	public static PincodeLocation parsePincodeLocation(String json) throws JsonProcessingException {
+		try(JsonParser parser = JSON_FACTORY.createParser(json)) {
+			expect(parser, parser.nextToken(), JsonToken.START_OBJECT);
+			PincodeLocation pincodeLocation = new PincodeLocation();
+			while(parser.nextToken() == JsonToken.FIELD_NAME) {
+				String field = parser.currentName();
+				parser.nextToken();
+				switch(field) {
+				case "zip" -> pincodeLocation.setPincode(parser.getValueAsString());
+				case "name" -> pincodeLocation.setName(parser.getValueAsString());
+				case "lat" -> pincodeLocation.setLatitude(parser.getValueAsDouble());
+				case "lon" -> pincodeLocation.setLongitude(parser.getValueAsDouble());
+				case "country" -> pincodeLocation.setCountry(parser.getValueAsString());
+				default -> parser.skipChildren();
+				}
+			}
+			return pincodeLocation;
+		} catch(JsonProcessingException e) {
+			throw e;
+		} catch(IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private static WeatherData parseWeather(JsonParser parser, int hourIndex) throws IOException {
+		expect(parser, parser.nextToken(), JsonToken.START_OBJECT);
+		return readWeatherObject(parser, hourIndex);
+	}
+
+	// parser is positioned on START_OBJECT of one location's response
+	private static WeatherData readWeatherObject(JsonParser parser, int hourIndex) throws IOException {
+		Current current = null;
+		HourlyArrays hourly = new HourlyArrays();
+		while(parser.nextToken() == JsonToken.FIELD_NAME) {
+			String field = parser.currentName();
+			JsonToken token = parser.nextToken();
+			if("current".equals(field) && token == JsonToken.START_OBJECT)
+				current = readCurrent(parser);
+			else if("hourly".equals(field) && token == JsonToken.START_OBJECT)
+				readHourly(parser, hourly);
+			else
+				parser.skipChildren();
+		}
+		if(current == null)
+			return hourly.day(0, hourIndex);
+
+		// "current" wins; humidity is only hourly, taken at the hour of the current reading
+		WeatherData weatherData = hourly.day(0, current.hour() < 0 ? hourIndex : current.hour());
+		weatherData.setDate(current.time == null ? null : LocalDate.parse(current.time.substring(0, 10)));
+		weatherData.setTemperature(current.temperature);
+		weatherData.setWindSpeed(current.windSpeed);
+		return weatherData;
+	}
+
+	private static Current readCurrent(JsonParser parser) throws IOException {
+		Current current = new Current();
+		while(parser.nextToken() == JsonToken.FIELD_NAME) {
+			String field = parser.currentName();
+			parser.nextToken();
+			switch(field) {
+			case "time" -> current.time = parser.getValueAsString();
+			case "temperature_2m" -> current.temperature = parser.getValueAsDouble();
+			case "wind_speed_10m" -> current.windSpeed = parser.getValueAsDouble();
+			default -> parser.skipChildren();
+			}
+		}
+		return current;
+	}
+
+	private static void readHourly(JsonParser parser, HourlyArrays hourly) throws IOException {
+		while(parser.nextToken() == JsonToken.FIELD_NAME) {
+			String field = parser.currentName();
+			if(parser.nextToken() != JsonToken.START_ARRAY) {
+				parser.skipChildren();
+				continue;
+			}
+			int index = 0;
+			while(parser.nextToken() != JsonToken.END_ARRAY) {
+				int i = index++;
+				if(parser.currentToken() == JsonToken.VALUE_NULL) continue;
+				switch(field) {
+				case "time" -> hourly.ensure(i).time[i] = parser.getValueAsString();
+				case "temperature_2m" -> hourly.ensure(i).temperature[i] = parser.getValueAsDouble();
+				case "relative_humidity_2m" -> hourly.ensure(i).humidity[i] = parser.getValueAsInt();
+				case "wind_speed_10m" -> hourly.ensure(i).windSpeed[i] = parser.getValueAsDouble();
+				default -> parser.skipChildren();
+				}
+			}
+		}
+	}
+
+	private static void expect(JsonParser parser, JsonToken actual, JsonToken expected) throws JsonProcessingException {
+		if(actual != expected)
+			throw new JsonParseException(parser, "Expected "+expected+" but found "+actual);
+	}
+
+	private static class Current {
+		private String time;
+		private Double temperature;
+		private Double windSpeed;
+
+		// hour of "yyyy-MM-ddTHH:mm", or -1 when the time has no hour part
+		private int hour() {
+			return time != null && time.length() >= 13 && time.charAt(10) == 'T'
+					? Integer.parseInt(time.substring(11, 13)) : -1;
+		}
+	}
+
+	// hourly arrays of a whole response; several days back to back for archive ranges
+	private static class HourlyArrays {
+		private String[] time = new String[0];
+		private double[] temperature = new double[0];
+		private double[] windSpeed = new double[0];
+		private int[] humidity = new int[0];
+		private int length;
+
+		private HourlyArrays ensure(int index) {
+			if(index >= length) length = index+1;
+			if(index < time.length) return this;
+			int size = Math.max(HourlySeries.HOURS, Math.max(index+1, time.length*2));
+			int old = time.length;
+			time = Arrays.copyOf(time, size);
+			temperature = Arrays.copyOf(temperature, size);
+			windSpeed = Arrays.copyOf(windSpeed, size);
+			humidity = Arrays.copyOf(humidity, size);
+			Arrays.fill(temperature, old, size, Double.NaN);
+			Arrays.fill(windSpeed, old, size, Double.NaN);
+			Arrays.fill(humidity, old, size, -1);
+			return this;
+		}
+
+		private WeatherData day(int day, int hour) {
+			int from = day*HourlySeries.HOURS;
+			WeatherData weatherData = new WeatherData();
+			if(from >= length) return weatherData;
+
+			byte[] series = HourlySeries.pack(temperature, windSpeed, humidity, from);
+			String date = time[from];
+			weatherData.setDate(date == null ? null : LocalDate.parse(date.substring(0, 10)));
+			weatherData.setHourly(series);
+			int i = from+hour;
+			weatherData.setTemperature(i < length && !Double.isNaN(temperature[i]) ? temperature[i] : null);
+			weatherData.setHumidity(i < length && humidity[i] >= 0 ? humidity[i] : null);
+			weatherData.setWindSpeed(i < length && !Double.isNaN(windSpeed[i]) ? windSpeed[i] : null);
+			return weatherData;
+		}
+	}
+}
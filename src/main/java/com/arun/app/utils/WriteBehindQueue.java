@@ -0,0 +1,191 @@
+package com.arun.app.utils;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.UnaryOperator;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/*
+ * Write-behind for rows whose readers are served from redis in the meantime. Rows are queued and
+ * a flusher thread hands them to the sink in batches of up to batchSize, at the latest flushInterval
+ * after the first row of a batch arrived. The queue is bounded: a caller finding it full waits up
+ * to offerTimeout and then writes its row itself, so a slow database slows the producers down
+ * instead of growing the heap. A failed batch is retried row by row, so one bad row costs only
+ * itself. close() writes whatever is still queued.
+ * A copy of each row is queued: the sink sets ids and timestamps on it on the flusher thread, while
+ * callers keep serving and caching their own instance. flush() returns once every row added before
+ * it is written, for callers that read the table right after adding to it.
+ */
+public class WriteBehindQueue<T> implements AutoCloseable {
+	private final String name;
+	private static final long FLUSH_TIMEOUT_SECONDS = 30;
+
+	private final Consumer<List<T>> sink;
+	private final UnaryOperator<T> copier;
+	// rows and the Barrier of each waiting flush(), in the order they were added
+	private final BlockingQueue<Object> queue;
+	private final int batchSize;
+	private final long flushIntervalNanos;
+	private final long offerTimeoutNanos;
+	private final Thread flusher;
+	private volatile boolean closed;
+	private final AtomicInteger waitingFlushes = new AtomicInteger();
+	private final AtomicLong writtenCount = new AtomicLong();
+	private final AtomicLong failedCount = new AtomicLong();
+	private final AtomicLong callerWrittenCount = new AtomicLong();
+
+	Logger logger = LoggerFactory.getLogger(WriteBehindQueue.class);
+
+	private record Barrier(CountDownLatch written) {
+	}
+
+	public WriteBehindQueue(String name, Consumer<List<T>> sink, UnaryOperator<T> copier, int capacity, int batchSize,
+			Duration flushInterval, Duration offerTimeout) {
+		if(capacity < 1 || batchSize < 1 || flushInterval.isNegative() || offerTimeout.isNegative())
+			throw new IllegalArgumentException("Write-behind capacity and batch size must be at least 1, durations not negative");
+		this.name = name;
+		this.sink = sink;
+		this.copier = copier;
+		this.queue = new ArrayBlockingQueue<>(capacity);
+		this.batchSize = batchSize;
+		this.flushIntervalNanos = flushInterval.toNanos();
+		this.offerTimeoutNanos = offerTimeout.toNanos();
+		this.flusher = new Thread(this::run, "write-behind-"+name);
+		this.flusher.setDaemon(true);
+		this.flusher.start();
+	}
+
+	public void add(T row) {
+		T copy = copier.apply(row);
+		boolean queued = false;
+		try {
+			queued = !closed && queue.offer(copy, offerTimeoutNanos, TimeUnit.NANOSECONDS);
+		} catch(InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		if(!queued) {
+			callerWrittenCount.incrementAndGet();
+			write(List.of(copy));
+		}
+	}
+
+	public void addAll(Collection<T> rows) {
+		rows.forEach(this::add);
+	}
+
+	// false if the rows ahead were not written within FLUSH_TIMEOUT_SECONDS or the wait was interrupted
+	public boolean flush() {
+		if(closed) return queue.isEmpty();
+		Barrier barrier = new Barrier(new CountDownLatch(1));
+		waitingFlushes.incrementAndGet();
+		boolean queued = false;
+		try {
+			queued = queue.offer(barrier, FLUSH_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+			return queued && barrier.written().await(FLUSH_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+		} catch(InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return false;
+		} finally {
+			// a queued barrier is counted down by the flusher
+			if(!queued) waitingFlushes.decrementAndGet();
+		}
+	}
+
+	private void run() {
+		while(!closed || !queue.isEmpty()) {
+			List<Object> entries = new ArrayList<>(batchSize);
+			try {
+				Object first = queue.poll(Math.max(flushIntervalNanos, TimeUnit.MILLISECONDS.toNanos(10)), TimeUnit.NANOSECONDS);
+				if(first == null) continue;
+				entries.add(first);
+				long deadline = System.nanoTime()+flushIntervalNanos;
+				// a waiting flush() ends the batch with what is queued, without waiting for the interval
+				while(entries.size() < batchSize) {
+					queue.drainTo(entries, batchSize-entries.size());
+					if(entries.size() >= batchSize || closed || waitingFlushes.get() > 0) break;
+					Object next = queue.poll(deadline-System.nanoTime(), TimeUnit.NANOSECONDS);
+					if(next == null) break;
+					entries.add(next);
+				}
+			} catch(InterruptedException e) {
+				// nobody but the JVM interrupts this thread: stop once what is queued is written
+				closed = true;
+			}
+			process(entries);
+		}
+	}
+
+	// rows up to a barrier are written before it is released
+	@SuppressWarnings("unchecked")
+	private void process(List<Object> entries) {
+		// a new list per batch, the sink may keep it
+		List<T> rows = new ArrayList<>(entries.size());
+		for(Object entry : entries) {
+			if(entry instanceof Barrier barrier) {
+				if(!rows.isEmpty()) write(rows);
+				rows = new ArrayList<>();
+				waitingFlushes.decrementAndGet();
+				barrier.written().countDown();
+			}
+			else rows.add((T) entry);
+		}
+		if(!rows.isEmpty()) write(rows);
+	}
+
+	private void write(List<T> rows) {
+		try {
+			sink.accept(rows);
+			writtenCount.addAndGet(rows.size());
+			return;
+		} catch(RuntimeException e) {
+			if(rows.size() == 1) {
+				failedCount.incrementAndGet();
+				logger.error("Write-behind {} could not store a row: {}", name, e.getMessage());
+				return;
+			}
+			logger.warn("Write-behind {} batch of {} failed, retrying row by row: {}", name, rows.size(), e.getMessage());
+		}
+		for(T row : rows) write(List.of(row));
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public int getQueuedCount() {
+		return Math.max(0, queue.size()-waitingFlushes.get());
+	}
+
+	public long getWrittenCount() {
+		return writtenCount.get();
+	}
+
+	public long getFailedCount() {
+		return failedCount.get();
+	}
+
+	public long getCallerWrittenCount() {
+		return callerWrittenCount.get();
+	}
+
+	@Override
+	public void close() throws InterruptedException {
+		closed = true;
+		flusher.join(TimeUnit.SECONDS.toMillis(30));
+		// rows offered while the flusher was stopping
+		List<Object> rest = new ArrayList<>();
+		queue.drainTo(rest);
+		process(rest);
+	}
+}
@@ -1,13 +1,29 @@
 package com.arun.app;
 
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
 import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 
+import io.micrometer.core.instrument.MeterRegistry;
+
 @SpringBootTest
 class WeatherInfoPincodeApplicationTests {
 
+	@Autowired
+	private MeterRegistry registry;
+
 	@Test
 	void contextLoads() {
 	}
 
+	@Test
+	void upstreamPoolMetricsAreRegistered() {
+		for(String state : new String[] {"leased", "available"})
+			assertNotNull(registry.find("httpcomponents.httpclient.pool.total.connections")
+					.tags("httpclient", "upstream", "state", state).gauge());
+		assertNotNull(registry.find("httpcomponents.httpclient.pool.total.pending").tag("httpclient", "upstream").gauge());
+	}
+
 }
@@ -0,0 +1,171 @@
+package com.arun.app.benchmarks;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+import com.arun.app.dtos.WeatherDataDto;
+import com.arun.app.models.PincodeLocation;
+import com.arun.app.services.PincodeLocationService;
+import com.sun.net.httpserver.HttpServer;
+
+/*
+ * Drives GET /weather for the current date against a stand-in Open-Meteo that answers after a fixed
+ * delay. Every request uses its own pincode/location and the location grid is off, so nothing is
+ * cached or coalesced and each one waits on the upstream. Subclasses pick the thread mode.
+ *
+ * mvn test -Pbenchmark [-Dbenchmark.requests=4000 -Dbenchmark.concurrency=400 -Dbenchmark.upstreamDelayMs=100]
+ */
+@Tag("benchmark")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@TestPropertySource(properties = "LOCATION_GRID_DEGREES=0")
+abstract class AbstractLoadBenchmark {
+	private static final int REQUESTS = Integer.getInteger("benchmark.requests", 4000);
+	private static final int CONCURRENCY = Integer.getInteger("benchmark.concurrency", 400);
+	private static final int UPSTREAM_DELAY_MS = Integer.getInteger("benchmark.upstreamDelayMs", 100);
+	private static final String CURRENT_WEATHER_RESPONSE = "{"
+			+ "\"current\":{\"time\":\"2025-03-25T10:00\",\"temperature_2m\":25.5,\"wind_speed_10m\":5.0},"
+			+ "\"hourly\":{\"relative_humidity_2m\":[50,52,54,56,58,60,62,64,66,68,70,72,"
+			+ "74,76,78,80,82,84,86,88,90,92,94,96]}}";
+
+	private static HttpServer upstream;
+
+	@MockitoBean
+	private PincodeLocationService pincodeLocationService;
+	@MockitoBean
+	private RedisTemplate<String, WeatherDataDto> weatherRedis;
+	@MockitoBean
+	private ValueOperations<String, WeatherDataDto> weatherValueOps;
+
+	@LocalServerPort
+	private int port;
+
+	@DynamicPropertySource
+	static void upstreamProperties(DynamicPropertyRegistry registry) throws IOException {
+		if(upstream == null) {
+			// by default the JDK server closes keep-alive connections past 200 idle ones, which the
+			// pooled client then finds dead
+			System.setProperty("sun.net.httpserver.maxIdleConnections", String.valueOf(CONCURRENCY));
+			upstream = HttpServer.create(new InetSocketAddress("localhost", 0), 1024);
+			// the stand-in and the load driver run on platform threads, so that only the application under
+			// test shares the virtual thread scheduler
+			upstream.setExecutor(Executors.newCachedThreadPool());
+			upstream.createContext("/v1/forecast", exchange -> {
+				try {
+					Thread.sleep(UPSTREAM_DELAY_MS);
+				} catch(InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				byte[] body = CURRENT_WEATHER_RESPONSE.getBytes(StandardCharsets.UTF_8);
+				exchange.getResponseHeaders().add("Content-Type", "application/json");
+				exchange.sendResponseHeaders(200, body.length);
+				try(OutputStream out = exchange.getResponseBody()) {
+					out.write(body);
+				}
+			});
+			upstream.start();
+		}
+		registry.add("CURRENT_WEATHER_API_URL",
+				() -> "http://localhost:"+upstream.getAddress().getPort()+"/v1/forecast");
+		// the upstream guard and connection pool must not be what limits the run, nor trip on the
+		// stand-in's slow accepts of a burst of new connections
+		registry.add("UPSTREAM_LIMIT_INITIAL", () -> CONCURRENCY);
+		registry.add("HTTP_MAX_CONNECTIONS_PER_HOST", () -> CONCURRENCY);
+		registry.add("HTTP_MAX_CONNECTIONS", () -> CONCURRENCY);
+		registry.add("UPSTREAM_LIMIT_LATENCY", () -> "1m");
+		registry.add("UPSTREAM_BREAKER_FAILURES", () -> REQUESTS);
+		registry.add("HTTP_CONNECT_TIMEOUT", () -> "30s");
+		registry.add("HTTP_READ_TIMEOUT", () -> "30s");
+		registry.add("HTTP_POOL_TIMEOUT", () -> "30s");
+	}
+
+	@AfterAll
+	static void stopUpstream() {
+		if(upstream != null) {
+			upstream.stop(0);
+			upstream = null;
+		}
+	}
+
+	abstract String mode();
+
+	@Test
+	void currentWeatherUnderSlowUpstream() throws Exception {
+		when(pincodeLocationService.getPincodeLocation(anyString())).thenAnswer(invocation -> {
+			int n = Integer.parseInt(invocation.getArgument(0));
+			PincodeLocation location = new PincodeLocation();
+			location.setPincode(invocation.getArgument(0));
+			location.setLatitude(8.0 + n * 1e-4);
+			location.setLongitude(68.0 + n * 1e-4);
+			return location;
+		});
+		when(weatherRedis.opsForValue()).thenReturn(weatherValueOps);
+		// like redis, a multiGet answers every key, with null for a miss
+		when(weatherValueOps.multiGet(anyCollection()))
+				.thenAnswer(invocation -> Arrays.asList(new WeatherDataDto[invocation.<Collection<?>>getArgument(0).size()]));
+
+		HttpClient client = HttpClient.newBuilder().executor(Executors.newCachedThreadPool()).build();
+		String today = LocalDate.now().toString();
+		long[] latencies = new long[REQUESTS];
+		AtomicInteger failures = new AtomicInteger();
+		Semaphore inFlight = new Semaphore(CONCURRENCY);
+
+		long start = System.nanoTime();
+		try(ExecutorService clients = Executors.newCachedThreadPool()) {
+			for(int i = 0; i < REQUESTS; i++) {
+				int index = i;
+				inFlight.acquire();
+				clients.submit(() -> {
+					try {
+						HttpRequest request = HttpRequest.newBuilder(URI.create(
+								"http://localhost:"+port+"/weather?pincode="+(100000 + index)+"&for_date="+today)).build();
+						long sent = System.nanoTime();
+						HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+						latencies[index] = System.nanoTime() - sent;
+						if(response.statusCode() != 200) failures.incrementAndGet();
+					} catch(Exception e) {
+						failures.incrementAndGet();
+					} finally {
+						inFlight.release();
+					}
+				});
+			}
+		}
+		double seconds = (System.nanoTime() - start) / 1e9;
+
+		Arrays.sort(latencies);
+		System.out.printf("%n[%s] requests=%d concurrency=%d upstreamDelay=%dms -> %.0f req/s, p50=%.1fms, p99=%.1fms, failures=%d%n%n",
+				mode(), REQUESTS, CONCURRENCY, UPSTREAM_DELAY_MS, REQUESTS / seconds,
+				latencies[REQUESTS / 2] / 1e6, latencies[(int) (REQUESTS * 0.99)] / 1e6, failures.get());
+		assertEquals(0, failures.get());
+	}
+}
@@ -0,0 +1,25 @@
+package com.arun.app.benchmarks;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+
+// Recorded upstream payloads under src/test/resources/fixtures
+final class Fixtures {
+	static final String OPEN_METEO_CURRENT = load("open-meteo-current.json");
+	static final String OPEN_METEO_ARCHIVE = load("open-meteo-archive.json");
+	static final String GEOCODING_ZIP = load("geocoding-zip.json");
+
+	private Fixtures() {
+	}
+
+	private static String load(String name) {
+		try(InputStream in = Fixtures.class.getResourceAsStream("/fixtures/"+name)) {
+			if(in == null) throw new IllegalStateException("Missing fixture: "+name);
+			return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+		} catch(IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+}
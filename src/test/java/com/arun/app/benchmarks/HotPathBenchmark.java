@@ -0,0 +1,129 @@
+package com.arun.app.benchmarks;
+
+import java.text.ParseException;
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.arun.app.dtos.WeatherDataDto;
+import com.arun.app.models.PincodeLocation;
+import com.arun.app.models.WeatherData;
+import com.arun.app.serializers.PincodeLocationRedisSerializer;
+import com.arun.app.serializers.RedisValueCodec;
+import com.arun.app.serializers.WeatherDataDtoRedisSerializer;
+import com.arun.app.serializers.WeatherDataRedisSerializer;
+import com.arun.app.services.WeatherDataService;
+import com.arun.app.utils.WeatherJsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+
+/*
+ * Per-request work on the /weather path that does not touch the network: payload parsing,
+ * entity/dto conversion, redis value (de)serialization and redis key building.
+ * Run with -prof gc and compare gc.alloc.rate.norm before and after a change.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class HotPathBenchmark {
+	// the value serializers of the three RedisTemplate beans, with the default codec
+	private final PincodeLocationRedisSerializer pincodeLocationSerializer = new PincodeLocationRedisSerializer(RedisValueCodec.BINARY);
+	private final WeatherDataRedisSerializer weatherDataSerializer = new WeatherDataRedisSerializer(RedisValueCodec.BINARY);
+	private final WeatherDataDtoRedisSerializer weatherDataDtoSerializer = new WeatherDataDtoRedisSerializer(RedisValueCodec.BINARY);
+	private final WeatherDataService weatherDataService = new WeatherDataService(null, null, null, null, null, null, null, null, null, null, null, null, null, null);
+
+	private final LocalDate date = LocalDate.of(2025, 3, 25);
+	private PincodeLocation pincodeLocation;
+	private WeatherData weatherData;
+	private WeatherDataDto weatherDataDto;
+	private byte[] pincodeLocationBytes;
+	private byte[] weatherDataBytes;
+	private byte[] weatherDataDtoBytes;
+
+	@Setup
+	public void setUp() throws Exception {
+		pincodeLocation = WeatherJsonParser.parsePincodeLocation(Fixtures.GEOCODING_ZIP);
+		pincodeLocation.setId(1L);
+		weatherData = weatherDataService.jsonToWeatherData(Fixtures.OPEN_METEO_ARCHIVE);
+		weatherData.setId(1L);
+		weatherData.setLatitude(pincodeLocation.getLatitude());
+		weatherData.setLongitude(pincodeLocation.getLongitude());
+		weatherDataDto = WeatherDataDto.get(weatherData, pincodeLocation.getPincode());
+
+		pincodeLocationBytes = pincodeLocationSerializer.serialize(pincodeLocation);
+		weatherDataBytes = weatherDataSerializer.serialize(weatherData);
+		weatherDataDtoBytes = weatherDataDtoSerializer.serialize(weatherDataDto);
+	}
+
+	@Benchmark
+	public WeatherData jsonToWeatherDataCurrent() throws JsonProcessingException, ParseException {
+		return weatherDataService.jsonToWeatherData(Fixtures.OPEN_METEO_CURRENT);
+	}
+
+	@Benchmark
+	public WeatherData jsonToWeatherDataHourly() throws JsonProcessingException, ParseException {
+		return weatherDataService.jsonToWeatherData(Fixtures.OPEN_METEO_ARCHIVE);
+	}
+
+	@Benchmark
+	public WeatherDataDto weatherDataToDto() {
+		return WeatherDataDto.get(weatherData, pincodeLocation.getPincode());
+	}
+
+	@Benchmark
+	public WeatherData dtoToWeatherData() {
+		return WeatherDataDto.getWeatherData(weatherDataDto);
+	}
+
+	@Benchmark
+	public byte[] serializePincodeLocation() {
+		return pincodeLocationSerializer.serialize(pincodeLocation);
+	}
+
+	@Benchmark
+	public PincodeLocation deserializePincodeLocation() {
+		return pincodeLocationSerializer.deserialize(pincodeLocationBytes);
+	}
+
+	@Benchmark
+	public byte[] serializeWeatherData() {
+		return weatherDataSerializer.serialize(weatherData);
+	}
+
+	@Benchmark
+	public WeatherData deserializeWeatherData() {
+		return weatherDataSerializer.deserialize(weatherDataBytes);
+	}
+
+	@Benchmark
+	public byte[] serializeWeatherDataDto() {
+		return weatherDataDtoSerializer.serialize(weatherDataDto);
+	}
+
+	@Benchmark
+	public WeatherDataDto deserializeWeatherDataDto() {
+		return weatherDataDtoSerializer.deserialize(weatherDataDtoBytes);
+	}
+
+	@Benchmark
+	public String currentWeatherKey() {
+		return WeatherDataService.currentWeatherKey(WeatherDataService.locationKey(pincodeLocation), date);
+	}
+
+	@Benchmark
+	public String oldWeatherKey() {
+		return WeatherDataService.oldWeatherKey(WeatherDataService.locationKey(pincodeLocation), date);
+	}
+}
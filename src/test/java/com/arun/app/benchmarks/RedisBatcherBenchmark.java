@@ -0,0 +1,134 @@
+package com.arun.app.benchmarks;
+
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+import java.time.Duration;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+
+import com.arun.app.models.PincodeLocation;
+import com.arun.app.utils.RedisBatcher;
+
+/*
+ * Single-key redis reads from many threads, sent as one GET each or through the batcher. The stand-in models redis as one command loop: every command holds it for a
+ * fixed cost plus a small cost per key, and every caller also waits a network round trip.
+ * Commands sent per read are printed once per trial.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(64)
+@Fork(1)
+public class RedisBatcherBenchmark {
+	private static final int KEYS = 10_000;
+	private static final long ROUND_TRIP_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+	private static final long COMMAND_NANOS = TimeUnit.MICROSECONDS.toNanos(10);
+	private static final long KEY_NANOS = TimeUnit.MICROSECONDS.toNanos(1);
+
+	// batcher window; the direct GET ignores it
+	@Param({"0", "500"})
+	private long windowMicros;
+
+	private final Map<String, PincodeLocation> store = new ConcurrentHashMap<>();
+	private final ReentrantLock commandLoop = new ReentrantLock(true);
+	private final AtomicLong commands = new AtomicLong();
+	private final AtomicLong reads = new AtomicLong();
+	private RedisTemplate<String, PincodeLocation> redis;
+	private RedisBatcher<PincodeLocation> batcher;
+
+	@Setup(Level.Trial)
+	@SuppressWarnings("unchecked")
+	public void setUp() {
+		for(int i = 0; i < KEYS; i++) {
+			PincodeLocation pincodeLocation = new PincodeLocation();
+			pincodeLocation.setPincode(String.valueOf(110000+i));
+			store.put("pincode:"+pincodeLocation.getPincode(), pincodeLocation);
+		}
+		ValueOperations<String, PincodeLocation> ops = mock(ValueOperations.class, withSettings().stubOnly());
+		when(ops.get(anyString())).thenAnswer(invocation -> command(1, () -> store.get(invocation.getArgument(0, String.class))));
+		when(ops.multiGet(anyList())).thenAnswer(invocation -> {
+			List<String> keys = invocation.getArgument(0);
+			return command(keys.size(), () -> keys.stream().map(store::get).toList());
+		});
+		doAnswer(invocation -> {
+			Map<String, PincodeLocation> values = invocation.getArgument(0);
+			return command(values.size(), () -> {
+				store.putAll(values);
+				return null;
+			});
+		}).when(ops).multiSet(anyMap());
+		redis = mock(RedisTemplate.class, withSettings().stubOnly());
+		when(redis.opsForValue()).thenReturn(ops);
+		batcher = new RedisBatcher<>("pincode", redis, Duration.of(windowMicros, ChronoUnit.MICROS), 256);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		System.out.printf("window %dus: %.4f redis commands per read over %d reads%n", windowMicros,
+				commands.get()/(double) Math.max(1, reads.get()), reads.get());
+		batcher.close();
+	}
+
+	@Benchmark
+	public PincodeLocation directGet() {
+		reads.incrementAndGet();
+		return redis.opsForValue().get(randomKey());
+	}
+
+	@Benchmark
+	public PincodeLocation batchedGet() {
+		reads.incrementAndGet();
+		return batcher.get(randomKey());
+	}
+
+	private static String randomKey() {
+		return "pincode:"+(110000+ThreadLocalRandom.current().nextInt(KEYS));
+	}
+
+	private <T> T command(int keys, Supplier<T> body) {
+		commands.incrementAndGet();
+		T result;
+		commandLoop.lock();
+		try {
+			LockSupport.parkNanos(COMMAND_NANOS+keys*KEY_NANOS);
+			result = body.get();
+		} finally {
+			commandLoop.unlock();
+		}
+		LockSupport.parkNanos(ROUND_TRIP_NANOS);
+		return result;
+	}
+}
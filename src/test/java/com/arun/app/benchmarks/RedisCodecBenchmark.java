@@ -0,0 +1,99 @@
+package com.arun.app.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.arun.app.dtos.WeatherDataDto;
+import com.arun.app.models.PincodeLocation;
+import com.arun.app.models.WeatherData;
+import com.arun.app.serializers.PincodeLocationRedisSerializer;
+import com.arun.app.serializers.RedisValueCodec;
+import com.arun.app.serializers.WeatherDataDtoRedisSerializer;
+import com.arun.app.serializers.WeatherDataRedisSerializer;
+import com.arun.app.services.WeatherDataService;
+import com.arun.app.utils.WeatherJsonParser;
+
+/*
+ * Binary value codec against the JDK serialization it replaces. Bytes per entry are printed
+ * once per trial; run with -prof gc for allocation per operation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RedisCodecBenchmark {
+	@Param({"BINARY", "JDK"})
+	private RedisValueCodec codec;
+
+	private PincodeLocationRedisSerializer pincodeLocationSerializer;
+	private WeatherDataRedisSerializer weatherDataSerializer;
+	private WeatherDataDtoRedisSerializer weatherDataDtoSerializer;
+	private PincodeLocation pincodeLocation;
+	private WeatherData weatherData;
+	private WeatherDataDto weatherDataDto;
+	private byte[] pincodeLocationBytes;
+	private byte[] weatherDataBytes;
+	private byte[] weatherDataDtoBytes;
+
+	@Setup
+	public void setUp() throws Exception {
+		pincodeLocationSerializer = new PincodeLocationRedisSerializer(codec);
+		weatherDataSerializer = new WeatherDataRedisSerializer(codec);
+		weatherDataDtoSerializer = new WeatherDataDtoRedisSerializer(codec);
+
+		pincodeLocation = WeatherJsonParser.parsePincodeLocation(Fixtures.GEOCODING_ZIP);
+		weatherData = new WeatherDataService(null, null, null, null, null, null, null, null, null, null, null, null, null, null).jsonToWeatherData(Fixtures.OPEN_METEO_ARCHIVE);
+		weatherData.setLatitude(pincodeLocation.getLatitude());
+		weatherData.setLongitude(pincodeLocation.getLongitude());
+		weatherDataDto = WeatherDataDto.get(weatherData, pincodeLocation.getPincode());
+
+		pincodeLocationBytes = pincodeLocationSerializer.serialize(pincodeLocation);
+		weatherDataBytes = weatherDataSerializer.serialize(weatherData);
+		weatherDataDtoBytes = weatherDataDtoSerializer.serialize(weatherDataDto);
+		System.out.println(codec+" bytes per entry: pincode:="+pincodeLocationBytes.length
+				+" old-weather:="+weatherDataBytes.length+" current-weather:="+weatherDataDtoBytes.length);
+	}
+
+	@Benchmark
+	public byte[] encodePincodeLocation() {
+		return pincodeLocationSerializer.serialize(pincodeLocation);
+	}
+
+	@Benchmark
+	public PincodeLocation decodePincodeLocation() {
+		return pincodeLocationSerializer.deserialize(pincodeLocationBytes);
+	}
+
+	@Benchmark
+	public byte[] encodeWeatherData() {
+		return weatherDataSerializer.serialize(weatherData);
+	}
+
+	@Benchmark
+	public WeatherData decodeWeatherData() {
+		return weatherDataSerializer.deserialize(weatherDataBytes);
+	}
+
+	@Benchmark
+	public byte[] encodeWeatherDataDto() {
+		return weatherDataDtoSerializer.serialize(weatherDataDto);
+	}
+
+	@Benchmark
+	public WeatherDataDto decodeWeatherDataDto() {
+		return weatherDataDtoSerializer.deserialize(weatherDataDtoBytes);
+	}
+}
@@ -0,0 +1,64 @@
+package com.arun.app.benchmarks;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.arun.app.models.PincodeLocation;
+import com.arun.app.utils.PincodeSpatialIndex;
+
+/*
+ * Nearest-pincode lookups against an index of random points over India's bounding box. The
+ * postal directory has about 19,000 distinct pincodes.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SpatialIndexBenchmark {
+	private static final int QUERIES = 1024;
+
+	@Param({"20000", "200000"})
+	private int pincodes;
+
+	private PincodeSpatialIndex index;
+	private final double[] latitudes = new double[QUERIES];
+	private final double[] longitudes = new double[QUERIES];
+	private int next;
+
+	@Setup
+	public void setUp() {
+		Random random = new Random(7);
+		index = new PincodeSpatialIndex(0.1);
+		for(int i = 0; i < pincodes; i++) {
+			PincodeLocation pincodeLocation = new PincodeLocation();
+			pincodeLocation.setPincode(String.valueOf(100000+i));
+			pincodeLocation.setLatitude(8+random.nextDouble()*29);
+			pincodeLocation.setLongitude(68+random.nextDouble()*29);
+			index.put(pincodeLocation);
+		}
+		for(int i = 0; i < QUERIES; i++) {
+			latitudes[i] = 8+random.nextDouble()*29;
+			longitudes[i] = 68+random.nextDouble()*29;
+		}
+	}
+
+	@Benchmark
+	public PincodeLocation nearest() {
+		int i = next++ & (QUERIES-1);
+		return index.nearest(latitudes[i], longitudes[i], 25);
+	}
+}
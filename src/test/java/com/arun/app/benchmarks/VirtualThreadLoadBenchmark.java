@@ -0,0 +1,12 @@
+package com.arun.app.benchmarks;
+
+import org.springframework.test.context.TestPropertySource;
+
+@TestPropertySource(properties = "spring.threads.virtual.enabled=true")
+class VirtualThreadLoadBenchmark extends AbstractLoadBenchmark {
+
+	@Override
+	String mode() {
+		return "virtual threads";
+	}
+}
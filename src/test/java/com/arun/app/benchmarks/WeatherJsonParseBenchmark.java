@@ -0,0 +1,90 @@
+package com.arun.app.benchmarks;
+
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.time.ZoneId;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.arun.app.models.WeatherData;
+import com.arun.app.utils.WeatherJsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/*
+ * Streaming WeatherJsonParser against the JsonNode tree code it replaced in WeatherDataService.
+ * Run with -prof gc to compare gc.alloc.rate.norm (bytes per parse).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class WeatherJsonParseBenchmark {
+	private static final int HOUR_INDEX = Calendar.HOUR_OF_DAY-1;
+	private static final ObjectMapper SHARED_MAPPER = new ObjectMapper();
+
+	@Param({"current", "archive"})
+	private String payload;
+	private String json;
+
+	@Setup
+	public void setUp() {
+		json = "current".equals(payload) ? Fixtures.OPEN_METEO_CURRENT : Fixtures.OPEN_METEO_ARCHIVE;
+	}
+
+	@Benchmark
+	public WeatherData streaming() throws JsonProcessingException {
+		return WeatherJsonParser.parseWeather(json, HOUR_INDEX);
+	}
+
+	@Benchmark
+	public WeatherData treeNewMapperPerCall() throws JsonProcessingException, ParseException {
+		return treeParse(new ObjectMapper(), json);
+	}
+
+	@Benchmark
+	public WeatherData treeSharedMapper() throws JsonProcessingException, ParseException {
+		return treeParse(SHARED_MAPPER, json);
+	}
+
+	// the previous WeatherDataService.jsonToWeatherData, kept here as the baseline
+	private static WeatherData treeParse(ObjectMapper objectMapper, String jsonResponse) 
+			throws JsonProcessingException, ParseException {
+		JsonNode rootNode = objectMapper.readTree(jsonResponse);
+		WeatherData weatherData = new WeatherData();
+		SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd");
+		JsonNode current = rootNode.get("current");
+		if(current != null) {
+			Date date = dateFormat.parse(current.get("time").asText());
+			weatherData.setDate(date.toInstant().atZone(ZoneId.systemDefault()).toLocalDate());
+			weatherData.setTemperature(Double.valueOf(current.get("temperature_2m").asText()));
+			weatherData.setHumidity(rootNode.get("hourly").get("relative_humidity_2m").get(HOUR_INDEX).asInt());
+			weatherData.setWindSpeed(Double.valueOf(current.get("wind_speed_10m").asText()));
+		}
+		else {
+			JsonNode hourly = rootNode.get("hourly");
+			Date date = dateFormat.parse(hourly.get("time").get(HOUR_INDEX).asText());
+			weatherData.setDate(date.toInstant().atZone(ZoneId.systemDefault()).toLocalDate());
+			weatherData.setTemperature(Double.valueOf(hourly.get("temperature_2m").get(HOUR_INDEX).asText()));
+			weatherData.setHumidity(hourly.get("relative_humidity_2m").get(HOUR_INDEX).asInt());
+			weatherData.setWindSpeed(Double.valueOf(hourly.get("wind_speed_10m").get(HOUR_INDEX).asText()));
+		}
+		return weatherData;
+	}
+}
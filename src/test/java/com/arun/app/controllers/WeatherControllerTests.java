@@ -9,6 +9,9 @@ import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import java.io.ByteArrayOutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.time.LocalDate;
@@ -17,6 +20,7 @@ import java.time.format.DateTimeFormatter;
 import java.time.format.DateTimeParseException;
 import java.util.Date;
 import java.util.TimeZone;
+import java.util.stream.Stream;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -32,10 +36,14 @@ import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import com.arun.app.dtos.WeatherDataDto;
+import com.arun.app.models.PincodeLocation;
 import com.arun.app.models.WeatherData;
+import com.arun.app.services.PincodeLocationService;
 import com.arun.app.services.WeatherDataService;
+import com.fasterxml.jackson.core.JsonParseException;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.JsonMappingException;
 
@@ -43,6 +51,8 @@ import com.fasterxml.jackson.databind.JsonMappingException;
 public class WeatherControllerTests {
 	@MockitoBean
     private WeatherDataService weatherDataService;
+	@MockitoBean
+    private PincodeLocationService pincodeLocationService;
 	
     @Autowired
     private WeatherController weatherController;
@@ -130,4 +140,90 @@ public class WeatherControllerTests {
         verify(weatherDataService, times(1)).getOldWeather(pincode,  LocalDate.parse(date));
 		
     }
+
+    @Test
+    void testGetWeatherAtHourUsesStoredSeries() throws Exception {
+        String pincode = "12345";
+        LocalDate yesterday = LocalDate.now().minusDays(1);
+        WeatherData weatherData = new WeatherData();
+        weatherData.setDate(yesterday);
+        weatherData.setTemperature(19.5);
+        when(weatherDataService.getOldWeather(pincode, yesterday, 7)).thenReturn(weatherData);
+
+        ResponseEntity<WeatherDataDto> response = weatherController.getWeatherAtHour(pincode, yesterday.toString(), 7);
+
+        assertEquals(19.5, response.getBody().getTemperature());
+        assertThrows(IllegalArgumentException.class,
+                () -> weatherController.getWeatherAtHour(pincode, yesterday.toString(), 24));
+    }
+
+    @Test
+    void testGetWeatherByCoordinatesUsesNearestPincode() throws Exception {
+        LocalDate yesterday = LocalDate.now().minusDays(1);
+        PincodeLocation nearest = new PincodeLocation();
+        nearest.setPincode("110001");
+        WeatherData weatherData = new WeatherData();
+        weatherData.setTemperature(24.0);
+        when(pincodeLocationService.getNearestPincodeLocation(28.63, 77.22)).thenReturn(nearest);
+        when(weatherDataService.getOldWeather("110001", yesterday)).thenReturn(weatherData);
+
+        ResponseEntity<WeatherDataDto> response = weatherController.getWeatherByCoordinates(28.63, 77.22,
+                yesterday.toString(), null);
+
+        assertEquals("110001", response.getBody().getPincode());
+        assertEquals(24.0, response.getBody().getTemperature());
+    }
+
+    @Test
+    void testGetWeatherHistoryStreamsOneJsonLinePerDay() throws Exception {
+        WeatherData first = new WeatherData();
+        first.setDate(LocalDate.of(2025, 3, 1));
+        first.setTemperature(21.5);
+        WeatherData second = new WeatherData();
+        second.setDate(LocalDate.of(2025, 3, 2));
+        when(weatherDataService.getWeatherHistory("12345", LocalDate.of(2025, 3, 1), LocalDate.of(2025, 3, 2)))
+                .thenReturn(Stream.concat(Stream.of(first, second),
+                        Stream.<WeatherData>of((WeatherData) null).map(w -> { throw new IllegalArgumentException("Invalid date"); })));
+
+        ResponseEntity<StreamingResponseBody> response = weatherController.getWeatherHistory("12345", "2025-03-01", "2025-03-02");
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        response.getBody().writeTo(out);
+
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(3, lines.length);
+        assertTrue(lines[0].contains("\"date\":\"2025-03-01\"") && lines[0].contains("\"temperature\":21.5"));
+        assertEquals("{\"error\":\"Invalid date\"}", lines[2]);
+    }
+
+    @Test
+    void testGetWeatherHistoryEndsWithAnErrorLineOnAnUnreadableArchiveResponse() throws Exception {
+        WeatherData stored = new WeatherData();
+        stored.setDate(LocalDate.of(2025, 3, 1));
+        when(weatherDataService.getWeatherHistory("12345", LocalDate.of(2025, 3, 1), LocalDate.of(2025, 3, 2)))
+                .thenReturn(Stream.concat(Stream.of(stored), Stream.<WeatherData>of((WeatherData) null).map(w -> {
+                    throw new UncheckedIOException("Unreadable archive response", new JsonParseException(null, "Unexpected end-of-input"));
+                })));
+
+        ResponseEntity<StreamingResponseBody> response = weatherController.getWeatherHistory("12345", "2025-03-01", "2025-03-02");
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        response.getBody().writeTo(out);
+
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(2, lines.length);
+        assertTrue(lines[0].contains("\"date\":\"2025-03-01\""));
+        assertEquals("{\"error\":\"Unreadable archive response\"}", lines[1]);
+    }
+
+    @Test
+    void testGetWeatherHistoryRejectsToday() {
+        String today = LocalDate.now().toString();
+
+        assertThrows(IllegalArgumentException.class, () -> weatherController.getWeatherHistory("12345", today, today));
+    }
+
+    @Test
+    void testGetWeatherSummaryRejectsInvalidMonth() {
+        Exception ex = assertThrows(DateTimeParseException.class, () -> weatherController.getWeatherSummary("12345", "2025-13", "2025-12"));
+        assertEquals("Invalid Month: 2025-13", ex.getMessage());
+    }
 }
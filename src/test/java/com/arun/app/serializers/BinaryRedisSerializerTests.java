@@ -0,0 +1,169 @@
+package com.arun.app.serializers;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Base64;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.serializer.SerializationException;
+
+import com.arun.app.dtos.WeatherDataDto;
+import com.arun.app.models.PincodeLocation;
+import com.arun.app.models.WeatherData;
+import com.arun.app.utils.HourlySeries;
+
+public class BinaryRedisSerializerTests {
+	private final WeatherDataRedisSerializer weatherDataSerializer = new WeatherDataRedisSerializer(RedisValueCodec.BINARY);
+
+	private static WeatherData weatherData() {
+		WeatherData weatherData = new WeatherData();
+		weatherData.setLatitude(28.6328);
+		weatherData.setLongitude(77.2204);
+		weatherData.setDate(LocalDate.of(2025, 3, 25));
+		weatherData.setTemperature(29.4);
+		weatherData.setHumidity(41);
+		weatherData.setWindSpeed(7.2);
+		return weatherData;
+	}
+
+	@Test
+	void testWeatherDataRoundTrip() {
+		byte[] bytes = weatherDataSerializer.serialize(weatherData());
+		WeatherData result = weatherDataSerializer.deserialize(bytes);
+
+		assertEquals(45, bytes.length);
+		assertEquals(28.6328, result.getLatitude());
+		assertEquals(77.2204, result.getLongitude());
+		assertEquals(LocalDate.of(2025, 3, 25), result.getDate());
+		assertEquals(29.4, result.getTemperature());
+		assertEquals(41, result.getHumidity());
+		assertEquals(7.2, result.getWindSpeed());
+	}
+
+	@Test
+	void testHourlySeriesRoundTripAndVersionOneStillReads() {
+		WeatherData weatherData = weatherData();
+		double[] temperature = new double[24];
+		Arrays.fill(temperature, 21.5);
+		weatherData.setHourly(HourlySeries.pack(temperature, new double[0], new int[0], 0));
+
+		byte[] bytes = weatherDataSerializer.serialize(weatherData);
+		assertEquals(45+HourlySeries.BYTES, bytes.length);
+		assertEquals(21.5, HourlySeries.temperatureAt(weatherDataSerializer.deserialize(bytes).getHourly(), 23));
+
+		// version 1 had no series after the wind speed
+		byte[] versionOne = Arrays.copyOf(bytes, 41);
+		versionOne[0] = 1;
+		WeatherData result = weatherDataSerializer.deserialize(versionOne);
+		assertEquals(7.2, result.getWindSpeed());
+		assertNull(result.getHourly());
+	}
+
+	@Test
+	void testNullFieldsRoundTrip() {
+		WeatherDataDto dto = new WeatherDataDto();
+		dto.setLatitude(12.9716);
+		WeatherDataDtoRedisSerializer serializer = new WeatherDataDtoRedisSerializer(RedisValueCodec.BINARY);
+
+		WeatherDataDto result = serializer.deserialize(serializer.serialize(dto));
+
+		assertEquals(12.9716, result.getLatitude());
+		assertNull(result.getPincode());
+		assertNull(result.getDate());
+		assertNull(result.getHumidity());
+		assertNull(result.getWindSpeed());
+	}
+
+	@Test
+	void testFetchTimeRoundTripAndVersionTwoStillReads() {
+		WeatherDataDto dto = new WeatherDataDto();
+		dto.setTemperature(29.4);
+		dto.setFetchedAt(1742911200000L);
+		WeatherDataDtoRedisSerializer serializer = new WeatherDataDtoRedisSerializer(RedisValueCodec.BINARY);
+
+		byte[] bytes = serializer.serialize(dto);
+		assertEquals(1742911200000L, serializer.deserialize(bytes).getFetchedAt());
+
+		// version 2 ended after the hourly series
+		byte[] versionTwo = Arrays.copyOf(bytes, bytes.length-Long.BYTES);
+		versionTwo[0] = 2;
+		WeatherDataDto result = serializer.deserialize(versionTwo);
+		assertEquals(29.4, result.getTemperature());
+		assertNull(result.getFetchedAt());
+	}
+
+	@Test
+	void testPincodeLocationRoundTrip() {
+		PincodeLocation pincodeLocation = new PincodeLocation();
+		pincodeLocation.setPincode("110001");
+		pincodeLocation.setName("Nai Dilli");
+		pincodeLocation.setLatitude(28.6328);
+		pincodeLocation.setLongitude(77.2204);
+		pincodeLocation.setCountry("IN");
+		PincodeLocationRedisSerializer serializer = new PincodeLocationRedisSerializer(RedisValueCodec.BINARY);
+
+		PincodeLocation result = serializer.deserialize(serializer.serialize(pincodeLocation));
+
+		assertEquals("110001", result.getPincode());
+		assertEquals("Nai Dilli", result.getName());
+		assertEquals(77.2204, result.getLongitude());
+		assertEquals("IN", result.getCountry());
+	}
+
+	// JDK-serialized by the first release (before hourly, stale and fetchedAt existed) for the
+	// weatherData() reading, and for its WeatherDataDto with pincode 110001
+	private static final String LEGACY_WEATHER_DATA = "rO0ABXNyAB9jb20uYXJ1bi5hcHAubW9kZWxzLldlYXRoZXJEYXRhoXolO5Y0DdoCAAZMAARkYXRldAAVTGphdmEvdGltZS9M"
+			+ "b2NhbERhdGU7TAAIaHVtaWRpdHl0ABNMamF2YS9sYW5nL0ludGVnZXI7TAAIbGF0aXR1ZGV0ABJMamF2YS9sYW5nL0RvdWJs"
+			+ "ZTtMAAlsb25naXR1ZGVxAH4AA0wAC3RlbXBlcmF0dXJlcQB+AANMAAl3aW5kU3BlZWRxAH4AA3hwc3IADWphdmEudGltZS5T"
+			+ "ZXKVXYS6GyJIsgwAAHhwdwcDAAAH6QMZeHNyABFqYXZhLmxhbmcuSW50ZWdlchLioKT3gYc4AgABSQAFdmFsdWV4cgAQamF2"
+			+ "YS5sYW5nLk51bWJlcoaslR0LlOCLAgAAeHAAAAApc3IAEGphdmEubGFuZy5Eb3VibGWAs8JKKWv7BAIAAUQABXZhbHVleHEA"
+			+ "fgAIQDyh/y5I6KdzcQB+AApAU04bCJoCdXNxAH4ACkA9ZmZmZmZmc3EAfgAKQBzMzMzMzM0=";
+	private static final String LEGACY_WEATHER_DATA_DTO = "rO0ABXNyACBjb20uYXJ1bi5hcHAuZHRvcy5XZWF0aGVyRGF0YUR0b0Ags/xDPHTCAgAHTAAEZGF0ZXQAFUxqYXZhL3RpbWUv"
+			+ "TG9jYWxEYXRlO0wACGh1bWlkaXR5dAATTGphdmEvbGFuZy9JbnRlZ2VyO0wACGxhdGl0dWRldAASTGphdmEvbGFuZy9Eb3Vi"
+			+ "bGU7TAAJbG9uZ2l0dWRlcQB+AANMAAdwaW5jb2RldAASTGphdmEvbGFuZy9TdHJpbmc7TAALdGVtcGVyYXR1cmVxAH4AA0wA"
+			+ "CXdpbmRTcGVlZHEAfgADeHBzcgANamF2YS50aW1lLlNlcpVdhLobIkiyDAAAeHB3BwMAAAfpAxl4c3IAEWphdmEubGFuZy5J"
+			+ "bnRlZ2VyEuKgpPeBhzgCAAFJAAV2YWx1ZXhyABBqYXZhLmxhbmcuTnVtYmVyhqyVHQuU4IsCAAB4cAAAAClzcgAQamF2YS5s"
+			+ "YW5nLkRvdWJsZYCzwkopa/sEAgABRAAFdmFsdWV4cQB+AAlAPKH/Lkjop3NxAH4AC0BTThsImgJ1dAAGMTEwMDAxc3EAfgAL"
+			+ "QD1mZmZmZmZzcQB+AAtAHMzMzMzMzQ==";
+
+	@Test
+	void testReadsLegacyJdkEntries() {
+		WeatherData result = weatherDataSerializer.deserialize(Base64.getDecoder().decode(LEGACY_WEATHER_DATA));
+
+		assertEquals(29.4, result.getTemperature());
+		assertEquals(LocalDate.of(2025, 3, 25), result.getDate());
+		assertNull(result.getHourly());
+		assertEquals(1, weatherDataSerializer.getLegacyReadCount());
+
+		WeatherDataDto dto = new WeatherDataDtoRedisSerializer(RedisValueCodec.BINARY)
+				.deserialize(Base64.getDecoder().decode(LEGACY_WEATHER_DATA_DTO));
+		assertEquals("110001", dto.getPincode());
+		assertEquals(41, dto.getHumidity());
+		assertNull(dto.getFetchedAt());
+	}
+
+	@Test
+	void testJdkCodecStillReadsBinaryEntries() {
+		WeatherDataRedisSerializer jdkWriter = new WeatherDataRedisSerializer(RedisValueCodec.JDK);
+
+		byte[] written = jdkWriter.serialize(weatherData());
+
+		assertEquals((byte) 0xAC, written[0]);
+		assertEquals(29.4, jdkWriter.deserialize(weatherDataSerializer.serialize(weatherData())).getTemperature());
+	}
+
+	@Test
+	void testRejectsUnknownVersionAndTruncatedValues() {
+		byte[] bytes = weatherDataSerializer.serialize(weatherData());
+		byte[] unknownVersion = bytes.clone();
+		unknownVersion[0] = 9;
+
+		assertThrows(SerializationException.class, () -> weatherDataSerializer.deserialize(unknownVersion));
+		assertThrows(SerializationException.class,
+				() -> weatherDataSerializer.deserialize(Arrays.copyOf(bytes, 10)));
+	}
+}
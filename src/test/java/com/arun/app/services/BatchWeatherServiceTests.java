@@ -0,0 +1,105 @@
+package com.arun.app.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.when;
+
+import java.time.LocalDate;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+import com.arun.app.dtos.BatchWeatherDto;
+import com.arun.app.models.PincodeLocation;
+import com.arun.app.models.WeatherData;
+
+@SpringBootTest
+public class BatchWeatherServiceTests {
+
+	@MockitoBean
+	private PincodeLocationService pincodeLocationService;
+
+	@MockitoBean
+	private WeatherDataService weatherDataService;
+
+	@Autowired
+	private BatchWeatherService batchWeatherService;
+
+	private static PincodeLocation location(String pincode, double lat, double lon) {
+		PincodeLocation location = new PincodeLocation();
+		location.setPincode(pincode);
+		location.setLatitude(lat);
+		location.setLongitude(lon);
+		return location;
+	}
+
+	private static WeatherData weather(PincodeLocation location, double temperature) {
+		WeatherData weatherData = new WeatherData();
+		weatherData.setLatitude(location.getLatitude());
+		weatherData.setLongitude(location.getLongitude());
+		weatherData.setTemperature(temperature);
+		return weatherData;
+	}
+
+	@Test
+	void testGetWeatherMixesCachedFetchedAndFailedItems() throws Exception {
+		LocalDate date = LocalDate.of(2025, 3, 25);
+		PincodeLocation cached = location("110001", 28.6342, 77.2176);
+		PincodeLocation geocoded = location("560001", 12.9716, 77.5946);
+
+		when(pincodeLocationService.getPincodeLocations(anyCollection())).thenReturn(Map.of("110001", cached));
+		when(pincodeLocationService.getPincodeLocation("560001")).thenReturn(geocoded);
+		when(pincodeLocationService.getPincodeLocation("999999"))
+				.thenThrow(new IllegalArgumentException("Pincode: 999999 not found"));
+		when(weatherDataService.getCachedWeather(anyCollection(), eq(date)))
+				.thenReturn(Map.of(WeatherDataService.locationKey(cached), weather(cached, 22.5)));
+		when(weatherDataService.fetchWeather(eq(List.of(geocoded)), eq(date)))
+				.thenReturn(Map.of(WeatherDataService.locationKey(geocoded), weather(geocoded, 30.1)));
+
+		List<BatchWeatherDto> result = batchWeatherService.getWeather(List.of("110001", "560001", "999999"), date);
+
+		assertEquals(3, result.size());
+		assertEquals("110001", result.get(0).getPincode());
+		assertEquals(22.5, result.get(0).getWeather().getTemperature());
+		assertEquals("560001", result.get(1).getPincode());
+		assertEquals(30.1, result.get(1).getWeather().getTemperature());
+		assertNull(result.get(2).getWeather());
+		assertEquals("Pincode: 999999 not found", result.get(2).getError());
+	}
+
+	@Test
+	void testGetWeatherKeepsCachedItemsWhenUpstreamFails() throws Exception {
+		LocalDate date = LocalDate.of(2025, 3, 25);
+		PincodeLocation cached = location("110001", 28.6342, 77.2176);
+		PincodeLocation uncached = location("560001", 12.9716, 77.5946);
+
+		when(pincodeLocationService.getPincodeLocations(anyCollection()))
+				.thenReturn(Map.of("110001", cached, "560001", uncached));
+		when(weatherDataService.getCachedWeather(anyCollection(), eq(date)))
+				.thenReturn(Map.of(WeatherDataService.locationKey(cached), weather(cached, 22.5)));
+		when(weatherDataService.fetchWeather(anyCollection(), any(LocalDate.class)))
+				.thenThrow(new IllegalArgumentException("Invalid date"));
+
+		List<BatchWeatherDto> result = batchWeatherService.getWeather(List.of("110001", "560001"), date);
+
+		assertEquals(22.5, result.get(0).getWeather().getTemperature());
+		assertEquals("Invalid date", result.get(1).getError());
+	}
+
+	@Test
+	void testGetWeatherRejectsOversizedBatch() {
+		List<String> pincodes = Collections.nCopies(101, "110001");
+
+		assertThrows(IllegalArgumentException.class,
+				() -> batchWeatherService.getWeather(pincodes, LocalDate.of(2025, 3, 25)));
+	}
+}
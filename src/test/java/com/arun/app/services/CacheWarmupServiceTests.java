@@ -0,0 +1,135 @@
+package com.arun.app.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.projection.SpelAwareProxyProjectionFactory;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+
+import com.arun.app.dtos.CacheWarmupDto;
+import com.arun.app.models.PincodeLocation;
+import com.arun.app.models.WeatherData;
+import com.arun.app.repositories.PincodeLocationRepo;
+import com.arun.app.repositories.WeatherDataRepo;
+import com.arun.app.repositories.WeatherDataView;
+import com.arun.app.utils.TierMetrics;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+public class CacheWarmupServiceTests {
+	private static final boolean ENABLED = true;
+	private static final int WEATHER_DAYS = 7;
+	private static final int MAX_WEATHER_ROWS = 100;
+	private static final int PAGE_SIZE = 2;
+
+	private PincodeLocationRepo pincodeLocationRepo;
+	private WeatherDataRepo weatherDataRepo;
+	private ValueOperations<String, PincodeLocation> pincodeOps;
+	private ValueOperations<String, WeatherData> weatherOps;
+	private RedisTemplate<String, PincodeLocation> pincodeRedis;
+	private RedisTemplate<String, WeatherData> weatherRedis;
+	private Cache<String, PincodeLocation> pincodeLocalCache;
+
+	@BeforeEach
+	@SuppressWarnings("unchecked")
+	void setUp() {
+		pincodeLocationRepo = mock(PincodeLocationRepo.class);
+		weatherDataRepo = mock(WeatherDataRepo.class);
+		pincodeRedis = mock(RedisTemplate.class);
+		weatherRedis = mock(RedisTemplate.class);
+		pincodeOps = mock(ValueOperations.class);
+		weatherOps = mock(ValueOperations.class);
+		when(pincodeRedis.opsForValue()).thenReturn(pincodeOps);
+		when(weatherRedis.opsForValue()).thenReturn(weatherOps);
+		pincodeLocalCache = Caffeine.newBuilder().build();
+	}
+
+	private CacheWarmupService service(int maxPincodes, Duration timeout) {
+		return new CacheWarmupService(pincodeLocationRepo, weatherDataRepo, pincodeRedis, weatherRedis, pincodeLocalCache,
+				new TierMetrics(new SimpleMeterRegistry()), ENABLED, maxPincodes, WEATHER_DAYS, MAX_WEATHER_ROWS, PAGE_SIZE, timeout);
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	void testPagesAreReadByKeysetAndWrittenOneMsetPerPage() {
+		PincodeLocation p110001 = pincodeLocation(30, "110001");
+		PincodeLocation p560001 = pincodeLocation(20, "560001");
+		PincodeLocation p400001 = pincodeLocation(10, "400001");
+		when(pincodeLocationRepo.findByIdLessThanOrderByIdDesc(Long.MAX_VALUE, Limit.of(PAGE_SIZE))).thenReturn(List.of(p110001, p560001));
+		when(pincodeLocationRepo.findByIdLessThanOrderByIdDesc(20, Limit.of(1))).thenReturn(List.of(p400001));
+		WeatherDataView first = view(28.625, 77.225, LocalDate.of(2025, 3, 25));
+		WeatherDataView second = view(28.625, 77.225, LocalDate.of(2025, 3, 26));
+		WeatherDataView third = view(28.725, 77.125, LocalDate.of(2025, 3, 25));
+		when(weatherDataRepo.findViewsFrom(any(LocalDate.class), eq(Limit.of(PAGE_SIZE)))).thenReturn(List.of(first, second));
+		when(weatherDataRepo.findViewsFromAfter(any(LocalDate.class), eq(28.625), eq(77.225), eq(LocalDate.of(2025, 3, 26)), eq(Limit.of(PAGE_SIZE))))
+				.thenReturn(List.of(third));
+
+		CacheWarmupDto result = service(3, Duration.ofMinutes(1)).warmUp();
+
+		assertTrue(result.isComplete());
+		assertEquals(3, result.getPincodes());
+		assertEquals(3, result.getWeatherRows());
+		// stops at WARMUP_PINCODES without asking for a fourth row
+		verify(pincodeLocationRepo, times(2)).findByIdLessThanOrderByIdDesc(anyLong(), any(Limit.class));
+		ArgumentCaptor<Map<String, PincodeLocation>> pages = ArgumentCaptor.forClass(Map.class);
+		verify(pincodeOps, times(2)).multiSet(pages.capture());
+		assertEquals(Map.of("pincode:110001", p110001, "pincode:560001", p560001), pages.getAllValues().get(0));
+		assertSame(p400001, pincodeLocalCache.getIfPresent("400001"));
+		// the next page starts after the location and date of the last row
+		ArgumentCaptor<Map<String, WeatherData>> weatherPages = ArgumentCaptor.forClass(Map.class);
+		verify(weatherOps, times(2)).multiSet(weatherPages.capture());
+		assertEquals(Set.of("old-weather:28.625:77.225:2025-03-25", "old-weather:28.625:77.225:2025-03-26"),
+				weatherPages.getAllValues().get(0).keySet());
+		assertEquals(28.725, weatherPages.getAllValues().get(1).get("old-weather:28.725:77.125:2025-03-25").getLatitude());
+	}
+
+	@Test
+	void testWarmUpStopsAtTheDeadline() {
+		CacheWarmupDto result = service(3, Duration.ofMillis(-1)).warmUp();
+
+		assertFalse(result.isComplete());
+		verify(pincodeLocationRepo, never()).findByIdLessThanOrderByIdDesc(anyLong(), any(Limit.class));
+		verify(pincodeOps, never()).multiSet(anyMap());
+	}
+
+	private static WeatherDataView view(double latitude, double longitude, LocalDate date) {
+		WeatherData weatherData = new WeatherData();
+		weatherData.setLatitude(latitude);
+		weatherData.setLongitude(longitude);
+		weatherData.setDate(date);
+		return new SpelAwareProxyProjectionFactory().createProjection(WeatherDataView.class, weatherData);
+	}
+
+	private static PincodeLocation pincodeLocation(long id, String pincode) {
+		PincodeLocation pincodeLocation = new PincodeLocation();
+		pincodeLocation.setId(id);
+		pincodeLocation.setPincode(pincode);
+		pincodeLocation.setLatitude(28.6);
+		pincodeLocation.setLongitude(77.2);
+		return pincodeLocation;
+	}
+}
@@ -0,0 +1,139 @@
+package com.arun.app.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.contains;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import com.arun.app.dtos.PincodeImportDto;
+import com.arun.app.models.PincodeLocation;
+import com.arun.app.utils.IdSequence;
+import com.arun.app.utils.PincodeSpatialIndex;
+
+public class PincodeImportServiceTests {
+	private static final String CSV = "circlename,officename,pincode,district,statename,latitude,longitude\n"
+			+ "Delhi Circle,\"Connaught Place, S.O\",110001,New Delhi,DELHI,28.6328,77.2204\n"
+			+ "Delhi Circle,Parliament House S.O,110001,New Delhi,DELHI,28.6172,77.2080\n"
+			+ "Karnataka Circle,Bangalore G.P.O.,560001,Bangalore,KARNATAKA,12.9716,77.5946\n"
+			+ "Karnataka Circle,Unmapped B.O,560002,Bangalore,KARNATAKA,NA,NA\n"
+			+ "Maharashtra Circle,Mumbai G.P.O.,400001,Mumbai,MAHARASHTRA,18.9388,72.8354\n";
+
+	// no import at startup; the tests call importCsv themselves
+	private static final String NO_IMPORT_FILE = "";
+	private static final boolean WARM_REDIS = true;
+
+	@TempDir
+	Path tempDir;
+
+	private JdbcTemplate jdbcTemplate;
+	private RedisTemplate<String, PincodeLocation> pincodeRedis;
+	private ValueOperations<String, PincodeLocation> valueOps;
+	private PincodeSpatialIndex pincodeSpatialIndex;
+
+	@BeforeEach
+	@SuppressWarnings("unchecked")
+	void setUp() {
+		jdbcTemplate = mock(JdbcTemplate.class);
+		pincodeRedis = mock(RedisTemplate.class);
+		valueOps = mock(ValueOperations.class);
+		pincodeSpatialIndex = new PincodeSpatialIndex(0.1);
+		when(pincodeRedis.opsForValue()).thenReturn(valueOps);
+		when(jdbcTemplate.batchUpdate(anyString(), anyList()))
+				.thenAnswer(invocation -> new int[((List<?>) invocation.getArgument(1)).size()]);
+		// each nextval reserves a block of BaseModel.ID_ALLOCATION ids ending at the value
+		when(jdbcTemplate.queryForList(contains("nextval"), eq(Long.class), anyInt())).thenReturn(List.of(100L), List.of(150L));
+	}
+
+	private PincodeImportService service(int batchSize) {
+		return new PincodeImportService(jdbcTemplate, mock(PlatformTransactionManager.class), pincodeRedis,
+				pincodeSpatialIndex, new IdSequence(jdbcTemplate), NO_IMPORT_FILE, batchSize, WARM_REDIS);
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	void testImportBatchesDistinctPincodesAndWarmsRedis() throws Exception {
+		when(jdbcTemplate.batchUpdate(anyString(), anyList())).thenReturn(new int[] {1, 1}, new int[] {0});
+		Path csv = Files.writeString(tempDir.resolve("pincodes.csv"), CSV);
+
+		PincodeImportDto result = service(2).importCsv(csv);
+
+		ArgumentCaptor<String> sql = ArgumentCaptor.forClass(String.class);
+		ArgumentCaptor<List<Object[]>> batches = ArgumentCaptor.forClass(List.class);
+		verify(jdbcTemplate, times(2)).batchUpdate(sql.capture(), batches.capture());
+		// ids are always sent: a schema created by hibernate has no default for them
+		assertTrue(sql.getValue().startsWith("INSERT INTO pincode_locations (id, pincode,"));
+		assertEquals(51L, batches.getAllValues().get(0).get(0)[0]);
+		assertEquals("110001", batches.getAllValues().get(0).get(0)[1]);
+		assertEquals("Connaught Place, S.O", batches.getAllValues().get(0).get(0)[2]);
+		assertEquals(52L, batches.getAllValues().get(0).get(1)[0]);
+		assertEquals(101L, batches.getAllValues().get(1).get(0)[0]);
+		assertEquals("400001", batches.getAllValues().get(1).get(0)[1]);
+		// one nextval per batch, and the sequence is moved past the imported ids at the end
+		verify(jdbcTemplate, times(2)).queryForList(contains("nextval"), eq(Long.class), eq(1));
+		verify(jdbcTemplate).queryForObject(contains("setval"), eq(Long.class));
+
+		ArgumentCaptor<Map<String, PincodeLocation>> redisValues = ArgumentCaptor.forClass(Map.class);
+		verify(valueOps, times(2)).multiSet(redisValues.capture());
+		assertEquals(12.9716, redisValues.getAllValues().get(0).get("pincode:560001").getLatitude());
+
+		assertEquals(5, result.getRowsRead());
+		assertEquals(2, result.getRowsInserted());
+		// duplicate 110001, unmapped 560002 and the already stored 400001
+		assertEquals(3, result.getRowsSkipped());
+		assertEquals("5", Files.readString(tempDir.resolve("pincodes.csv.checkpoint")));
+		assertEquals("560001", pincodeSpatialIndex.nearest(12.97, 77.59, 5).getPincode());
+	}
+
+	@Test
+	void testRerunResumesFromCheckpoint() throws Exception {
+		Path csv = Files.writeString(tempDir.resolve("pincodes.csv"), CSV);
+		Files.writeString(tempDir.resolve("pincodes.csv.checkpoint"), "3");
+
+		PincodeImportDto result = service(100).importCsv(csv);
+
+		assertEquals(3, result.getResumedFromRow());
+		assertEquals(2, result.getRowsRead());
+		verify(valueOps).multiSet(anyMap());
+	}
+
+	@Test
+	void testParseCsvLineHandlesQuotes() {
+		assertEquals(List.of("a", "b, c", "say \"hi\"", ""), PincodeImportService.parseCsvLine("a,\"b, c\",\"say \"\"hi\"\"\","));
+	}
+
+	@Test
+	void testIdsSpanSequenceBlocks() {
+		when(jdbcTemplate.queryForList(contains("nextval"), eq(Long.class), eq(2))).thenReturn(List.of(1L, 51L));
+		when(jdbcTemplate.queryForList(contains("nextval"), eq(Long.class), eq(1))).thenReturn(List.of(101L));
+
+		// the block of a fresh sequence's first value 1 is that id alone, the rest comes from one more nextval
+		long[] ids = new IdSequence(jdbcTemplate).allocate(60);
+		assertEquals(1, ids[0]);
+		assertEquals(2, ids[1]);
+		assertEquals(51, ids[50]);
+		assertEquals(52, ids[51]);
+		assertEquals(60, ids[59]);
+	}
+}
@@ -2,29 +2,45 @@ package com.arun.app.services;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.doNothing;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.data.redis.core.ValueOperations;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.util.ReflectionTestUtils;
 import org.springframework.web.client.HttpClientErrorException;
 import org.springframework.web.client.RestTemplate;
 
 import com.arun.app.dtos.WeatherDataDto;
 import com.arun.app.models.PincodeLocation;
 import com.arun.app.repositories.PincodeLocationRepo;
+import com.arun.app.repositories.PincodePointView;
+import com.github.benmanes.caffeine.cache.Cache;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.JsonMappingException;
 
@@ -52,6 +68,18 @@ public class PincodeLocationServiceTests {
 	@Autowired
 	private PincodeLocationService pincodeLocationService;
 	
+	@Autowired
+	private Cache<String, PincodeLocation> pincodeLocalCache;
+	
+	@Autowired
+	private Cache<String, Boolean> pincodeNegativeCache;
+	
+	@BeforeEach
+	void clearLocalCache() {
+		pincodeLocalCache.invalidateAll();
+		pincodeNegativeCache.invalidateAll();
+	}
+	
 	 @Test
 	    void testGetPincodeLocationFromDb() throws JsonMappingException, JsonProcessingException {
 	        String pincode = "110001";
@@ -74,6 +102,27 @@ public class PincodeLocationServiceTests {
 	        assertEquals(expectedLocation.getName(), result.getName());
 	    }
 
+	 @Test
+	    void testGetPincodeLocationFromLocalCache() throws JsonMappingException, JsonProcessingException {
+	        String pincode = "110001";
+	        PincodeLocation expectedLocation = new PincodeLocation();
+	        expectedLocation.setPincode(pincode);
+	        expectedLocation.setLatitude(28.6342);
+	        expectedLocation.setLongitude(77.2176);
+
+	        when(redisTemplate.opsForValue()).thenReturn(valueOps);
+		    when(valueOps.get("pincode:" + pincode)).thenReturn(expectedLocation);
+
+	        PincodeLocation first = pincodeLocationService.getPincodeLocation(pincode);
+	        PincodeLocation second = pincodeLocationService.getPincodeLocation(pincode);
+
+	        assertEquals(expectedLocation, first);
+	        assertEquals(expectedLocation, second);
+	        // second lookup is served in-process without a redis round trip
+	        verify(valueOps, times(1)).get("pincode:" + pincode);
+	        verify(pincodeLocationRepo, times(0)).findByPincode(pincode);
+	    }
+
 	 @Test
 	 	void testGetPincodeLocationFromAPI() throws JsonMappingException, JsonProcessingException {
 	     String pincode = "110001";
@@ -150,6 +199,54 @@ public class PincodeLocationServiceTests {
 	        assertEquals("Invalid API key", thrownException.getMessage());
 	    }
 
+	    @Test
+	    void testMalformedPincodeIsRejectedWithoutLookups() {
+	        IllegalArgumentException exception = assertThrows(IllegalArgumentException.class,
+	        		() -> pincodeLocationService.getPincodeLocation("11000A"));
+
+	        assertEquals("Invalid pincode: 11000A", exception.getMessage());
+	        verify(redisTemplate, never()).opsForValue();
+	        verify(pincodeLocationRepo, never()).findByPincode(anyString());
+	    }
+
+	    @Test
+	    void testUnknownPincodeIsNegativelyCached() {
+	        String pincode = "110011";
+	        HttpClientErrorException exception = mock(HttpClientErrorException.class);
+	        when(exception.getResponseBodyAsString()).thenReturn("{\"cod\":\"404\",\"message\":\"not found\"}");
+	        when(pincodeLocationRepo.findByPincode(pincode)).thenReturn(null);
+	        when(restTemplate.getForObject(eq(geoCodingUrl+"?zip="+pincode+",IN&appid="+apiKey), eq(String.class))).thenThrow(exception);
+	        when(redisTemplate.opsForValue()).thenReturn(valueOps);
+	        when(valueOps.get(anyString())).thenReturn(null);
+
+	        for(int i = 0; i < 3; i++) {
+	        	IllegalArgumentException thrown = assertThrows(IllegalArgumentException.class,
+	        			() -> pincodeLocationService.getPincodeLocation(pincode));
+	        	assertEquals("Pincode: "+pincode+" not found", thrown.getMessage());
+	        }
+
+	        // one API call; the later lookups are answered in-process
+	        verify(restTemplate, times(1)).getForObject(anyString(), eq(String.class));
+	        verify(valueOps, times(1)).get("pincode:" + pincode);
+	        verify(valueOps).set(eq("pincode:" + pincode), argThat(tombstone -> tombstone.getLatitude() == null),
+	        		anyLong(), eq(TimeUnit.MILLISECONDS));
+	    }
+
+	    @Test
+	    void testRedisTombstoneSkipsDbAndApi() {
+	        String pincode = "560001";
+	        PincodeLocation tombstone = PincodeLocationService.tombstone(pincode);
+	        when(redisTemplate.opsForValue()).thenReturn(valueOps);
+	        when(valueOps.get("pincode:" + pincode)).thenReturn(tombstone);
+
+	        assertThrows(IllegalArgumentException.class, () -> pincodeLocationService.getPincodeLocation(pincode));
+
+	        assertNull(pincodeLocalCache.getIfPresent(pincode));
+	        assertEquals(Boolean.TRUE, pincodeNegativeCache.getIfPresent(pincode));
+	        verify(pincodeLocationRepo, never()).findByPincode(pincode);
+	        verify(restTemplate, never()).getForObject(anyString(), eq(String.class));
+	    }
+
 	    @Test
 	    void testCreatePincodeLocation() throws JsonMappingException, JsonProcessingException {
 	        PincodeLocation pincodeLocation = new PincodeLocation();
@@ -159,13 +256,14 @@ public class PincodeLocationServiceTests {
 	        pincodeLocation.setLongitude(77.2176);
 	        pincodeLocation.setCountry("India");
 
-	        when(pincodeLocationRepo.save(pincodeLocation)).thenReturn(pincodeLocation);
 	        when(redisTemplate.opsForValue()).thenReturn(valueOps);
 		    when(valueOps.get(anyString())).thenReturn(null);
 		    doNothing().when(valueOps).set(any(String.class), any(PincodeLocation.class));
 
 	        PincodeLocation result = pincodeLocationService.createPincodeLocation(pincodeLocation);
 
+	        // rows created by other tests may share the batch
+	        verify(pincodeLocationRepo, timeout(2000)).saveAll(argThat(rows -> containsPincode(rows, "110001")));
 	        assertNotNull(result);
 	        assertEquals(pincodeLocation.getPincode(), result.getPincode());
 	        assertEquals(pincodeLocation.getName(), result.getName());
@@ -220,6 +318,51 @@ public class PincodeLocationServiceTests {
 	        assertEquals(newLocation.getPincode(), result.getPincode());
 	    }
 
+	    @Test
+	    void testUpdateRightAfterCreateUpdatesTheQueuedRow() throws Exception {
+	        List<PincodeLocation> stored = new CopyOnWriteArrayList<>();
+	        when(pincodeLocationRepo.saveAll(any())).thenAnswer(invocation -> {
+	            for(PincodeLocation row : invocation.<Iterable<PincodeLocation>>getArgument(0)) {
+	                // what hibernate does to a new row on the flusher thread
+	                row.setId(row.getId() == 0 ? 42 : row.getId());
+	                stored.add(row);
+	            }
+	            return invocation.getArgument(0);
+	        });
+	        when(pincodeLocationRepo.findByPincode("560001"))
+	                .thenAnswer(invocation -> stored.stream().filter(row -> row.getPincode().equals("560001")).findFirst().orElse(null));
+	        when(pincodeLocationRepo.save(any(PincodeLocation.class))).thenAnswer(invocation -> invocation.getArgument(0));
+	        when(redisTemplate.opsForValue()).thenReturn(valueOps);
+
+	        PincodeLocation created = new PincodeLocation();
+	        created.setPincode("560001");
+	        created.setName("Bangalore G.P.O.");
+	        created.setLatitude(12.9716);
+	        created.setLongitude(77.5946);
+	        pincodeLocationService.createPincodeLocation(created);
+	        PincodeLocation renamed = new PincodeLocation();
+	        renamed.setPincode("560001");
+	        renamed.setName("Bengaluru G.P.O.");
+	        PincodeLocation result = pincodeLocationService.updatePincodeLocation(renamed);
+
+	        // one insert; the update found the flushed row instead of queueing a second one
+	        assertEquals(1, stored.stream().filter(row -> row.getPincode().equals("560001")).count());
+	        assertEquals(42, result.getId());
+	        assertEquals("Bengaluru G.P.O.", result.getName());
+	        assertEquals(12.9716, result.getLatitude());
+	        // the queued copy got the id, not the caller's instance
+	        assertEquals(0, created.getId());
+	        verify(valueOps).set(eq("pincode:560001"), argThat(location -> "Bengaluru G.P.O.".equals(location.getName())));
+	        assertEquals("Bengaluru G.P.O.", pincodeLocalCache.getIfPresent("560001").getName());
+	    }
+
+	    private static boolean containsPincode(Iterable<?> rows, String pincode) {
+	        if(rows == null) return false;
+	        for(Object row : rows)
+	            if(row instanceof PincodeLocation stored && pincode.equals(stored.getPincode())) return true;
+	        return false;
+	    }
+
 	    @Test
 	    void testJsonToPincodeLocation() throws JsonMappingException, JsonProcessingException {
 	        String jsonResponse = "{\"zip\":\"110001\",\"name\":\"Connaught Place\",\"lat\":\"28.6342\",\"lon\":\"77.2176\",\"country\":\"India\"}";
@@ -245,4 +388,29 @@ public class PincodeLocationServiceTests {
 	        assertEquals(77.2176, result.getLongitude());
 	        assertEquals("India", result.getCountry());
 	    }
+
+	    private record Point(Long getId, String getPincode, Double getLatitude, Double getLongitude) implements PincodePointView {}
+
+	    @Test
+	    void testIndexIsLoadedInKeysetPages() {
+	        // ids with gaps, in the far south pacific so no other test's lookups land near them
+	        List<PincodePointView> first = new ArrayList<>();
+	        for(int i = 1; i <= 5000; i++)
+	            first.add(new Point(3L*i, "T%05d".formatted(i), -60.0, -170.0+i*0.01));
+	        when(pincodeLocationRepo.findPointsByIdGreaterThanOrderById(0, Limit.of(5000))).thenReturn(first);
+	        when(pincodeLocationRepo.findPointsByIdGreaterThanOrderById(15000, Limit.of(5000)))
+	                .thenReturn(List.of(new Point(15007L, "T99999", -61.0, -170.0)));
+
+	        ReflectionTestUtils.setField(pincodeLocationService, "loadIndex", true);
+	        try {
+	            pincodeLocationService.run(null);
+	        } finally {
+	            ReflectionTestUtils.setField(pincodeLocationService, "loadIndex", false);
+	        }
+
+	        verify(pincodeLocationRepo, times(2)).findPointsByIdGreaterThanOrderById(anyLong(), any(Limit.class));
+	        verify(pincodeLocationRepo, never()).findAll(any(Pageable.class));
+	        assertEquals("T00001", pincodeLocationService.getNearestPincodeLocation(-60.0, -169.99).getPincode());
+	        assertEquals("T99999", pincodeLocationService.getNearestPincodeLocation(-61.0, -170.0).getPincode());
+	    }
 	}
\ No newline at end of file
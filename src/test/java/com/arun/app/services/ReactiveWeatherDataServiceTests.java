@@ -0,0 +1,149 @@
+package com.arun.app.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.core.ReactiveRedisTemplate;
+import org.springframework.data.redis.core.ReactiveValueOperations;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import com.arun.app.dtos.WeatherDataDto;
+import com.arun.app.exceptions.UpstreamUnavailableException;
+import com.arun.app.models.PincodeLocation;
+import com.arun.app.models.WeatherData;
+import com.arun.app.repositories.WeatherDataRepo;
+import com.arun.app.utils.LocationGrid;
+
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+public class ReactiveWeatherDataServiceTests {
+	private static final String CURRENT_RESPONSE = "{"
+			+ "\"current\":{\"temperature_2m\":\"25.5\",\"wind_speed_10m\":\"5.0\",\"time\":\"2025-03-25\"},"
+			+ "\"hourly\":{\"relative_humidity_2m\":[50,52,54,56,58,60,62,64,66,68,70,72,"
+			+ "74,76,78,80,82,84,86,88,90,92,94,96]}}";
+	private static final Duration NO_DELAY = Duration.ZERO;
+	private static final double GRID_DEGREES = 0.05;
+
+	private WeatherDataRepo weatherDataRepo;
+	private ReactivePincodeLocationService pincodeLocationService;
+	private ReactiveRedisTemplate<String, WeatherDataDto> weatherRedis;
+	private ReactiveValueOperations<String, WeatherDataDto> valueOps;
+	private ReactiveRedisTemplate<String, WeatherData> weatherRedis2;
+	private ReactiveValueOperations<String, WeatherData> valueOps2;
+	private WeatherDataService parser;
+	private AtomicInteger upstreamCalls;
+
+	@BeforeEach
+	@SuppressWarnings("unchecked")
+	void setUp() throws Exception {
+		weatherDataRepo = mock(WeatherDataRepo.class);
+		// only its payload parsing is used
+		parser = mock(WeatherDataService.class);
+		when(parser.jsonToWeatherData(anyString())).thenCallRealMethod();
+		pincodeLocationService = mock(ReactivePincodeLocationService.class);
+		weatherRedis = mock(ReactiveRedisTemplate.class);
+		valueOps = mock(ReactiveValueOperations.class);
+		weatherRedis2 = mock(ReactiveRedisTemplate.class);
+		valueOps2 = mock(ReactiveValueOperations.class);
+		upstreamCalls = new AtomicInteger();
+
+		PincodeLocation location = new PincodeLocation();
+		location.setLatitude(12.9716);
+		location.setLongitude(77.5946);
+		when(pincodeLocationService.getPincodeLocation(anyString())).thenReturn(Mono.just(location));
+		when(weatherRedis.opsForValue()).thenReturn(valueOps);
+		when(weatherRedis2.opsForValue()).thenReturn(valueOps2);
+		when(valueOps.get(anyString())).thenReturn(Mono.empty());
+		when(valueOps.set(anyString(), any(WeatherDataDto.class), any(Duration.class))).thenReturn(Mono.just(true));
+		when(valueOps2.get(anyString())).thenReturn(Mono.empty());
+	}
+
+	private ReactiveWeatherDataService service(HttpStatus status, String body, Duration delay) {
+		WebClient webClient = WebClient.builder()
+				.exchangeFunction(request -> {
+					upstreamCalls.incrementAndGet();
+					return Mono.just(ClientResponse.create(status)
+							.header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+							.body(body)
+							.build()).delayElement(delay);
+				})
+				.build();
+		ReactiveWeatherDataService service = new ReactiveWeatherDataService(weatherDataRepo, webClient,
+				pincodeLocationService, parser, weatherRedis, weatherRedis2, new LocationGrid(GRID_DEGREES));
+		ReflectionTestUtils.setField(service, "currentWeatherUrl", "https://current.test");
+		ReflectionTestUtils.setField(service, "oldWeatherUrl", "https://archive.test");
+		return service;
+	}
+
+	@Test
+	void testGetCurrentWeather_FromApi() {
+		ReactiveWeatherDataService service = service(HttpStatus.OK, CURRENT_RESPONSE, NO_DELAY);
+
+		StepVerifier.create(service.getCurrentWeather("560001"))
+				.assertNext(weatherData -> {
+					assertEquals(25.5, weatherData.getTemperature());
+					assertEquals(5.0, weatherData.getWindSpeed());
+					// the centre of the 0.05 degree cell holding 12.9716, 77.5946
+					assertEquals(12.975, weatherData.getLatitude());
+				})
+				.verifyComplete();
+		assertEquals(1, upstreamCalls.get());
+	}
+
+	@Test
+	void testGetCurrentWeather_ConcurrentMissesShareOneUpstreamCall() {
+		ReactiveWeatherDataService service = service(HttpStatus.OK, CURRENT_RESPONSE, Duration.ofMillis(100));
+
+		StepVerifier.create(Mono.zip(service.getCurrentWeather("560001"), service.getCurrentWeather("560001")))
+				.assertNext(pair -> assertEquals(pair.getT1().getTemperature(), pair.getT2().getTemperature()))
+				.verifyComplete();
+		assertEquals(1, upstreamCalls.get());
+	}
+
+	@Test
+	void testGetOldWeather_ClientErrorIsMappedToIllegalArgument() {
+		LocalDate date = LocalDate.of(2025, 3, 25);
+		when(weatherDataRepo.findViewByLatitudeAndLongitudeAndDate(eq(12.975), eq(77.575), eq(date))).thenReturn(null);
+		ReactiveWeatherDataService service = service(HttpStatus.BAD_REQUEST,
+				"{ \"error\": true, \"reason\": \"Invalid date\" }", NO_DELAY);
+
+		StepVerifier.create(service.getOldWeather("560001", date))
+				.expectErrorMatches(e -> e instanceof IllegalArgumentException && "Invalid date".equals(e.getMessage()))
+				.verify();
+	}
+
+	@Test
+	void testGetCurrentWeather_ServerErrorIsUpstreamUnavailable() {
+		ReactiveWeatherDataService service = service(HttpStatus.BAD_GATEWAY, "", NO_DELAY);
+
+		StepVerifier.create(service.getCurrentWeather("560001"))
+				.expectError(UpstreamUnavailableException.class)
+				.verify();
+	}
+
+	@Test
+	void testGetCurrentWeather_TooManyRequestsIsUpstreamUnavailable() {
+		ReactiveWeatherDataService service = service(HttpStatus.TOO_MANY_REQUESTS,
+				"{ \"error\": true, \"reason\": \"Daily API request limit exceeded\" }", NO_DELAY);
+
+		StepVerifier.create(service.getCurrentWeather("560001"))
+				.expectError(UpstreamUnavailableException.class)
+				.verify();
+	}
+}
@@ -2,43 +2,66 @@ package com.arun.app.services;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.fail;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.ArgumentMatchers.contains;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.doNothing;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import java.io.UncheckedIOException;
 import java.text.ParseException;
+import java.time.Duration;
 import java.time.LocalDate;
+import java.util.Arrays;
 import java.util.Calendar;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.projection.SpelAwareProxyProjectionFactory;
 import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.data.redis.core.ValueOperations;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.HttpStatusCode;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.ResourceAccessException;
 import org.springframework.web.client.RestTemplate;
 
 import com.arun.app.dtos.WeatherDataDto;
 import com.arun.app.models.PincodeLocation;
 import com.arun.app.models.WeatherData;
 import com.arun.app.repositories.WeatherDataRepo;
+import com.arun.app.repositories.WeatherDataView;
+import com.arun.app.utils.HourlySeries;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.JsonMappingException;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
+import io.micrometer.core.instrument.MeterRegistry;
+
 @SpringBootTest
 public class WeatherDataServiceTests {
 
@@ -64,6 +87,9 @@ public class WeatherDataServiceTests {
     @Autowired
     private WeatherDataService weatherDataService;
 
+    @Autowired
+    private MeterRegistry meterRegistry;
+
     @MockitoBean
     private WeatherData weatherData;
     
@@ -74,7 +100,7 @@ public class WeatherDataServiceTests {
         	    + "\"current\":{"
         	    + "\"temperature_2m\":\"25.5\","
         	    + "\"wind_speed_10m\":\"5.0\","
-        	    + "\"time\":\"2025-03-25\""
+        	    + "\"time\":\"2025-03-25T14:00\""
         	    + "},"
         	    + "\"hourly\":{"
         	    + "\"relative_humidity_2m\":["
@@ -84,8 +110,8 @@ public class WeatherDataServiceTests {
         	    + "}"
         	    + "}";
         PincodeLocation location = new PincodeLocation(); // Example latitude and longitude
-        location.setLatitude(12.9716);
-        location.setLongitude(77.5946);
+        location.setLatitude(12.975);
+        location.setLongitude(77.575);
        
         when(redisTemplate.opsForValue()).thenReturn(valueOps);
         when(valueOps.get(anyString())).thenReturn(null);
@@ -105,7 +131,7 @@ public class WeatherDataServiceTests {
         expectedWeatherData.setWindSpeed(5.0);
         ObjectMapper objectMapper = new ObjectMapper();
 		JsonNode rootNode = objectMapper.readTree(jsonResponse);
-        expectedWeatherData.setHumidity(rootNode.get("hourly").get("relative_humidity_2m").get(Calendar.HOUR_OF_DAY-1).asInt());
+        expectedWeatherData.setHumidity(rootNode.get("hourly").get("relative_humidity_2m").get(14).asInt());
 
         // Call the method
         WeatherData actualWeatherData = weatherDataService.getCurrentWeather(pincode);
@@ -119,12 +145,140 @@ public class WeatherDataServiceTests {
         assertEquals(location.getLongitude(), actualWeatherData.getLongitude());
     }
 
+    @Test
+    public void testGetCurrentWeather_UpstreamDownServesLastKnownValue() throws Exception {
+        String pincode = "110001";
+        PincodeLocation location = new PincodeLocation();
+        location.setLatitude(28.725);
+        location.setLongitude(77.125);
+        WeatherDataDto lastKnown = new WeatherDataDto();
+        lastKnown.setLatitude(28.725);
+        lastKnown.setLongitude(77.125);
+        lastKnown.setTemperature(31.0);
+
+        when(redisTemplate.opsForValue()).thenReturn(valueOps);
+        when(valueOps.get(anyString())).thenReturn(null);
+        when(valueOps.multiGet(List.of("last-weather:28.725:77.125"))).thenReturn(List.of(lastKnown));
+        when(pincodeLocationService.getPincodeLocation(pincode)).thenReturn(location);
+        when(restTemplate.getForObject(any(String.class), eq(String.class)))
+        		.thenThrow(new ResourceAccessException("Read timed out"));
+
+        WeatherData actualWeatherData = weatherDataService.getCurrentWeather(pincode);
+
+        assertEquals(31.0, actualWeatherData.getTemperature());
+        assertTrue(actualWeatherData.isStale());
+    }
+
+    @Test
+    public void testGetCurrentWeather_StaleValueServedWhileOneRefreshRuns() throws Exception {
+        String pincode = "110001";
+        PincodeLocation location = new PincodeLocation();
+        location.setLatitude(28.725);
+        location.setLongitude(77.125);
+        WeatherDataDto stale = new WeatherDataDto();
+        stale.setLatitude(28.725);
+        stale.setLongitude(77.125);
+        stale.setTemperature(30.0);
+        stale.setFetchedAt(System.currentTimeMillis()-Duration.ofMinutes(10).toMillis());
+        CountDownLatch upstream = new CountDownLatch(1);
+
+        when(redisTemplate.opsForValue()).thenReturn(valueOps);
+        when(valueOps.get(anyString())).thenReturn(stale);
+        when(pincodeLocationService.getPincodeLocation(pincode)).thenReturn(location);
+        when(restTemplate.getForObject(any(String.class), eq(String.class))).thenAnswer(invocation -> {
+        	upstream.await(5, TimeUnit.SECONDS);
+        	throw new ResourceAccessException("Read timed out");
+        });
+
+        assertEquals(30.0, weatherDataService.getCurrentWeather(pincode).getTemperature());
+        assertEquals(30.0, weatherDataService.getCurrentWeather(pincode).getTemperature());
+
+        // the second read finds the refresh of the cell already running
+        verify(restTemplate, timeout(2000).times(1)).getForObject(any(String.class), eq(String.class));
+        upstream.countDown();
+    }
+
+    @Test
+    public void testGetCurrentWeather_ConcurrentMissIsCountedAsCoalesced() throws Exception {
+        String pincode = "110001";
+        PincodeLocation location = new PincodeLocation();
+        location.setLatitude(28.725);
+        location.setLongitude(77.125);
+        CountDownLatch upstream = new CountDownLatch(1);
+        double executed = coalescerCount("weather.coalescer.executed", "current-weather");
+        double coalesced = coalescerCount("weather.coalescer.coalesced", "current-weather");
+
+        when(redisTemplate.opsForValue()).thenReturn(valueOps);
+        when(valueOps.get(anyString())).thenReturn(null);
+        when(pincodeLocationService.getPincodeLocation(pincode)).thenReturn(location);
+        when(restTemplate.getForObject(any(String.class), eq(String.class))).thenAnswer(invocation -> {
+        	upstream.await(5, TimeUnit.SECONDS);
+        	return "{\"current\":{\"temperature_2m\":\"25.5\",\"wind_speed_10m\":\"5.0\",\"time\":\"2025-03-25T14:00\"}}";
+        });
+
+        ExecutorService callers = Executors.newFixedThreadPool(2);
+        try {
+            Future<WeatherData> first = callers.submit(() -> weatherDataService.getCurrentWeather(pincode));
+            verify(restTemplate, timeout(2000)).getForObject(any(String.class), eq(String.class));
+            Future<WeatherData> second = callers.submit(() -> weatherDataService.getCurrentWeather(pincode));
+            for(int i = 0; i < 500 && coalescerCount("weather.coalescer.coalesced", "current-weather") == coalesced; i++)
+                Thread.sleep(10);
+            upstream.countDown();
+
+            assertEquals(25.5, first.get(5, TimeUnit.SECONDS).getTemperature());
+            assertEquals(25.5, second.get(5, TimeUnit.SECONDS).getTemperature());
+        } finally {
+            callers.shutdownNow();
+        }
+        assertEquals(executed+1, coalescerCount("weather.coalescer.executed", "current-weather"));
+        assertEquals(coalesced+1, coalescerCount("weather.coalescer.coalesced", "current-weather"));
+    }
+
+    @Test
+    public void testRefreshAheadLeavesCellsThatAreBeingRevalidated() throws Exception {
+        String pincode = "110001";
+        PincodeLocation revalidated = new PincodeLocation();
+        revalidated.setLatitude(28.725);
+        revalidated.setLongitude(77.125);
+        PincodeLocation other = new PincodeLocation();
+        other.setLatitude(12.975);
+        other.setLongitude(77.575);
+        WeatherDataDto stale = new WeatherDataDto();
+        stale.setLatitude(28.725);
+        stale.setLongitude(77.125);
+        stale.setFetchedAt(System.currentTimeMillis()-Duration.ofMinutes(10).toMillis());
+        CountDownLatch upstream = new CountDownLatch(1);
+
+        when(redisTemplate.opsForValue()).thenReturn(valueOps);
+        when(valueOps.get(anyString())).thenReturn(stale);
+        when(pincodeLocationService.getPincodeLocation(pincode)).thenReturn(revalidated);
+        when(restTemplate.getForObject(any(String.class), eq(String.class))).thenAnswer(invocation -> {
+        	if(!invocation.getArgument(0, String.class).contains("latitude=28.725&"))
+        		return "{\"current\":{\"temperature_2m\":\"25.5\",\"wind_speed_10m\":\"5.0\",\"time\":\"2025-03-25T14:00\"}}";
+        	upstream.await(5, TimeUnit.SECONDS);
+        	throw new ResourceAccessException("Read timed out");
+        });
+
+        try {
+        	weatherDataService.getCurrentWeather(pincode);
+        	verify(restTemplate, timeout(2000)).getForObject(contains("latitude=28.725&"), eq(String.class));
+
+        	// the revalidation of the first cell is still running
+        	assertEquals(0, weatherDataService.refreshCurrentWeather(List.of(revalidated)));
+        	assertEquals(1, weatherDataService.refreshCurrentWeather(List.of(revalidated, other)));
+        	verify(restTemplate).getForObject(contains("latitude=12.975&longitude=77.575&"), eq(String.class));
+        	verify(restTemplate, times(1)).getForObject(contains("latitude=28.725"), eq(String.class));
+        } finally {
+        	upstream.countDown();
+        }
+    }
+
     @Test
     public void testGetCurrentWeather_HttpClientErrorException() throws JsonMappingException, JsonProcessingException {
         String pincode = "12345";
         PincodeLocation location = new PincodeLocation(); // Example latitude and longitude
-        location.setLatitude(12.9716);
-        location.setLongitude(77.5946);
+        location.setLatitude(12.975);
+        location.setLongitude(77.575);
         
         when(redisTemplate.opsForValue()).thenReturn(valueOps);
         when(valueOps.get(anyString())).thenReturn(null);
@@ -146,8 +300,8 @@ public class WeatherDataServiceTests {
         String pincode = "12345";
         LocalDate date = LocalDate.of(2025, 3, 25);
         PincodeLocation location = new PincodeLocation(); // Example latitude and longitude
-        location.setLatitude(12.9716);
-        location.setLongitude(77.5946);
+        location.setLatitude(12.975);
+        location.setLongitude(77.575);
         WeatherData weatherDataFromDb = new WeatherData();
         weatherDataFromDb.setTemperature(22.5);
         
@@ -160,8 +314,8 @@ public class WeatherDataServiceTests {
         when(pincodeLocationService.getPincodeLocation(pincode)).thenReturn(location);
 
         // Mocking weatherDataRepo to return existing weather data
-        when(weatherDataRepo.findByLatitudeAndLongitudeAndDate(location.getLatitude(), location.getLongitude(), date))
-                .thenReturn(weatherDataFromDb);
+        when(weatherDataRepo.findViewByLatitudeAndLongitudeAndDate(location.getLatitude(), location.getLongitude(), date))
+                .thenReturn(view(weatherDataFromDb));
 
         // Calling the method
         WeatherData actualWeatherData = weatherDataService.getOldWeather(pincode, date);
@@ -173,14 +327,15 @@ public class WeatherDataServiceTests {
 
     @Test
     public void testCreateOldWeather() {
-        // Mocking the repository's save method to return the same weatherData object
-        when(weatherDataRepo.save(weatherData)).thenReturn(weatherData);
+        // the queue stores a copy of the row
+        WeatherData copy = new WeatherData();
+        when(weatherData.copy()).thenReturn(copy);
 
         // Calling the method
         WeatherData actualWeatherData = weatherDataService.createOldWeather(weatherData);
 
-        // Verifying that the save method was called
-        verify(weatherDataRepo, times(1)).save(weatherData);
+        // The copy is inserted in the background, in a batch
+        verify(weatherDataRepo, timeout(2000)).saveAll(argThat(rows -> rows != null && ((List<?>) rows).contains(copy)));
 
         // Assertions to check that the returned object is the same as the input
         assertNotNull(actualWeatherData);
@@ -193,7 +348,7 @@ public class WeatherDataServiceTests {
         	    + "\"current\":{"
         	    + "\"temperature_2m\":\"25.5\","
         	    + "\"wind_speed_10m\":\"5.0\","
-        	    + "\"time\":\"2025-03-25\""
+        	    + "\"time\":\"2025-03-25T14:00\""
         	    + "},"
         	    + "\"hourly\":{"
         	    + "\"relative_humidity_2m\":["
@@ -211,7 +366,7 @@ public class WeatherDataServiceTests {
         assertNotNull(actualWeatherData);
         assertEquals(25.5, actualWeatherData.getTemperature());
         assertEquals(5.0, actualWeatherData.getWindSpeed());
-        assertEquals(rootNode.get("hourly").get("relative_humidity_2m").get(Calendar.HOUR_OF_DAY-1).asInt()
+        assertEquals(rootNode.get("hourly").get("relative_humidity_2m").get(14).asInt()
         		, actualWeatherData.getHumidity());
     }
 
@@ -258,8 +413,8 @@ public class WeatherDataServiceTests {
     		    + "}";
 
         PincodeLocation location = new PincodeLocation(); // Example latitude and longitude
-        location.setLatitude(12.9716);
-        location.setLongitude(77.5946);
+        location.setLatitude(12.975);
+        location.setLongitude(77.575);
         
      // Expected behavior for jsonToWeatherData
         ObjectMapper objectMapper = new ObjectMapper();
@@ -274,7 +429,7 @@ public class WeatherDataServiceTests {
         when(redisTemplate2.opsForValue().get(any(String.class))).thenReturn(null);
         doNothing().when(redisTemplate2).opsForValue().set(any(String.class), any(WeatherData.class));
        
-        when(weatherDataRepo.findByLatitudeAndLongitudeAndDate(
+        when(weatherDataRepo.findViewByLatitudeAndLongitudeAndDate(
         		location.getLatitude(), location.getLongitude(), LocalDate.of(2020, 10, 10)))
         .thenReturn(null);
         
@@ -300,8 +455,8 @@ public class WeatherDataServiceTests {
         String pincode = "123456";
         LocalDate date = LocalDate.of(2025, 3, 25);
         PincodeLocation location = new PincodeLocation();
-        location.setLatitude(28.7041);
-        location.setLongitude(77.1025);
+        location.setLatitude(28.725);
+        location.setLongitude(77.125);
         
         when(redisTemplate2.opsForValue()).thenReturn(valueOps2);
         when(valueOps2.get(anyString())).thenReturn(null);
@@ -310,7 +465,7 @@ public class WeatherDataServiceTests {
         // Mock the behavior of the pincodeLocationService
         when(pincodeLocationService.getPincodeLocation(pincode)).thenReturn(location);
         
-        when(weatherDataRepo.findByLatitudeAndLongitudeAndDate(
+        when(weatherDataRepo.findViewByLatitudeAndLongitudeAndDate(
         		location.getLatitude(), location.getLongitude(), date))
         .thenReturn(null);
 
@@ -329,11 +484,203 @@ public class WeatherDataServiceTests {
             fail("Expected IllegalArgumentException to be thrown");
         } catch (IllegalArgumentException e) {
         	verify(pincodeLocationService, times(1)).getPincodeLocation(pincode);
-        	verify(weatherDataRepo, times(1)).findByLatitudeAndLongitudeAndDate(location.getLatitude(), 
+        	verify(weatherDataRepo, times(1)).findViewByLatitudeAndLongitudeAndDate(location.getLatitude(), 
         			location.getLongitude(), date);
             verify(restTemplate, times(1)).getForObject(any(String.class), eq(String.class));
             // Assert that the exception message contains the expected error message from the response
             assertEquals("Invalid date", e.getMessage());
         }
     }
+
+    @Test
+    public void testFetchWeather_MultipleCoordinatesInOneCall() throws Exception {
+        LocalDate date = LocalDate.of(2025, 3, 25);
+        PincodeLocation first = new PincodeLocation();
+        first.setLatitude(28.725);
+        first.setLongitude(77.125);
+        PincodeLocation second = new PincodeLocation();
+        second.setLatitude(12.975);
+        second.setLongitude(77.575);
+        String hourly = "\"hourly\":{\"time\":[%s],\"temperature_2m\":[%s],"
+        		+ "\"relative_humidity_2m\":[%s],\"wind_speed_10m\":[%s]}";
+        String times = String.join(",", Collections.nCopies(24, "\"2025-03-25T00:00\""));
+        String jsonResponse = "[{" + String.format(hourly, times, String.join(",", Collections.nCopies(24, "20.0")),
+        		String.join(",", Collections.nCopies(24, "40")), String.join(",", Collections.nCopies(24, "3.0")))
+        		+ "},{" + String.format(hourly, times, String.join(",", Collections.nCopies(24, "31.0")),
+        		String.join(",", Collections.nCopies(24, "70")), String.join(",", Collections.nCopies(24, "9.0")))
+        		+ "}]";
+
+        when(redisTemplate2.opsForValue()).thenReturn(valueOps2);
+        when(restTemplate.getForObject(anyString(), eq(String.class))).thenReturn(jsonResponse);
+        when(weatherDataRepo.saveAll(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
+
+        Map<String, WeatherData> result = weatherDataService.fetchWeather(List.of(first, second), date);
+
+        verify(restTemplate, times(1)).getForObject(contains("latitude=28.725,12.975&longitude=77.125,77.575"),
+        		eq(String.class));
+        assertEquals(20.0, result.get(WeatherDataService.locationKey(first)).getTemperature());
+        assertEquals(40, result.get(WeatherDataService.locationKey(first)).getHumidity());
+        assertEquals(31.0, result.get(WeatherDataService.locationKey(second)).getTemperature());
+        assertEquals(second.getLatitude(), result.get(WeatherDataService.locationKey(second)).getLatitude());
+    }
+
+    @Test
+    public void testGetWeatherHistory_FetchesOnlyMissingDaysInOneCall() throws Exception {
+        String pincode = "110001";
+        PincodeLocation location = new PincodeLocation();
+        location.setLatitude(28.725);
+        location.setLongitude(77.125);
+        LocalDate from = LocalDate.of(2025, 3, 1);
+        WeatherData fromRedis = new WeatherData();
+        fromRedis.setDate(from);
+        WeatherData fromDb = new WeatherData();
+        fromDb.setDate(from.plusDays(1));
+        StringBuilder times = new StringBuilder();
+        StringBuilder temperatures = new StringBuilder();
+        for(int day = 2; day <= 3; day++) {
+            for(int hour = 0; hour < 24; hour++) {
+                String sep = times.length() == 0 ? "" : ",";
+                times.append(sep).append("\"").append(from.plusDays(day)).append(String.format("T%02d:00\"", hour));
+                temperatures.append(sep).append(day*10.0);
+            }
+        }
+        String jsonResponse = "{\"hourly\":{\"time\":["+times+"],\"temperature_2m\":["+temperatures+"]}}";
+
+        when(pincodeLocationService.getPincodeLocation(pincode)).thenReturn(location);
+        when(redisTemplate2.opsForValue()).thenReturn(valueOps2);
+        when(valueOps2.multiGet(anyList())).thenReturn(Arrays.asList(fromRedis, null, null, null));
+        when(weatherDataRepo.findViewsByLatitudeAndLongitudeAndDateBetweenOrderByDate(28.725, 77.125, from, from.plusDays(3)))
+                .thenReturn(List.of(view(fromDb)));
+        when(restTemplate.getForObject(anyString(), eq(String.class))).thenReturn(jsonResponse);
+        when(weatherDataRepo.saveAll(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
+
+        List<WeatherData> history = weatherDataService.getWeatherHistory(pincode, from, from.plusDays(3)).toList();
+
+        verify(restTemplate, times(1)).getForObject(contains("start_date=2025-03-03&end_date=2025-03-04"), eq(String.class));
+        assertEquals(List.of(from, from.plusDays(1), from.plusDays(2), from.plusDays(3)),
+                history.stream().map(WeatherData::getDate).toList());
+        assertEquals(20.0, history.get(2).getTemperature());
+        assertEquals(28.725, history.get(3).getLatitude());
+    }
+
+    @Test
+    public void testGetOldWeatherAtHour_ServesStoredSeries() throws Exception {
+        String pincode = "110001";
+        PincodeLocation location = new PincodeLocation();
+        location.setLatitude(28.725);
+        location.setLongitude(77.125);
+        double[] temperatures = new double[24];
+        for(int hour = 0; hour < 24; hour++) temperatures[hour] = 20+hour/10.0;
+        WeatherData stored = new WeatherData();
+        stored.setDate(LocalDate.of(2025, 3, 1));
+        stored.setHourly(HourlySeries.pack(temperatures, new double[0], new int[0], 0));
+
+        when(pincodeLocationService.getPincodeLocation(pincode)).thenReturn(location);
+        when(redisTemplate2.opsForValue()).thenReturn(valueOps2);
+        when(valueOps2.get(anyString())).thenReturn(stored);
+
+        WeatherData weatherData = weatherDataService.getOldWeather(pincode, LocalDate.of(2025, 3, 1), 17);
+
+        assertEquals(21.7, weatherData.getTemperature());
+        assertNull(weatherData.getHumidity());
+        verify(restTemplate, never()).getForObject(anyString(), eq(String.class));
+    }
+
+    @Test
+    public void testGetOldWeatherAtHour_FillsSeriesOfLegacyRow() throws Exception {
+        String pincode = "110001";
+        LocalDate date = LocalDate.of(2025, 3, 1);
+        PincodeLocation location = new PincodeLocation();
+        location.setLatitude(28.725);
+        location.setLongitude(77.125);
+        WeatherData legacy = new WeatherData();
+        legacy.setLatitude(28.725);
+        legacy.setLongitude(77.125);
+        legacy.setDate(date);
+        legacy.setTemperature(18.0);
+        String times = String.join(",", Collections.nCopies(24, "\"2025-03-01T00:00\""));
+        String jsonResponse = "{\"hourly\":{\"time\":["+times+"],\"relative_humidity_2m\":["
+        		+ String.join(",", Collections.nCopies(24, "55"))+"]}}";
+
+        when(pincodeLocationService.getPincodeLocation(pincode)).thenReturn(location);
+        when(redisTemplate2.opsForValue()).thenReturn(valueOps2);
+        when(valueOps2.get(anyString())).thenReturn(legacy);
+        when(weatherDataRepo.findByLatitudeAndLongitudeAndDate(28.725, 77.125, date)).thenReturn(legacy);
+        when(restTemplate.getForObject(anyString(), eq(String.class))).thenReturn(jsonResponse);
+        when(weatherDataRepo.save(legacy)).thenReturn(legacy);
+
+        WeatherData weatherData = weatherDataService.getOldWeather(pincode, date, 6);
+
+        assertEquals(55, weatherData.getHumidity());
+        // the stored row keeps its readings and gains the series
+        assertEquals(18.0, legacy.getTemperature());
+        assertNotNull(legacy.getHourly());
+        verify(valueOps2).set(anyString(), eq(legacy));
+    }
+
+    @Test
+    public void testFetchWeather_NearbyPincodesShareOneGridCell() throws Exception {
+        LocalDate date = LocalDate.of(2025, 3, 25);
+        PincodeLocation first = new PincodeLocation();
+        first.setLatitude(28.7041);
+        first.setLongitude(77.1025);
+        PincodeLocation second = new PincodeLocation();
+        second.setLatitude(28.7215);
+        second.setLongitude(77.1418);
+        String times = String.join(",", Collections.nCopies(24, "\"2025-03-25T00:00\""));
+        String jsonResponse = "[{\"hourly\":{\"time\":["+times+"],\"temperature_2m\":["
+        		+ String.join(",", Collections.nCopies(24, "20.0"))+"]}}]";
+
+        when(redisTemplate2.opsForValue()).thenReturn(valueOps2);
+        when(restTemplate.getForObject(anyString(), eq(String.class))).thenReturn(jsonResponse);
+        when(weatherDataRepo.saveAll(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
+
+        Map<String, WeatherData> result = weatherDataService.fetchWeather(List.of(first, second), date);
+
+        verify(restTemplate, times(1)).getForObject(contains("latitude=28.725&longitude=77.125&"), eq(String.class));
+        WeatherData shared = result.get(WeatherDataService.locationKey(first));
+        assertEquals(20.0, shared.getTemperature());
+        assertEquals(28.725, shared.getLatitude());
+        assertTrue(shared == result.get(WeatherDataService.locationKey(second)));
+    }
+
+    @Test
+    public void testGetWeatherHistory_MalformedArchiveResponseFailsUncheckedAfterStoredDays() throws Exception {
+        String pincode = "110001";
+        PincodeLocation location = new PincodeLocation();
+        location.setLatitude(28.725);
+        location.setLongitude(77.125);
+        LocalDate from = LocalDate.of(2025, 3, 1);
+        WeatherData fromRedis = new WeatherData();
+        fromRedis.setDate(from);
+
+        when(pincodeLocationService.getPincodeLocation(pincode)).thenReturn(location);
+        when(redisTemplate2.opsForValue()).thenReturn(valueOps2);
+        when(valueOps2.multiGet(anyList())).thenReturn(Arrays.asList(fromRedis, null));
+        when(weatherDataRepo.findViewsByLatitudeAndLongitudeAndDateBetweenOrderByDate(28.725, 77.125, from, from.plusDays(1)))
+                .thenReturn(List.of());
+        when(restTemplate.getForObject(anyString(), eq(String.class))).thenReturn("{\"hourly\":{\"time\":[");
+
+        Iterator<WeatherData> history = weatherDataService.getWeatherHistory(pincode, from, from.plusDays(1)).iterator();
+
+        assertEquals(from, history.next().getDate());
+        UncheckedIOException ex = assertThrows(UncheckedIOException.class, history::next);
+        assertTrue(ex.getCause() instanceof JsonProcessingException);
+        verify(weatherDataRepo, never()).saveAll(anyList());
+    }
+
+    @Test
+    public void testGetWeatherHistory_RejectsReversedRange() {
+        assertThrows(IllegalArgumentException.class,
+                () -> weatherDataService.getWeatherHistory("110001", LocalDate.of(2025, 3, 2), LocalDate.of(2025, 3, 1)));
+    }
+
+    private double coalescerCount(String name, String coalescer) {
+        return meterRegistry.get(name).tag("name", coalescer).functionCounter().count();
+    }
+
+    // what the repository returns for a row: a projection, not the entity
+    private static WeatherDataView view(WeatherData weatherData) {
+        return new SpelAwareProxyProjectionFactory().createProjection(WeatherDataView.class, weatherData);
+    }
 }
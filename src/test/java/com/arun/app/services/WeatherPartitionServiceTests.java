@@ -0,0 +1,201 @@
+package com.arun.app.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.contains;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+
+public class WeatherPartitionServiceTests {
+	private static final String RELKIND = "relkind";
+	private static final String PARTITIONS = "pg_inherits";
+	private static final boolean ENABLED = true;
+	private static final boolean CONVERT = true;
+	private static final boolean NO_CONVERT = false;
+	private static final int KEEP_ALL_MONTHS = 0;
+
+	private JdbcTemplate jdbcTemplate;
+	private PlatformTransactionManager transactionManager;
+	private IWeatherRollupService weatherRollupService;
+	private List<String> partitions;
+
+	@BeforeEach
+	void setUp() {
+		jdbcTemplate = mock(JdbcTemplate.class);
+		transactionManager = mock(PlatformTransactionManager.class);
+		weatherRollupService = mock(IWeatherRollupService.class);
+		partitions = new ArrayList<>();
+		when(jdbcTemplate.queryForObject(contains(RELKIND), eq(String.class), eq("weather_data"))).thenReturn("p");
+		// the catalog as it is at the time of the query
+		when(jdbcTemplate.queryForList(contains(PARTITIONS), eq(String.class), eq("weather_data")))
+				.thenAnswer(invocation -> List.copyOf(partitions));
+	}
+
+	// started with the given partitions in the catalog
+	private WeatherPartitionService service(boolean convert, int retentionMonths, YearMonth... existing) {
+		for(YearMonth month : existing)
+			partitions.add(name(month));
+		WeatherPartitionService service = new WeatherPartitionService(jdbcTemplate, transactionManager,
+				weatherRollupService, ENABLED, convert, retentionMonths);
+		service.afterSingletonsInstantiated();
+		return service;
+	}
+
+	private static String name(YearMonth month) {
+		return "weather_data_%d_%02d".formatted(month.getYear(), month.getMonthValue());
+	}
+
+	@Test
+	void testMissingPartitionsAreCreatedOnceUnderTheLock() {
+		YearMonth now = YearMonth.now();
+		WeatherPartitionService service = service(NO_CONVERT, KEEP_ALL_MONTHS, now);
+		// the next month is created at startup, the current one already exists
+		verify(jdbcTemplate, never()).execute(contains(name(now) + " PARTITION OF"));
+		verify(jdbcTemplate).execute(contains(name(now.plusMonths(1)) + " PARTITION OF"));
+
+		YearMonth old = now.minusMonths(14);
+		service.ensurePartitions(List.of(old.atDay(3), old.atDay(20), now.atDay(1)));
+		service.ensurePartitions(List.of(old.atEndOfMonth()));
+		verify(jdbcTemplate, times(1)).execute("CREATE TABLE IF NOT EXISTS " + name(old) + " PARTITION OF weather_data "
+				+ "FOR VALUES FROM ('" + old.atDay(1) + "') TO ('" + old.plusMonths(1).atDay(1) + "')");
+		// one transaction and advisory lock per call that creates partitions
+		verify(jdbcTemplate, times(2)).execute(startsWith("SELECT pg_advisory_xact_lock("));
+		verify(transactionManager, times(2)).commit(any());
+		verify(jdbcTemplate, never()).execute(contains("_partitioned"));
+	}
+
+	@Test
+	void testPartitionBoundariesAreFirstDaysOfMonths() {
+		WeatherPartitionService service = service(NO_CONVERT, KEEP_ALL_MONTHS, YearMonth.now(), YearMonth.now().plusMonths(1));
+
+		// the last day of a year and the first of a leap-year february
+		service.ensurePartitions(List.of(LocalDate.of(2023, 12, 31), LocalDate.of(2024, 2, 1), LocalDate.of(2024, 2, 29)));
+
+		verify(jdbcTemplate).execute("CREATE TABLE IF NOT EXISTS weather_data_2023_12 PARTITION OF weather_data "
+				+ "FOR VALUES FROM ('2023-12-01') TO ('2024-01-01')");
+		verify(jdbcTemplate).execute("CREATE TABLE IF NOT EXISTS weather_data_2024_02 PARTITION OF weather_data "
+				+ "FOR VALUES FROM ('2024-02-01') TO ('2024-03-01')");
+		verify(jdbcTemplate, times(2)).execute(startsWith("CREATE TABLE IF NOT EXISTS"));
+	}
+
+	@Test
+	void testExpiredPartitionsAreRolledUpThenDroppedUnderTheLock() {
+		YearMonth now = YearMonth.now();
+		WeatherPartitionService service = service(NO_CONVERT, 3, now.minusMonths(4), now.minusMonths(3), now, now.plusMonths(1));
+		// created by another instance after this one started
+		partitions.add(name(now.minusMonths(5)));
+		assertFalse(service.isRetained(now.minusMonths(4).atEndOfMonth()));
+		assertTrue(service.isRetained(now.minusMonths(3).atDay(1)));
+		assertTrue(service.isRetained(null));
+
+		// startup maintenance already dropped the fourth month back
+		verify(jdbcTemplate).execute("DROP TABLE " + name(now.minusMonths(4)));
+		partitions.remove(name(now.minusMonths(4)));
+
+		assertEquals(1, service.dropExpired());
+		InOrder order = inOrder(jdbcTemplate, weatherRollupService);
+		order.verify(jdbcTemplate).execute(startsWith("SELECT pg_advisory_xact_lock("));
+		order.verify(weatherRollupService).refresh(now.minusMonths(5));
+		order.verify(jdbcTemplate).execute("DROP TABLE " + name(now.minusMonths(5)));
+		verify(jdbcTemplate, never()).execute("DROP TABLE " + name(now.minusMonths(3)));
+		verify(weatherRollupService, times(2)).refresh(any());
+	}
+
+	@Test
+	void testMonthDroppedMeanwhileIsSkipped() {
+		YearMonth expired = YearMonth.now().minusMonths(6);
+		partitions.add(name(expired));
+		// gone by the time the lock is held
+		when(jdbcTemplate.queryForList(contains(PARTITIONS), eq(String.class), eq("weather_data")))
+				.thenReturn(List.of(name(expired))).thenReturn(List.of(name(expired))).thenReturn(List.of());
+		WeatherPartitionService service = new WeatherPartitionService(jdbcTemplate, transactionManager,
+				weatherRollupService, ENABLED, NO_CONVERT, 2);
+		service.afterSingletonsInstantiated();
+
+		verify(jdbcTemplate, never()).execute(startsWith("DROP TABLE"));
+		verify(weatherRollupService, never()).refresh(any());
+		assertEquals(0, service.dropExpired());
+	}
+
+	@Test
+	void testRetentionIsOffByDefault() {
+		WeatherPartitionService service = service(NO_CONVERT, KEEP_ALL_MONTHS, YearMonth.now().minusYears(5));
+		assertTrue(service.isRetained(LocalDate.now().minusYears(5)));
+		assertEquals(0, service.dropExpired());
+		verify(jdbcTemplate, never()).execute(startsWith("DROP TABLE"));
+	}
+
+	@Test
+	void testPlainTableIsLeftAloneUnlessConversionIsRequested() {
+		when(jdbcTemplate.queryForObject(contains(RELKIND), eq(String.class), eq("weather_data"))).thenReturn("r");
+		WeatherPartitionService service = service(NO_CONVERT, 3);
+
+		service.ensurePartitions(List.of(LocalDate.now()));
+		assertEquals(0, service.dropExpired());
+		verify(jdbcTemplate, never()).execute(anyString());
+		verify(transactionManager, never()).getTransaction(any());
+	}
+
+	@Test
+	void testConversionRunsInOneTransactionAfterTakingTheLocks() {
+		when(jdbcTemplate.queryForObject(contains(RELKIND), eq(String.class), eq("weather_data"))).thenReturn("r", "p");
+		when(jdbcTemplate.queryForList(contains("DISTINCT"), eq(LocalDate.class))).thenReturn(List.of(LocalDate.of(2024, 7, 1)));
+		service(CONVERT, KEEP_ALL_MONTHS);
+
+		InOrder order = inOrder(transactionManager, jdbcTemplate);
+		order.verify(transactionManager).getTransaction(any());
+		order.verify(jdbcTemplate).execute(startsWith("SELECT pg_advisory_xact_lock("));
+		order.verify(jdbcTemplate).execute("LOCK TABLE weather_data IN EXCLUSIVE MODE");
+		order.verify(jdbcTemplate).execute(startsWith("CREATE TABLE weather_data_partitioned"));
+		order.verify(jdbcTemplate).execute(contains("weather_data_2024_07 PARTITION OF weather_data_partitioned"));
+		order.verify(jdbcTemplate).update(startsWith("INSERT INTO weather_data_partitioned SELECT"));
+		order.verify(jdbcTemplate).execute("DROP TABLE weather_data");
+		order.verify(jdbcTemplate).execute("ALTER TABLE weather_data_partitioned RENAME TO weather_data");
+		order.verify(transactionManager).commit(any());
+		// every row had a date
+		verify(jdbcTemplate, never()).execute(contains("weather_data_undated"));
+	}
+
+	@Test
+	void testRowsWithoutADateAreMovedAsideBeforeTheTableIsDropped() {
+		when(jdbcTemplate.queryForObject(contains(RELKIND), eq(String.class), eq("weather_data"))).thenReturn("r", "p");
+		when(jdbcTemplate.queryForObject(contains("date IS NULL"), eq(Integer.class))).thenReturn(3);
+		service(CONVERT, KEEP_ALL_MONTHS);
+
+		InOrder order = inOrder(jdbcTemplate);
+		order.verify(jdbcTemplate).execute("LOCK TABLE weather_data IN EXCLUSIVE MODE");
+		order.verify(jdbcTemplate).execute("CREATE TABLE IF NOT EXISTS weather_data_undated (LIKE weather_data INCLUDING DEFAULTS)");
+		order.verify(jdbcTemplate).update("INSERT INTO weather_data_undated SELECT * FROM weather_data WHERE date IS NULL");
+		order.verify(jdbcTemplate).update(startsWith("INSERT INTO weather_data_partitioned SELECT"));
+		order.verify(jdbcTemplate).execute("DROP TABLE weather_data");
+	}
+
+	@Test
+	void testConversionIsSkippedWhenAnotherInstanceDidIt() {
+		WeatherPartitionService service = service(CONVERT, KEEP_ALL_MONTHS, YearMonth.now(), YearMonth.now().plusMonths(1));
+
+		verify(jdbcTemplate).execute(startsWith("SELECT pg_advisory_xact_lock("));
+		verify(jdbcTemplate, never()).execute(contains("_partitioned"));
+		assertTrue(service.isRetained(LocalDate.now()));
+	}
+}
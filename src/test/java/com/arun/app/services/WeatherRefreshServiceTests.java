@@ -0,0 +1,120 @@
+package com.arun.app.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.core.RedisTemplate;
+
+import com.arun.app.dtos.WeatherDataDto;
+import com.arun.app.models.PincodeLocation;
+import com.arun.app.utils.HotKeyTracker;
+
+public class WeatherRefreshServiceTests {
+	private static final int HOT_SET_SIZE = 10;
+	private static final int MIN_HITS = 2;
+	private static final Duration LEAD = Duration.ofSeconds(30);
+
+	private WeatherDataService weatherDataService;
+	private RedisTemplate<String, WeatherDataDto> weatherRedis;
+	private HotKeyTracker<String, PincodeLocation> tracker;
+
+	@BeforeEach
+	@SuppressWarnings("unchecked")
+	void setUp() {
+		weatherDataService = mock(WeatherDataService.class);
+		weatherRedis = mock(RedisTemplate.class);
+		tracker = new HotKeyTracker<>(100);
+	}
+
+	// every location handed over is fetched, none is taken by a request meanwhile
+	private void refreshesAll() throws Exception {
+		when(weatherDataService.refreshCurrentWeather(anyCollection()))
+				.thenAnswer(invocation -> invocation.getArgument(0, Collection.class).size());
+	}
+
+	private WeatherRefreshService service(double maxPerSecond) {
+		return new WeatherRefreshService(weatherDataService, weatherRedis, tracker, HOT_SET_SIZE, MIN_HITS, LEAD, maxPerSecond);
+	}
+
+	// redis TTL of a current-weather entry that stays fresh for the given time
+	private static long ttlFreshFor(Duration fresh) {
+		return WeatherDataService.CURRENT_WEATHER_RETENTION.minus(WeatherDataService.CURRENT_WEATHER_TTL).plus(fresh).toMillis();
+	}
+
+	private PincodeLocation hot(String pincode, double lat, double lon, int hits) {
+		PincodeLocation location = new PincodeLocation();
+		location.setPincode(pincode);
+		location.setLatitude(lat);
+		location.setLongitude(lon);
+		for(int i = 0; i < hits; i++)
+			tracker.recordAccess(WeatherDataService.locationKey(location), location);
+		return location;
+	}
+
+	@Test
+	void testRefreshesHotEntriesCloseToExpiry() throws Exception {
+		PincodeLocation expiring = hot("110001", 28.6, 77.2, 5);
+		PincodeLocation fresh = hot("560001", 12.9, 77.5, 5);
+		hot("400001", 18.9, 72.8, MIN_HITS-1);
+		tracker.recordWrite(WeatherDataService.locationKey(fresh), System.currentTimeMillis()+Duration.ofMinutes(4).toMillis());
+		when(weatherRedis.getExpire(anyString(), eq(TimeUnit.MILLISECONDS))).thenReturn(ttlFreshFor(LEAD.minusSeconds(20)));
+		refreshesAll();
+
+		int refreshed = service(5).refreshDue();
+
+		assertEquals(1, refreshed);
+		verify(weatherDataService).refreshCurrentWeather(eq(List.of(expiring)));
+	}
+
+	@Test
+	void testSkipsEntriesAnotherInstanceAlreadyRefreshed() throws Exception {
+		PincodeLocation location = hot("110001", 28.6, 77.2, 5);
+		when(weatherRedis.getExpire(anyString(), eq(TimeUnit.MILLISECONDS))).thenReturn(ttlFreshFor(Duration.ofMinutes(4)));
+
+		assertEquals(0, service(5).refreshDue());
+		verify(weatherDataService, never()).refreshCurrentWeather(anyCollection());
+		long expiresAt = tracker.hottest(1, 0).get(0).expiresAt();
+		assertTrue(expiresAt > System.currentTimeMillis()+Duration.ofMinutes(3).toMillis(),
+				"expiry learned from redis for "+location.getPincode());
+	}
+
+	@Test
+	void testRateBudgetCapsRefreshesPerTick() throws Exception {
+		for(int i = 0; i < 6; i++)
+			hot("11000"+i, 28.0+i, 77.0, 5);
+		when(weatherRedis.getExpire(anyString(), eq(TimeUnit.MILLISECONDS))).thenReturn(-2L);
+		refreshesAll();
+		WeatherRefreshService service = service(2);
+
+		assertEquals(2, service.refreshDue());
+		assertEquals(0, service.refreshDue());
+	}
+
+	@Test
+	void testLocationsTakenByRequestsDoNotUseTheBudget() throws Exception {
+		for(int i = 0; i < 2; i++)
+			hot("11000"+i, 28.0+i, 77.0, 5);
+		when(weatherRedis.getExpire(anyString(), eq(TimeUnit.MILLISECONDS))).thenReturn(-2L);
+		// both are being revalidated by requests
+		when(weatherDataService.refreshCurrentWeather(anyCollection())).thenReturn(0);
+		WeatherRefreshService service = service(2);
+
+		assertEquals(0, service.refreshDue());
+		refreshesAll();
+		assertEquals(2, service.refreshDue());
+	}
+}
@@ -0,0 +1,139 @@
+package com.arun.app.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.arun.app.dtos.WeatherSummaryDto;
+import com.arun.app.models.PincodeLocation;
+import com.arun.app.models.WeatherMonthlyRollup;
+import com.arun.app.repositories.WeatherMonthlyRollupRepo;
+import com.arun.app.utils.HourlySeries;
+import com.arun.app.utils.LocationGrid;
+import com.arun.app.utils.TierMetrics;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+public class WeatherRollupServiceTests {
+	private JdbcTemplate jdbcTemplate;
+	private WeatherMonthlyRollupRepo weatherMonthlyRollupRepo;
+	private PincodeLocationService pincodeLocationService;
+	private WeatherRollupService weatherRollupService;
+
+	@BeforeEach
+	void setUp() {
+		jdbcTemplate = mock(JdbcTemplate.class);
+		weatherMonthlyRollupRepo = mock(WeatherMonthlyRollupRepo.class);
+		pincodeLocationService = mock(PincodeLocationService.class);
+		weatherRollupService = new WeatherRollupService(jdbcTemplate, weatherMonthlyRollupRepo, pincodeLocationService,
+				new LocationGrid(0.25), new TierMetrics(new SimpleMeterRegistry()), true, 2);
+	}
+
+	private void verifyRefreshed(YearMonth month, int times) {
+		verify(jdbcTemplate, times(times)).update(anyString(), eq(Date.valueOf(month.atDay(1))), eq(Date.valueOf(month.plusMonths(1).atDay(1))));
+	}
+
+	@Test
+	void testFirstRunBackfillsThenOnlyOpenAndChangedMonthsAreRefreshed() {
+		YearMonth open = YearMonth.now();
+		YearMonth old = open.minusYears(2);
+		weatherRollupService.markChanged(List.of(old.atDay(10)));
+		weatherRollupService.refreshChanged();
+		// the open month, the two backfill months and the changed one, each on its own
+		verifyRefreshed(open, 1);
+		verifyRefreshed(open.minusMonths(1), 1);
+		verifyRefreshed(open.minusMonths(2), 1);
+		verifyRefreshed(old, 1);
+		verify(jdbcTemplate, times(4)).update(anyString(), any(Date.class), any(Date.class));
+
+		weatherRollupService.markChanged(List.of(old.atDay(2), old.atDay(28)));
+		weatherRollupService.refreshChanged();
+		verifyRefreshed(open, 2);
+		verifyRefreshed(old, 2);
+		verifyRefreshed(open.minusMonths(1), 1);
+
+		// nothing changed since: the open month only
+		weatherRollupService.refreshChanged();
+		verify(jdbcTemplate, times(7)).update(anyString(), any(Date.class), any(Date.class));
+	}
+
+	@Test
+	void testFailedMonthIsRetried() {
+		YearMonth old = YearMonth.now().minusYears(1);
+		weatherRollupService.refreshChanged();
+		weatherRollupService.markChanged(List.of(old.atDay(1)));
+		when(jdbcTemplate.update(anyString(), eq(Date.valueOf(old.atDay(1))), any(Date.class)))
+				.thenThrow(new IllegalStateException("connection reset")).thenReturn(3);
+
+		assertThrows(IllegalStateException.class, () -> weatherRollupService.refreshChanged());
+		weatherRollupService.refreshChanged();
+		verifyRefreshed(old, 2);
+	}
+
+	@Test
+	void testRollupsAreTakenFromTheHourlyReadings() {
+		weatherRollupService.refresh(YearMonth.of(2025, 3));
+
+		ArgumentCaptor<String> sql = ArgumentCaptor.forClass(String.class);
+		verify(jdbcTemplate).update(sql.capture(), eq(Date.valueOf("2025-03-01")), eq(Date.valueOf("2025-04-01")));
+		// humidity bytes follow the 24 temperature and 24 wind speed shorts; rows without a series use their reading
+		assertTrue(sql.getValue().contains("get_byte(w.hourly, " + HourlySeries.HUMIDITY_OFFSET + " + hour)"));
+		assertTrue(sql.getValue().contains("WHERE w.hourly IS NULL"));
+		assertTrue(sql.getValue().contains("MIN(h.temperature), MAX(h.temperature), AVG(h.temperature)"));
+	}
+
+	@Test
+	void testSummaryReadsTheRollupsOfTheSnappedCell() throws Exception {
+		PincodeLocation pincodeLocation = new PincodeLocation();
+		pincodeLocation.setPincode("110001");
+		pincodeLocation.setLatitude(28.63);
+		pincodeLocation.setLongitude(77.22);
+		when(pincodeLocationService.getPincodeLocation("110001")).thenReturn(pincodeLocation);
+		WeatherMonthlyRollup rollup = new WeatherMonthlyRollup();
+		rollup.setLatitude(28.625);
+		rollup.setLongitude(77.125);
+		rollup.setMonth(LocalDate.of(2025, 2, 1));
+		rollup.setDays(28);
+		rollup.setMinTemperature(9.5);
+		rollup.setMaxTemperature(27.0);
+		rollup.setAvgTemperature(17.25);
+		rollup.setMinHumidity(30);
+		rollup.setMaxHumidity(90);
+		rollup.setAvgHumidity(61.5);
+		when(weatherMonthlyRollupRepo.findByLatitudeAndLongitudeAndMonthBetweenOrderByMonth(28.625, 77.125,
+				LocalDate.of(2025, 1, 1), LocalDate.of(2025, 3, 1))).thenReturn(List.of(rollup));
+
+		List<WeatherSummaryDto> summary = weatherRollupService.getSummary("110001", YearMonth.of(2025, 1), YearMonth.of(2025, 3));
+		assertEquals(1, summary.size());
+		assertEquals("110001", summary.get(0).getPincode());
+		assertEquals(YearMonth.of(2025, 2), summary.get(0).getMonth());
+		assertEquals(28, summary.get(0).getDays());
+		assertEquals(17.25, summary.get(0).getAvgTemperature());
+		assertEquals(90, summary.get(0).getMaxHumidity());
+	}
+
+	@Test
+	void testReversedRangeIsRejected() {
+		assertThrows(IllegalArgumentException.class,
+				() -> weatherRollupService.getSummary("110001", YearMonth.of(2025, 3), YearMonth.of(2025, 1)));
+		verifyNoInteractions(weatherMonthlyRollupRepo);
+	}
+}
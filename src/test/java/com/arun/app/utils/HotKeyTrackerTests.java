@@ -0,0 +1,69 @@
+package com.arun.app.utils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.arun.app.utils.HotKeyTracker.Hot;
+
+public class HotKeyTrackerTests {
+
+	@Test
+	void testHottestOrdersByHitsAndAppliesThreshold() {
+		HotKeyTracker<String, String> tracker = new HotKeyTracker<>(100);
+		for(int i = 0; i < 5; i++) tracker.recordAccess("a", "A");
+		for(int i = 0; i < 3; i++) tracker.recordAccess("b", "B");
+		tracker.recordAccess("c", "C");
+
+		List<Hot<String, String>> hot = tracker.hottest(10, 2);
+
+		assertEquals(List.of("a", "b"), hot.stream().map(Hot::key).toList());
+		assertEquals("A", hot.get(0).value());
+		assertEquals(1, tracker.hottest(1, 0).size());
+	}
+
+	@Test
+	void testDecayDropsColdKeysAndTrimsToCapacity() {
+		HotKeyTracker<String, String> tracker = new HotKeyTracker<>(2);
+		for(int i = 0; i < 8; i++) tracker.recordAccess("a", "A");
+		for(int i = 0; i < 4; i++) tracker.recordAccess("b", "B");
+		for(int i = 0; i < 2; i++) tracker.recordAccess("c", "C");
+		tracker.recordAccess("d", "D");
+
+		tracker.decay();
+
+		assertEquals(2, tracker.size());
+		assertEquals(List.of("a", "b"), tracker.hottest(10, 0).stream().map(Hot::key).toList());
+		assertEquals(4, tracker.hottest(1, 0).get(0).hits());
+	}
+
+	@Test
+	void testRecordWriteOnlyUpdatesTrackedKeys() {
+		HotKeyTracker<String, String> tracker = new HotKeyTracker<>(10);
+		tracker.recordAccess("a", "A");
+
+		tracker.recordWrite("a", 1000L);
+		tracker.recordWrite("x", 1000L);
+
+		assertEquals(1, tracker.size());
+		assertEquals(1000L, tracker.hottest(1, 0).get(0).expiresAt());
+	}
+
+	@Test
+	void testFullTrackerIgnoresNewKeysUntilDecay() {
+		HotKeyTracker<String, String> tracker = new HotKeyTracker<>(2);
+		for(int i = 0; i < 3; i++) tracker.recordAccess("a", "A");
+		tracker.recordAccess("b", "B");
+		for(int i = 0; i < 1000; i++) tracker.recordAccess("scan-"+i, "S");
+
+		assertEquals(2, tracker.size());
+		assertEquals(List.of("a", "b"), tracker.hottest(10, 0).stream().map(Hot::key).toList());
+
+		// b drops out at the decay, which makes room again
+		tracker.decay();
+		tracker.recordAccess("c", "C");
+		assertEquals(List.of("a", "c"), tracker.hottest(10, 0).stream().map(Hot::key).toList());
+	}
+}
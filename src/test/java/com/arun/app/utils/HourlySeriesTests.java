@@ -0,0 +1,49 @@
+package com.arun.app.utils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.jupiter.api.Test;
+
+public class HourlySeriesTests {
+
+	@Test
+	void testPackReadsTheDayStartingAtFrom() {
+		double[] temperature = new double[48];
+		double[] windSpeed = new double[48];
+		int[] humidity = new int[48];
+		for(int i = 0; i < 48; i++) {
+			temperature[i] = i-10.3;
+			windSpeed[i] = i/2.0;
+			humidity[i] = i;
+		}
+
+		byte[] series = HourlySeries.pack(temperature, windSpeed, humidity, 24);
+
+		assertEquals(HourlySeries.BYTES, series.length);
+		assertEquals(13.7, HourlySeries.temperatureAt(series, 0));
+		assertEquals(23.5, HourlySeries.windSpeedAt(series, 23));
+		assertEquals(47, HourlySeries.humidityAt(series, 23));
+	}
+
+	@Test
+	void testMissingReadingsReadAsNull() {
+		byte[] series = HourlySeries.pack(new double[] {Double.NaN, 4.0}, new double[0], new int[] {-1, 80}, 0);
+
+		assertNull(HourlySeries.temperatureAt(series, 0));
+		assertEquals(4.0, HourlySeries.temperatureAt(series, 1));
+		assertNull(HourlySeries.temperatureAt(series, 2));
+		assertNull(HourlySeries.windSpeedAt(series, 1));
+		assertNull(HourlySeries.humidityAt(series, 0));
+		assertEquals(80, HourlySeries.humidityAt(series, 1));
+	}
+
+	@Test
+	void testRejectsHourOutsideTheDay() {
+		byte[] series = HourlySeries.pack(new double[0], new double[0], new int[0], 0);
+
+		assertThrows(IllegalArgumentException.class, () -> HourlySeries.temperatureAt(series, 24));
+		assertThrows(IllegalArgumentException.class, () -> HourlySeries.humidityAt(series, -1));
+	}
+}
@@ -0,0 +1,48 @@
+package com.arun.app.utils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.jupiter.api.Test;
+
+import com.arun.app.models.PincodeLocation;
+
+public class LocationGridTests {
+
+	@Test
+	void testSnapsToCellCentre() {
+		LocationGrid grid = new LocationGrid(0.05);
+
+		assertEquals(28.725, grid.snap(28.7041));
+		assertEquals(28.725, grid.snap(28.7215));
+		assertEquals(77.125, grid.snap(77.1025));
+		assertEquals(-33.875, grid.snap(-33.8688));
+		// a centre stays in its own cell
+		assertEquals(28.725, grid.snap(grid.snap(28.7041)));
+	}
+
+	@Test
+	void testSnapCopiesLocation() {
+		PincodeLocation pincodeLocation = new PincodeLocation();
+		pincodeLocation.setPincode("110001");
+		pincodeLocation.setLatitude(28.6328);
+		pincodeLocation.setLongitude(77.2204);
+
+		PincodeLocation cell = new LocationGrid(0.1).snap(pincodeLocation);
+
+		assertEquals("110001", cell.getPincode());
+		assertEquals(28.65, cell.getLatitude());
+		assertEquals(77.25, cell.getLongitude());
+		assertEquals(28.6328, pincodeLocation.getLatitude());
+	}
+
+	@Test
+	void testZeroCellSizeKeepsCoordinates() {
+		PincodeLocation pincodeLocation = new PincodeLocation();
+		pincodeLocation.setLatitude(28.6328);
+
+		assertSame(pincodeLocation, new LocationGrid(0).snap(pincodeLocation));
+		assertThrows(IllegalArgumentException.class, () -> new LocationGrid(-0.1));
+	}
+}
@@ -0,0 +1,29 @@
+package com.arun.app.utils;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+public class PincodeFormatTests {
+
+	@Test
+	void testAcceptsPincodesOfEveryRegion() {
+		for(String pincode : new String[] {"110001", "400001", "560001", "682001", "744101", "800001", "999999"})
+			assertTrue(PincodeFormat.isValid(pincode), pincode);
+	}
+
+	@Test
+	void testRejectsMalformedInput() {
+		for(String pincode : new String[] {null, "", "11000", "1100011", "11000A", " 11000", "+11000"})
+			assertFalse(PincodeFormat.isValid(pincode), String.valueOf(pincode));
+	}
+
+	@Test
+	void testRejectsUnassignedPrefixes() {
+		for(String pincode : new String[] {"000000", "012345", "100001", "290001", "550001", "870001"})
+			assertFalse(PincodeFormat.isValid(pincode), pincode);
+		assertThrows(IllegalArgumentException.class, () -> PincodeFormat.check("870001"));
+	}
+}
@@ -0,0 +1,68 @@
+package com.arun.app.utils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import com.arun.app.models.PincodeLocation;
+
+public class PincodeSpatialIndexTests {
+
+	private static PincodeLocation location(String pincode, double latitude, double longitude) {
+		PincodeLocation pincodeLocation = new PincodeLocation();
+		pincodeLocation.setPincode(pincode);
+		pincodeLocation.setLatitude(latitude);
+		pincodeLocation.setLongitude(longitude);
+		return pincodeLocation;
+	}
+
+	@Test
+	void testNearestWithinRange() {
+		PincodeSpatialIndex index = new PincodeSpatialIndex(0.1);
+		index.putAll(List.of(location("110001", 28.6328, 77.2204), location("110011", 28.6017, 77.2265),
+				location("560001", 12.9716, 77.5946)));
+
+		assertEquals("110001", index.nearest(28.64, 77.21, 25).getPincode());
+		assertEquals("110011", index.nearest(28.59, 77.23, 25).getPincode());
+		assertNull(index.nearest(20.0, 78.0, 25));
+	}
+
+	@Test
+	void testPutMovesAnExistingPincode() {
+		PincodeSpatialIndex index = new PincodeSpatialIndex(0.1);
+		index.put(location("110001", 28.6328, 77.2204));
+		index.put(location("110001", 12.9716, 77.5946));
+
+		assertEquals(1, index.size());
+		assertNull(index.nearest(28.6328, 77.2204, 25));
+		assertEquals("110001", index.nearest(12.97, 77.59, 25).getPincode());
+	}
+
+	@Test
+	void testMatchesLinearScan() {
+		Random random = new Random(42);
+		PincodeSpatialIndex index = new PincodeSpatialIndex(0.1);
+		List<PincodeLocation> locations = random.ints(2000).mapToObj(i -> location(String.valueOf(i),
+				8+random.nextDouble()*29, 68+random.nextDouble()*29)).toList();
+		index.putAll(locations);
+
+		for(int i = 0; i < 200; i++) {
+			double latitude = 8+random.nextDouble()*29;
+			double longitude = 68+random.nextDouble()*29;
+			PincodeLocation expected = null;
+			double expectedKm = 50;
+			for(PincodeLocation candidate : locations) {
+				double km = PincodeSpatialIndex.distanceKm(latitude, longitude, candidate.getLatitude(), candidate.getLongitude());
+				if(km <= expectedKm) {
+					expected = candidate;
+					expectedKm = km;
+				}
+			}
+			assertEquals(expected, index.nearest(latitude, longitude, 50));
+		}
+	}
+}
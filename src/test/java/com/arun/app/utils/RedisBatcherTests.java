@@ -0,0 +1,137 @@
+package com.arun.app.utils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.data.redis.core.ValueOperations;
+
+public class RedisBatcherTests {
+	private RedisTemplate<String, String> redis;
+	private ValueOperations<String, String> ops;
+	private RedisBatcher<String> batcher;
+
+	@BeforeEach
+	@SuppressWarnings("unchecked")
+	void setUp() {
+		redis = mock(RedisTemplate.class);
+		ops = mock(ValueOperations.class);
+		when(redis.opsForValue()).thenReturn(ops);
+		batcher = new RedisBatcher<>("test", redis, Duration.ofMillis(50), 256);
+	}
+
+	@AfterEach
+	void tearDown() {
+		batcher.close();
+	}
+
+	@Test
+	void testConcurrentReadsShareOneMultiGet() {
+		when(ops.multiGet(List.of("a", "b", "c"))).thenReturn(Arrays.asList("1", null, "3"));
+
+		CompletableFuture<String> a = batcher.load("a");
+		CompletableFuture<String> b = batcher.load("b");
+		CompletableFuture<String> c = batcher.load("c");
+		CompletableFuture<String> again = batcher.load("a");
+
+		assertEquals("1", RedisBatcher.await(a));
+		assertNull(RedisBatcher.await(b));
+		assertEquals("3", RedisBatcher.await(c));
+		assertEquals("1", RedisBatcher.await(again));
+		verify(ops, times(1)).multiGet(anyList());
+		verify(ops, never()).get(anyString());
+		assertEquals(1, batcher.getRoundTripCount());
+		assertEquals(4, batcher.getCallCount());
+	}
+
+	@Test
+	void testWritesGoOutBeforeReadsAndTtlEntriesArePipelined() {
+		when(ops.get("a")).thenReturn("1");
+		CompletableFuture<String> plain = batcher.store("a", "1", null);
+		CompletableFuture<String> expiring = batcher.store("b", "2", Duration.ofMinutes(5));
+		CompletableFuture<String> read = batcher.load("a");
+
+		RedisBatcher.await(plain);
+		RedisBatcher.await(expiring);
+		assertEquals("1", RedisBatcher.await(read));
+
+		InOrder order = inOrder(redis, ops);
+		order.verify(redis).executePipelined(any(SessionCallback.class));
+		order.verify(ops).get("a");
+		verify(ops, never()).multiSet(anyMap());
+
+		// a lone write is a plain SET
+		batcher.set("c", "3", Duration.ofSeconds(30));
+		verify(ops).set("c", "3", 30_000, TimeUnit.MILLISECONDS);
+	}
+
+	@Test
+	void testKeysMissingFromAShortReplyAreMisses() {
+		when(ops.multiGet(List.of("a", "b", "c"))).thenReturn(List.of("1"));
+
+		CompletableFuture<String> a = batcher.load("a");
+		CompletableFuture<String> b = batcher.load("b");
+		CompletableFuture<String> c = batcher.load("c");
+
+		assertEquals("1", RedisBatcher.await(a));
+		assertNull(RedisBatcher.await(b));
+		assertNull(RedisBatcher.await(c));
+	}
+
+	@Test
+	void testRedisFailureReachesEveryCallerOfTheBatch() {
+		RedisConnectionFailureException failure = new RedisConnectionFailureException("Connection refused");
+		when(ops.multiGet(anyList())).thenThrow(failure);
+
+		CompletableFuture<String> a = batcher.load("a");
+		CompletableFuture<String> b = batcher.load("b");
+
+		assertSame(failure, assertThrows(RedisConnectionFailureException.class, () -> RedisBatcher.await(a)));
+		assertSame(failure, assertThrows(RedisConnectionFailureException.class, () -> RedisBatcher.await(b)));
+	}
+
+	@Test
+	void testCallsBeyondMaxBatchGoOutInTheNextRoundTrip() {
+		RedisBatcher<String> small = new RedisBatcher<>("small", redis, Duration.ofMillis(50), 2);
+		try {
+			when(ops.multiGet(List.of("a", "b"))).thenReturn(List.of("1", "2"));
+			when(ops.get("c")).thenReturn("3");
+
+			CompletableFuture<String> a = small.load("a");
+			CompletableFuture<String> b = small.load("b");
+			CompletableFuture<String> c = small.load("c");
+
+			assertEquals("1", RedisBatcher.await(a));
+			assertEquals("2", RedisBatcher.await(b));
+			// the call left over is alone in its batch, so it is a plain GET
+			assertEquals("3", RedisBatcher.await(c));
+			assertEquals(2, small.getRoundTripCount());
+		} finally {
+			small.close();
+		}
+	}
+}
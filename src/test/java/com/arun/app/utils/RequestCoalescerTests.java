@@ -0,0 +1,147 @@
+package com.arun.app.utils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+
+public class RequestCoalescerTests {
+
+	@Test
+	void testConcurrentCallersShareOneLoad() throws Exception {
+		RequestCoalescer<String, String> coalescer = new RequestCoalescer<>();
+		AtomicInteger loads = new AtomicInteger();
+		CountDownLatch release = new CountDownLatch(1);
+		int callers = 8;
+		ExecutorService executor = Executors.newFixedThreadPool(callers);
+		try {
+			List<Future<String>> results = new ArrayList<>();
+			for(int i = 0; i < callers; i++) {
+				results.add(executor.submit(() -> coalescer.execute("current-weather:1.0:2.0", () -> {
+					loads.incrementAndGet();
+					release.await(5, TimeUnit.SECONDS);
+					return "value";
+				})));
+			}
+			// wait until every follower is parked on the leader's future
+			while(coalescer.getCoalescedCount() < callers - 1)
+				Thread.sleep(5);
+			release.countDown();
+
+			for(Future<String> result : results)
+				assertEquals("value", result.get(5, TimeUnit.SECONDS));
+		} finally {
+			executor.shutdownNow();
+		}
+
+		assertEquals(1, loads.get());
+		assertEquals(1, coalescer.getExecutedCount());
+		assertEquals(callers - 1, coalescer.getCoalescedCount());
+		assertEquals(0, coalescer.getInFlightCount());
+	}
+
+	@Test
+	void testLoaderExceptionIsRethrownUnwrapped() {
+		RequestCoalescer<String, String> coalescer = new RequestCoalescer<>();
+		JsonProcessingException failure = new JsonProcessingException("bad payload") {};
+
+		JsonProcessingException thrown = assertThrows(JsonProcessingException.class,
+				() -> coalescer.execute("pincode:000000", () -> { throw failure; }));
+
+		assertSame(failure, thrown);
+		assertEquals(0, coalescer.getInFlightCount());
+	}
+
+	@Test
+	void testSequentialCallsAreNotCoalesced() {
+		RequestCoalescer<String, Integer> coalescer = new RequestCoalescer<>();
+		AtomicInteger loads = new AtomicInteger();
+
+		coalescer.execute("k", loads::incrementAndGet);
+		coalescer.execute("k", loads::incrementAndGet);
+
+		assertEquals(2, loads.get());
+		assertEquals(0, coalescer.getCoalescedCount());
+	}
+
+	@Test
+	void testWaitersGetTheirOwnCopy() throws Exception {
+		RequestCoalescer<String, int[]> coalescer = new RequestCoalescer<>(int[]::clone);
+		int[] loaded = {1, 2};
+		CountDownLatch release = new CountDownLatch(1);
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		try {
+			Future<int[]> leader = executor.submit(() -> coalescer.execute("k", () -> {
+				release.await(5, TimeUnit.SECONDS);
+				return loaded;
+			}));
+			while(coalescer.getInFlightCount() == 0)
+				Thread.sleep(5);
+			Thread waiter = new Thread(() -> {
+				int[] copy = coalescer.execute("k", () -> null);
+				// changing it does not reach the leader's value
+				copy[0] = 42;
+			});
+			waiter.start();
+			while(coalescer.getCoalescedCount() == 0)
+				Thread.sleep(5);
+			release.countDown();
+			waiter.join(5000);
+
+			assertSame(loaded, leader.get(5, TimeUnit.SECONDS));
+			assertEquals(1, loaded[0]);
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	@Test
+	void testInterruptedWaiterKeepsItsInterruptFlag() throws Exception {
+		RequestCoalescer<String, String> coalescer = new RequestCoalescer<>();
+		CountDownLatch release = new CountDownLatch(1);
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		AtomicBoolean interrupted = new AtomicBoolean();
+		AtomicBoolean threw = new AtomicBoolean();
+		try {
+			executor.submit(() -> coalescer.execute("k", () -> {
+				release.await(5, TimeUnit.SECONDS);
+				return "value";
+			}));
+			while(coalescer.getInFlightCount() == 0)
+				Thread.sleep(5);
+			Thread waiter = new Thread(() -> {
+				try {
+					coalescer.execute("k", () -> "other");
+				} catch(Exception e) {
+					threw.set(e instanceof InterruptedException);
+				}
+				interrupted.set(Thread.currentThread().isInterrupted());
+			});
+			waiter.start();
+			while(coalescer.getCoalescedCount() == 0)
+				Thread.sleep(5);
+			waiter.interrupt();
+			waiter.join(5000);
+		} finally {
+			release.countDown();
+			executor.shutdownNow();
+		}
+
+		assertTrue(threw.get());
+		assertTrue(interrupted.get());
+	}
+}
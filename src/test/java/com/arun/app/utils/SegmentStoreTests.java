@@ -0,0 +1,145 @@
+package com.arun.app.utils;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class SegmentStoreTests {
+	@TempDir
+	Path directory;
+
+	@Test
+	void testRecordsSurviveReopeningAndTheNewestValueWins() {
+		try(SegmentStore store = new SegmentStore(directory, 4096, 4)) {
+			store.put("old-weather:28.6:77.2:2025-03-25", bytes("first"));
+			store.put("old-weather:28.6:77.2:2025-03-26", bytes("other"));
+			store.put("old-weather:28.6:77.2:2025-03-25", bytes("second"));
+			store.put("response:https://archive.test", bytes("{}"));
+		}
+
+		try(SegmentStore store = new SegmentStore(directory, 4096, 4)) {
+			assertEquals(3, store.size());
+			assertArrayEquals(bytes("second"), store.get("old-weather:28.6:77.2:2025-03-25"));
+			assertNull(store.get("old-weather:28.6:77.2:2025-03-27"));
+
+			Map<String, String> oldWeather = new HashMap<>();
+			store.forEach("old-weather:", (key, value) -> oldWeather.put(key, new String(value, StandardCharsets.UTF_8)));
+			assertEquals(Map.of("old-weather:28.6:77.2:2025-03-25", "second", "old-weather:28.6:77.2:2025-03-26", "other"), oldWeather);
+
+			// appends continue after the records that were read back
+			store.put("old-weather:28.6:77.2:2025-03-27", bytes("third"));
+		}
+		try(SegmentStore store = new SegmentStore(directory, 4096, 4)) {
+			assertArrayEquals(bytes("third"), store.get("old-weather:28.6:77.2:2025-03-27"));
+			assertArrayEquals(bytes("second"), store.get("old-weather:28.6:77.2:2025-03-25"));
+		}
+	}
+
+	@Test
+	void testOldestSegmentIsDroppedWithItsKeys() {
+		// 12 header bytes + 2 key bytes + 50 value bytes: two records per segment
+		try(SegmentStore store = new SegmentStore(directory, 128, 2)) {
+			for(int i = 0; i < 6; i++) store.put("k"+i, new byte[50]);
+
+			assertEquals(2, store.getSegmentCount());
+			assertNull(store.get("k0"));
+			assertNull(store.get("k1"));
+			assertEquals(4, store.size());
+			assertEquals(50, store.get("k5").length);
+		}
+		try(SegmentStore store = new SegmentStore(directory, 128, 2)) {
+			assertEquals(4, store.size());
+		}
+	}
+
+	@Test
+	void testTornRecordAtTheEndIsIgnoredAndOverwritten() throws Exception {
+		try(SegmentStore store = new SegmentStore(directory, 4096, 4)) {
+			store.put("a", bytes("kept"));
+			store.put("b", bytes("torn"));
+		}
+		// a crash halfway through the second put: its value never reached the file
+		int second = 3*Integer.BYTES+1+4;
+		try(FileChannel channel = FileChannel.open(directory.resolve("00000001.segment"), StandardOpenOption.WRITE)) {
+			channel.write(ByteBuffer.wrap(new byte[4]), second+3*Integer.BYTES+1);
+		}
+
+		try(SegmentStore store = new SegmentStore(directory, 4096, 4)) {
+			assertArrayEquals(bytes("kept"), store.get("a"));
+			assertNull(store.get("b"));
+			store.put("c", bytes("next"));
+		}
+		try(SegmentStore store = new SegmentStore(directory, 4096, 4)) {
+			assertEquals(2, store.size());
+			assertArrayEquals(bytes("next"), store.get("c"));
+		}
+	}
+
+	@Test
+	void testKeyWrittenAgainOutlivesTheDropOfItsFirstSegment() {
+		// two records per segment, as above
+		try(SegmentStore store = new SegmentStore(directory, 128, 2)) {
+			store.put("k0", new byte[50]);
+			store.put("k1", new byte[50]);
+			store.put("k0", bytes("newer"));
+			store.put("k2", new byte[50]);
+			// rolls to a third segment and drops the first
+			store.put("k3", new byte[50]);
+
+			assertArrayEquals(bytes("newer"), store.get("k0"));
+			assertNull(store.get("k1"));
+			assertEquals(3, store.size());
+		}
+		try(SegmentStore store = new SegmentStore(directory, 128, 2)) {
+			assertArrayEquals(bytes("newer"), store.get("k0"));
+			assertNull(store.get("k1"));
+		}
+	}
+
+	@Test
+	void testRecordFillingASegmentExactlyRollsOnTheNextPut() {
+		// 12 header bytes + 1 key byte + 51 value bytes
+		try(SegmentStore store = new SegmentStore(directory, 64, 4)) {
+			store.put("a", new byte[51]);
+			assertEquals(1, store.getSegmentCount());
+			store.put("b", bytes("next"));
+			assertEquals(2, store.getSegmentCount());
+		}
+		try(SegmentStore store = new SegmentStore(directory, 64, 4)) {
+			assertEquals(51, store.get("a").length);
+			// appends go on in the second segment after a reopen
+			store.put("c", bytes("more"));
+			assertEquals(2, store.getSegmentCount());
+			assertArrayEquals(bytes("next"), store.get("b"));
+			assertArrayEquals(bytes("more"), store.get("c"));
+		}
+	}
+
+	@Test
+	void testRecordsThatCannotBeStoredAreRejected() {
+		try(SegmentStore store = new SegmentStore(directory, 64, 4)) {
+			assertThrows(IllegalArgumentException.class, () -> store.put("a", new byte[52]));
+			assertThrows(IllegalArgumentException.class, () -> store.put("", bytes("no key")));
+			assertEquals(0, store.size());
+			assertEquals(1, store.getSegmentCount());
+		}
+		assertThrows(IllegalArgumentException.class, () -> new SegmentStore(directory, 12, 4));
+		assertThrows(IllegalArgumentException.class, () -> new SegmentStore(directory, 64, 0));
+	}
+
+	private static byte[] bytes(String value) {
+		return value.getBytes(StandardCharsets.UTF_8);
+	}
+}
@@ -0,0 +1,63 @@
+package com.arun.app.utils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+
+import org.junit.jupiter.api.Test;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+public class TierMetricsTests {
+	private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+	private final TierMetrics tierMetrics = new TierMetrics(registry);
+
+	@Test
+	void testLookupCountsNullAsMiss() {
+		assertEquals("value", tierMetrics.lookup(TierMetrics.REDIS, "pincode", () -> "value"));
+		assertNull(tierMetrics.lookup(TierMetrics.REDIS, "pincode", () -> null));
+		tierMetrics.lookup(TierMetrics.REDIS, "pincode", () -> "value");
+
+		assertEquals(2, lookups("pincode", "hit"));
+		assertEquals(1, lookups("pincode", "miss"));
+		assertEquals(3, registry.get("weather.tier.latency")
+				.tags("tier", "redis", "name", "pincode", "operation", "get").timer().count());
+	}
+
+	@Test
+	void testFailedCallIsStillTimed() {
+		assertThrows(IllegalStateException.class, () -> tierMetrics.time(TierMetrics.UPSTREAM, "forecast", "call", () -> {
+			throw new IllegalStateException("down");
+		}));
+
+		assertEquals(1, registry.get("weather.tier.latency")
+				.tags("tier", "upstream", "name", "forecast", "operation", "call").timer().count());
+	}
+
+	@Test
+	void testCheckedExceptionOfTheCallIsRethrownAsItIs() {
+		IOException failure = new IOException("disk full");
+
+		assertSame(failure, assertThrows(IOException.class, () -> tierMetrics.time(TierMetrics.ARCHIVE, "response", "put", () -> {
+			throw failure;
+		})));
+		assertEquals(1, registry.get("weather.tier.latency")
+				.tags("tier", "archive", "name", "response", "operation", "put").timer().count());
+	}
+
+	@Test
+	void testCountAddsBatchHitsAndMisses() {
+		tierMetrics.count(TierMetrics.POSTGRES, "weather-data", 3, 2);
+		tierMetrics.count(TierMetrics.POSTGRES, "weather-data", 0, 1);
+
+		assertEquals(3, lookups("weather-data", "hit"));
+		assertEquals(3, lookups("weather-data", "miss"));
+	}
+
+	private double lookups(String name, String result) {
+		return registry.get("weather.tier.lookups").tags("name", name, "result", result).counter().count();
+	}
+}
@@ -0,0 +1,82 @@
+package com.arun.app.utils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.ResourceAccessException;
+
+import com.arun.app.exceptions.UpstreamUnavailableException;
+
+public class UpstreamGuardTests {
+
+	@Test
+	void testCircuitOpensAfterConsecutiveFailuresAndClosesAfterProbe() throws Exception {
+		UpstreamGuard guard = new UpstreamGuard("forecast", 2, Duration.ofMillis(50), 10, 10, Duration.ofSeconds(1));
+
+		// a client error is the caller's fault and does not count
+		assertThrows(HttpClientErrorException.class, () -> guard.call(() -> {
+			throw new HttpClientErrorException(HttpStatus.BAD_REQUEST);
+		}));
+		for(int i = 0; i < 2; i++)
+			assertThrows(ResourceAccessException.class, () -> guard.call(() -> {
+				throw new ResourceAccessException("timeout");
+			}));
+		assertEquals(UpstreamGuard.State.OPEN, guard.getState());
+		assertThrows(UpstreamUnavailableException.class, () -> guard.call(() -> "not called"));
+
+		Thread.sleep(60);
+		assertEquals("probe", guard.call(() -> "probe"));
+		assertEquals(UpstreamGuard.State.CLOSED, guard.getState());
+		assertEquals(1, guard.getRejectedCount());
+	}
+
+	@Test
+	void testCallsOverTheLimitAreRejected() throws Exception {
+		UpstreamGuard guard = new UpstreamGuard("archive", 5, Duration.ofSeconds(30), 2, 10, Duration.ofSeconds(1));
+		CountDownLatch started = new CountDownLatch(2);
+		CountDownLatch release = new CountDownLatch(1);
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		try {
+			Future<?>[] calls = new Future<?>[2];
+			for(int i = 0; i < 2; i++)
+				calls[i] = executor.submit(() -> guard.call(() -> {
+					started.countDown();
+					release.await();
+					return null;
+				}));
+			started.await();
+
+			assertThrows(UpstreamUnavailableException.class, () -> guard.call(() -> "over the limit"));
+			release.countDown();
+			for(Future<?> call : calls) call.get();
+		} finally {
+			executor.shutdown();
+		}
+		assertEquals(0, guard.getInFlight());
+	}
+
+	@Test
+	void testLimitGrowsWhenFastAndShrinksWhenSlow() throws Exception {
+		UpstreamGuard guard = new UpstreamGuard("geocoding", 100, Duration.ofSeconds(30), 1, 8, Duration.ofMillis(20));
+		for(int i = 0; i < 50; i++) guard.call(() -> null);
+		int grown = guard.getLimit();
+		assertTrue(grown > 1, "limit "+grown);
+
+		for(int i = 0; i < 5; i++)
+			guard.call(() -> {
+				Thread.sleep(30);
+				return null;
+			});
+		assertTrue(guard.getLimit() < grown, "limit "+guard.getLimit());
+	}
+}
@@ -0,0 +1,92 @@
+package com.arun.app.utils;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDate;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.arun.app.models.WeatherData;
+
+public class WeatherArchiveTests {
+	private static final String URL = "https://archive.test?latitude=28.6&longitude=77.2&start_date=2025-03-25&end_date=2025-03-25";
+
+	@TempDir
+	Path directory;
+
+	@Test
+	void testWeatherIsReadBackAfterRestartWithItsFetchTime() {
+		WeatherData weatherData = new WeatherData();
+		weatherData.setLatitude(28.6);
+		weatherData.setLongitude(77.2);
+		weatherData.setDate(LocalDate.of(2025, 3, 25));
+		weatherData.setTemperature(31.5);
+		weatherData.setHumidity(40);
+		weatherData.setWindSpeed(12.0);
+		weatherData.setHourly(HourlySeries.pack(new double[24], new double[24], new int[24], 0));
+		weatherData.setFetchedAt(1742900000000L);
+
+		try(WeatherArchive archive = new WeatherArchive(new SegmentStore(directory, 4096, 2), false, Duration.ZERO)) {
+			archive.putWeather("last-weather:28.6:77.2", weatherData);
+		}
+		try(WeatherArchive archive = new WeatherArchive(new SegmentStore(directory, 4096, 2), false, Duration.ZERO)) {
+			WeatherData archived = archive.getWeather("last-weather:28.6:77.2");
+			assertEquals(weatherData.getDate(), archived.getDate());
+			assertEquals(31.5, archived.getTemperature());
+			assertEquals(40, archived.getHumidity());
+			assertEquals(1742900000000L, archived.getFetchedAt());
+			assertArrayEquals(weatherData.getHourly(), archived.getHourly());
+		}
+	}
+
+	@Test
+	void testRecordedResponsesAreOnlyReplayedWhenReplayIsOn() {
+		try(WeatherArchive archive = new WeatherArchive(new SegmentStore(directory, 4096, 2), false, Duration.ZERO)) {
+			archive.recordResponse(URL, "{\"daily\":{}}");
+			assertNull(archive.replay(URL));
+		}
+		try(WeatherArchive archive = new WeatherArchive(new SegmentStore(directory, 4096, 2), true, Duration.ZERO)) {
+			assertEquals("{\"daily\":{}}", archive.replay(URL));
+			assertNull(archive.replay(URL.replace("2025-03-25", "2025-03-26")));
+		}
+
+		WeatherArchive disabled = WeatherArchive.disabled();
+		disabled.recordResponse(URL, "{}");
+		assertFalse(disabled.isEnabled());
+		assertNull(disabled.getWeather("last-weather:28.6:77.2"));
+	}
+
+	@Test
+	void testResponsesOlderThanTheReplayWindowAreNotReplayed() {
+		String today = URL.replace("2025-03-25", "2025-03-26");
+		try(WeatherArchive archive = new WeatherArchive(new SegmentStore(directory, 4096, 2), true, Duration.ofHours(1))) {
+			archive.recordResponse(URL, "{\"old\":true}", System.currentTimeMillis()-Duration.ofHours(2).toMillis());
+			archive.recordResponse(today, "{\"old\":false}");
+			assertNull(archive.replay(URL));
+			assertEquals("{\"old\":false}", archive.replay(today));
+
+			// recorded again by the call that missed
+			archive.recordResponse(URL, "{\"daily\":{}}");
+			assertEquals("{\"daily\":{}}", archive.replay(URL));
+		}
+	}
+
+	@Test
+	void testRecordsInADroppedSegmentReadAsMisses() {
+		try(WeatherArchive archive = new WeatherArchive(new SegmentStore(directory, 256, 2), true, Duration.ZERO)) {
+			for(int day = 1; day <= 9; day++)
+				archive.recordResponse(URL.replace("2025-03-25", "2025-03-0"+day), "{\"day\":"+day+"}");
+
+			assertNull(archive.replay(URL.replace("2025-03-25", "2025-03-01")));
+			assertEquals("{\"day\":9}", archive.replay(URL.replace("2025-03-25", "2025-03-09")));
+			assertTrue(archive.size() < 9);
+		}
+	}
+}
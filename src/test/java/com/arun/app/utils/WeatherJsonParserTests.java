@@ -0,0 +1,99 @@
+package com.arun.app.utils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.arun.app.models.PincodeLocation;
+import com.arun.app.models.WeatherData;
+import com.fasterxml.jackson.core.JsonProcessingException;
+
+public class WeatherJsonParserTests {
+	private static final String ARCHIVE_RESPONSE = "{\"latitude\":28.625,\"elevation\":216.0,"
+			+ "\"hourly_units\":{\"time\":\"iso8601\"},"
+			+ "\"hourly\":{\"time\":[\"2025-03-25T00:00\",\"2025-03-25T01:00\"],"
+			+ "\"temperature_2m\":[18.1,17.6],\"relative_humidity_2m\":[60,null],\"wind_speed_10m\":[3.2,2.9]}}";
+
+	@Test
+	void testParseWeather_ReadsOnlyRequestedHour() throws Exception {
+		WeatherData weatherData = WeatherJsonParser.parseWeather(ARCHIVE_RESPONSE, 1);
+
+		assertEquals(LocalDate.of(2025, 3, 25), weatherData.getDate());
+		assertEquals(17.6, weatherData.getTemperature());
+		assertEquals(2.9, weatherData.getWindSpeed());
+		assertNull(weatherData.getHumidity());
+	}
+
+	@Test
+	void testParseWeather_CurrentBlockWinsOverHourly() throws Exception {
+		String json = "{\"current\":{\"time\":\"2025-03-26T01:15\",\"temperature_2m\":29.4,\"wind_speed_10m\":7.2},"
+				+ ARCHIVE_RESPONSE.substring(1);
+
+		WeatherData weatherData = WeatherJsonParser.parseWeather(json, 0);
+
+		assertEquals(LocalDate.of(2025, 3, 26), weatherData.getDate());
+		assertEquals(29.4, weatherData.getTemperature());
+		assertEquals(7.2, weatherData.getWindSpeed());
+		// humidity of the current reading's hour, not of hourIndex
+		assertNull(weatherData.getHumidity());
+	}
+
+	@Test
+	void testParseWeatherList_AcceptsObjectOrArray() throws Exception {
+		assertEquals(1, WeatherJsonParser.parseWeatherList(ARCHIVE_RESPONSE, 0).size());
+
+		List<WeatherData> list = WeatherJsonParser.parseWeatherList("["+ARCHIVE_RESPONSE+","+ARCHIVE_RESPONSE+"]", 0);
+		assertEquals(2, list.size());
+		assertEquals(18.1, list.get(1).getTemperature());
+	}
+
+	@Test
+	void testParsePincodeLocation() throws Exception {
+		PincodeLocation location = WeatherJsonParser.parsePincodeLocation(
+				"{\"zip\":\"110001\",\"name\":\"New Delhi\",\"lat\":28.6328,\"lon\":77.2204,\"country\":\"IN\"}");
+
+		assertEquals("110001", location.getPincode());
+		assertEquals(28.6328, location.getLatitude());
+		assertEquals(77.2204, location.getLongitude());
+	}
+
+	@Test
+	void testMalformedPayloadThrows() {
+		assertThrows(JsonProcessingException.class, () -> WeatherJsonParser.parseWeather("[1,2]", 0));
+	}
+
+	@Test
+	void testParseDailyWeather_TakesSameHourOfEachDay() throws Exception {
+		StringBuilder times = new StringBuilder();
+		StringBuilder humidity = new StringBuilder();
+		for(int i = 0; i < 48; i++) {
+			String sep = i == 0 ? "" : ",";
+			times.append(sep).append(String.format("\"2025-03-%02dT%02d:00\"", 1+i/24, i%24));
+			humidity.append(sep).append(i);
+		}
+
+		List<WeatherData> days = WeatherJsonParser.parseDailyWeather(
+				"{\"hourly\":{\"time\":["+times+"],\"relative_humidity_2m\":["+humidity+"]}}", 6);
+
+		assertEquals(2, days.size());
+		assertEquals(LocalDate.of(2025, 3, 2), days.get(1).getDate());
+		assertEquals(6, days.get(0).getHumidity());
+		assertEquals(30, days.get(1).getHumidity());
+		assertEquals(47, HourlySeries.humidityAt(days.get(1).getHourly(), 23));
+	}
+
+	@Test
+	void testParseWeather_KeepsHourlySeries() throws Exception {
+		byte[] series = WeatherJsonParser.parseWeather(ARCHIVE_RESPONSE, 0).getHourly();
+
+		assertEquals(17.6, HourlySeries.temperatureAt(series, 1));
+		assertEquals(60, HourlySeries.humidityAt(series, 0));
+		assertNull(HourlySeries.humidityAt(series, 1));
+		assertNull(HourlySeries.windSpeedAt(series, 2));
+	}
+}
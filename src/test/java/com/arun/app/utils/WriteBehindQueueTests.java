@@ -0,0 +1,181 @@
+package com.arun.app.utils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.UnaryOperator;
+
+import org.junit.jupiter.api.Test;
+
+public class WriteBehindQueueTests {
+
+	@Test
+	void testRowsAreWrittenInBatchesOffTheCallerThread() throws Exception {
+		List<List<Integer>> batches = Collections.synchronizedList(new ArrayList<>());
+		List<String> threads = Collections.synchronizedList(new ArrayList<>());
+		WriteBehindQueue<Integer> queue = new WriteBehindQueue<>("test", rows -> {
+			batches.add(List.copyOf(rows));
+			threads.add(Thread.currentThread().getName());
+		}, UnaryOperator.identity(), 100, 10, Duration.ofMillis(200), Duration.ofMillis(100));
+
+		for(int i = 0; i < 25; i++) queue.add(i);
+		queue.close();
+
+		assertEquals(25, queue.getWrittenCount());
+		assertEquals(List.of(10, 10, 5), batches.stream().map(List::size).toList());
+		assertTrue(threads.stream().allMatch("write-behind-test"::equals));
+	}
+
+	@Test
+	void testFullQueueMakesTheCallerWriteItsOwnRow() throws Exception {
+		CountDownLatch database = new CountDownLatch(1);
+		List<String> threads = Collections.synchronizedList(new ArrayList<>());
+		WriteBehindQueue<Integer> queue = new WriteBehindQueue<>("test", rows -> {
+			threads.add(Thread.currentThread().getName());
+			// the flusher is stuck on a slow database
+			if(Thread.currentThread().getName().startsWith("write-behind")) awaitQuietly(database);
+		}, UnaryOperator.identity(), 2, 1, Duration.ZERO, Duration.ofMillis(20));
+
+		// one row held by the stuck flusher, two fill the queue, the fourth has no room
+		for(int i = 0; i < 4; i++) queue.add(i);
+		while(threads.isEmpty()) Thread.sleep(5);
+
+		assertTrue(queue.getCallerWrittenCount() >= 1);
+		assertTrue(threads.contains(Thread.currentThread().getName()));
+		database.countDown();
+		queue.close();
+		assertEquals(4, queue.getWrittenCount());
+	}
+
+	@Test
+	void testFailedBatchIsRetriedRowByRow() throws Exception {
+		List<Integer> stored = Collections.synchronizedList(new ArrayList<>());
+		WriteBehindQueue<Integer> queue = new WriteBehindQueue<>("test", rows -> {
+			if(rows.contains(3)) throw new IllegalStateException("constraint violated");
+			stored.addAll(rows);
+		}, UnaryOperator.identity(), 100, 10, Duration.ofMillis(200), Duration.ofMillis(100));
+
+		for(int i = 0; i < 5; i++) queue.add(i);
+		queue.close();
+
+		assertEquals(List.of(0, 1, 2, 4), stored);
+		assertEquals(4, queue.getWrittenCount());
+		assertEquals(1, queue.getFailedCount());
+	}
+
+	@Test
+	void testFlushReturnsOnceEarlierRowsAreWritten() throws Exception {
+		CountDownLatch database = new CountDownLatch(1);
+		List<List<Integer>> batches = Collections.synchronizedList(new ArrayList<>());
+		WriteBehindQueue<Integer> queue = new WriteBehindQueue<>("test", rows -> {
+			awaitQuietly(database);
+			batches.add(List.copyOf(rows));
+		}, UnaryOperator.identity(), 100, 50, Duration.ofSeconds(10), Duration.ofMillis(100));
+
+		for(int i = 0; i < 3; i++) queue.add(i);
+		AtomicBoolean flushed = new AtomicBoolean();
+		Thread flushing = new Thread(() -> flushed.set(queue.flush()));
+		flushing.start();
+		flushing.join(200);
+		// the sink is still stuck on the database
+		assertTrue(flushing.isAlive());
+		database.countDown();
+		flushing.join(2000);
+		assertTrue(flushed.get());
+
+		// written although the 10s interval had not passed
+		assertEquals(List.of(0, 1, 2), batches.stream().flatMap(List::stream).toList());
+		assertEquals(0, queue.getQueuedCount());
+		queue.add(3);
+		assertTrue(queue.flush());
+		assertEquals(List.of(3), batches.get(batches.size()-1));
+		queue.close();
+	}
+
+	@Test
+	void testSinkGetsACopyOfEachRow() throws Exception {
+		List<int[]> stored = Collections.synchronizedList(new ArrayList<>());
+		WriteBehindQueue<int[]> queue = new WriteBehindQueue<>("test", rows -> rows.forEach(row -> {
+			// the database assigns the id
+			row[0] = 42;
+			stored.add(row);
+		}), int[]::clone, 100, 10, Duration.ZERO, Duration.ofMillis(100));
+
+		int[] row = {0, 7};
+		queue.add(row);
+		queue.flush();
+		queue.close();
+
+		assertEquals(0, row[0]);
+		assertEquals(42, stored.get(0)[0]);
+		assertEquals(7, stored.get(0)[1]);
+	}
+
+	@Test
+	void testFlushAfterCloseReturnsAtOnce() throws Exception {
+		WriteBehindQueue<Integer> queue = new WriteBehindQueue<>("test", rows -> {}, UnaryOperator.identity(), 10, 10,
+				Duration.ofMillis(10), Duration.ofMillis(10));
+		queue.add(1);
+		queue.close();
+
+		assertTrue(queue.flush());
+		assertEquals(1, queue.getWrittenCount());
+	}
+
+	@Test
+	void testRowAddedAfterCloseIsWrittenByTheCaller() throws Exception {
+		List<String> threads = Collections.synchronizedList(new ArrayList<>());
+		WriteBehindQueue<Integer> queue = new WriteBehindQueue<>("test", rows -> threads.add(Thread.currentThread().getName()),
+				UnaryOperator.identity(), 10, 10, Duration.ofMillis(10), Duration.ofMillis(10));
+		queue.close();
+
+		queue.add(1);
+
+		assertEquals(List.of(Thread.currentThread().getName()), threads);
+		assertEquals(1, queue.getCallerWrittenCount());
+		assertEquals(1, queue.getWrittenCount());
+	}
+
+	@Test
+	void testFlushWhileTheQueueIsFullWaitsForRoom() throws Exception {
+		CountDownLatch database = new CountDownLatch(1);
+		List<Integer> stored = Collections.synchronizedList(new ArrayList<>());
+		WriteBehindQueue<Integer> queue = new WriteBehindQueue<>("test", rows -> {
+			awaitQuietly(database);
+			stored.addAll(rows);
+		}, UnaryOperator.identity(), 2, 1, Duration.ZERO, Duration.ofSeconds(5));
+
+		// one row held by the stuck flusher, two fill the queue
+		queue.add(0);
+		while(queue.getQueuedCount() > 0) Thread.sleep(5);
+		queue.add(1);
+		queue.add(2);
+		AtomicBoolean flushed = new AtomicBoolean();
+		Thread flushing = new Thread(() -> flushed.set(queue.flush()));
+		flushing.start();
+		flushing.join(200);
+		assertTrue(flushing.isAlive());
+
+		database.countDown();
+		flushing.join(2000);
+		assertTrue(flushed.get());
+		assertEquals(List.of(0, 1, 2), stored);
+		assertEquals(0, queue.getCallerWrittenCount());
+		queue.close();
+	}
+
+	private static void awaitQuietly(CountDownLatch latch) {
+		try {
+			latch.await(5, TimeUnit.SECONDS);
+		} catch(InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}